@@ -0,0 +1,71 @@
+package com.arthur.digitalcommerce.benchmark;
+
+import com.arthur.digitalcommerce.service.FileServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Upload de imagem de produto gravando em tmpfs (/dev/shm quando existir), para medir o código
+ * do FileServiceImpl e não o disco da máquina.
+ * <p>
+ * Execução: mvn -Pbenchmark test-compile exec:exec -Djmh.include=FileUploadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileUploadBenchmark {
+
+    @Param({"51200", "1048576"})
+    private int imageBytes;
+
+    private final FileServiceImpl fileService = new FileServiceImpl();
+    private Path uploadDir;
+    private MockMultipartFile image;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path tmpfs = Paths.get("/dev/shm");
+        Path base = Files.isDirectory(tmpfs) && Files.isWritable(tmpfs) ? tmpfs : Paths.get(System.getProperty("java.io.tmpdir"));
+        uploadDir = Files.createTempDirectory(base, "upload-benchmark-");
+
+        byte[] content = new byte[imageBytes];
+        new Random(42L).nextBytes(content);
+        image = new MockMultipartFile("image", "produto.png", "image/png", content);
+    }
+
+    @Benchmark
+    public String uploadImage() throws IOException {
+        return fileService.uploadImage(uploadDir.toString(), image);
+    }
+
+    // Limpa a cada iteração para o diretório não crescer sem limite em memória.
+    @TearDown(Level.Iteration)
+    public void cleanUploads() throws IOException {
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void removeUploadDir() throws IOException {
+        try (Stream<Path> paths = Files.walk(uploadDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
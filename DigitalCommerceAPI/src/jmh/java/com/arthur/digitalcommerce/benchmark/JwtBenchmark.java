@@ -0,0 +1,74 @@
+package com.arthur.digitalcommerce.benchmark;
+
+import com.arthur.digitalcommerce.security.jwt.JwtUtils;
+import com.arthur.digitalcommerce.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import javax.crypto.SecretKey;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do JWT por requisição autenticada.
+ * <p>
+ * 'legacyFilterPath' reproduz o AuthTokenFilter antigo: validateJwtToken e depois
+ * getUserNameFromJwtToken, cada um decodificando o segredo, montando chave e parser e
+ * verificando a assinatura de novo. 'filterPath' é o caminho atual: parser pronto e uma
+ * única verificação.
+ * <p>
+ * Execução: mvn -Pbenchmark test-compile exec:exec -Djmh.include=JwtBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    // Segredo HS256 só para o benchmark (Base64, mais de 256 bits).
+    private static final String SECRET = "c2VncmVkby1kby1iZW5jaG1hcmstY29tLTMyLWJ5dGVzISE=";
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtils = new JwtUtils(SECRET, 3_600_000);
+        token = jwtUtils.generateTokenFromUserDetails(new UserDetailsImpl(1L, "cliente", "cliente@example.com", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @Benchmark
+    public String filterPath() {
+        Claims claims = jwtUtils.parseValidatedClaims(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    // Caminho atual completo: além da verificação, monta o principal a partir das claims.
+    @Benchmark
+    public UserDetailsImpl filterPathWithPrincipal() {
+        Claims claims = jwtUtils.parseValidatedClaims(token);
+        return claims != null ? jwtUtils.getUserDetailsFromClaims(claims) : null;
+    }
+
+    @Benchmark
+    public String legacyFilterPath() {
+        Jwts.parser().verifyWith(legacyKey()).build().parseSignedClaims(token);
+        return Jwts.parser().verifyWith(legacyKey()).build().parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return jwtUtils.validateJwtToken(token);
+    }
+
+    private static SecretKey legacyKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+}
@@ -0,0 +1,144 @@
+package com.arthur.digitalcommerce.benchmark;
+
+import com.arthur.digitalcommerce.mapper.CartMapper;
+import com.arthur.digitalcommerce.mapper.ProductMapper;
+import com.arthur.digitalcommerce.model.Cart;
+import com.arthur.digitalcommerce.model.CartItem;
+import com.arthur.digitalcommerce.model.Category;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.payload.CartDTO;
+import com.arthur.digitalcommerce.payload.ProductDTO;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.convention.MatchingStrategies;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mappers escritos à mão x ModelMapper com a configuração que o projeto usava
+ * (STRICT, skipNull e os typeMaps de Product), nos caminhos quentes: produto do catálogo,
+ * atualização parcial e carrinho.
+ * <p>
+ * Execução: mvn -Pbenchmark test-compile exec:exec -Djmh.include=MapperBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"1", "50"})
+    private int cartLines;
+
+    private ModelMapper modelMapper;
+    private ProductMapper productMapper;
+    private CartMapper cartMapper;
+
+    private Product product;
+    private ProductDTO patch;
+    private Cart cart;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        modelMapper = legacyModelMapper();
+        productMapper = new ProductMapper();
+        cartMapper = new CartMapper(productMapper);
+
+        Category category = new Category();
+        category.setCategoryId(3L);
+        category.setCategoryName("Eletrodomésticos");
+        product = product(1L, category);
+
+        patch = new ProductDTO();
+        patch.setPrice(new BigDecimal("2899.90"));
+        patch.setQuantityInStock(12);
+
+        cart = new Cart();
+        cart.setCartId(1L);
+        cart.setTotalPrice(new BigDecimal("1000.00"));
+        List<CartItem> items = new ArrayList<>();
+        for (int i = 0; i < cartLines; i++) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(product(i + 1L, category));
+            item.setQuantity(1 + i % 3);
+            items.add(item);
+        }
+        cart.setCartItems(items);
+    }
+
+    @Benchmark
+    public ProductDTO productToDto_modelMapper() {
+        return modelMapper.map(product, ProductDTO.class);
+    }
+
+    @Benchmark
+    public ProductDTO productToDto_handWritten() {
+        return productMapper.toDTO(product);
+    }
+
+    @Benchmark
+    public Product partialUpdate_modelMapper() {
+        Product target = new Product();
+        modelMapper.map(patch, target);
+        return target;
+    }
+
+    @Benchmark
+    public Product partialUpdate_handWritten() {
+        Product target = new Product();
+        productMapper.updateEntity(patch, target);
+        return target;
+    }
+
+    @Benchmark
+    public CartDTO cartToDto_modelMapper() {
+        // Mesmo fluxo do antigo CartServiceImpl.mapToDTO.
+        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
+        List<ProductDTO> productDTOs = new ArrayList<>();
+        for (CartItem item : cart.getCartItems()) {
+            ProductDTO productDTO = modelMapper.map(item.getProduct(), ProductDTO.class);
+            productDTO.setCartQuantity(item.getQuantity());
+            productDTOs.add(productDTO);
+        }
+        cartDTO.setProducts(productDTOs);
+        return cartDTO;
+    }
+
+    @Benchmark
+    public CartDTO cartToDto_handWritten() {
+        return cartMapper.toDTO(cart);
+    }
+
+    private static Product product(long id, Category category) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setProductName("Geladeira Frost Free " + id);
+        product.setDescription("Geladeira duplex 480 litros, inox");
+        product.setImage("geladeira-" + id + ".png");
+        product.setQuantityInStock(20);
+        product.setPrice(new BigDecimal("3199.90"));
+        product.setSpecialPrice(new BigDecimal("2999.90"));
+        product.setSpecialPriceActive(true);
+        product.setCategory(category);
+        return product;
+    }
+
+    // Cópia da antiga ModelMapperConfig.
+    private static ModelMapper legacyModelMapper() {
+        ModelMapper modelMapper = new ModelMapper();
+        modelMapper.getConfiguration()
+                .setMatchingStrategy(MatchingStrategies.STRICT)
+                .setSkipNullEnabled(true);
+        modelMapper.typeMap(ProductDTO.class, Product.class)
+                .addMappings(mapper -> mapper.skip(Product::setCategory));
+        modelMapper.typeMap(Product.class, ProductDTO.class)
+                .addMappings(mapper -> mapper.map(src -> src.getCategory().getCategoryId(), ProductDTO::setCategoryId));
+        return modelMapper;
+    }
+}
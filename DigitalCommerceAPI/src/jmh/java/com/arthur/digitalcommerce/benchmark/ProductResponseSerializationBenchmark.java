@@ -0,0 +1,49 @@
+package com.arthur.digitalcommerce.benchmark;
+
+import com.arthur.digitalcommerce.mapper.ProductMapper;
+import com.arthur.digitalcommerce.payload.ProductDTO;
+import com.arthur.digitalcommerce.payload.ProductResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialização de uma página do catálogo (ProductResponse) com um ObjectMapper montado
+ * como o do Spring MVC.
+ * <p>
+ * Execução: mvn -Pbenchmark test-compile exec:exec -Djmh.include=ProductResponseSerializationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductResponseSerializationBenchmark {
+
+    @Param({"10", "50", "200"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private ProductResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        ProductMapper productMapper = new ProductMapper();
+        List<ProductDTO> content = SyntheticCatalog.generate(pageSize, 42L).stream()
+                .map(productMapper::toDTO)
+                .toList();
+        response = new ProductResponse(content, 0, pageSize, 10_000L, 10_000 / pageSize, false, null);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
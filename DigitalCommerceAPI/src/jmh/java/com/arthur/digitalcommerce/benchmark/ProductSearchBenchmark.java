@@ -0,0 +1,122 @@
+package com.arthur.digitalcommerce.benchmark;
+
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import com.arthur.digitalcommerce.search.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca por palavra-chave em um catálogo sintético de 1M de produtos:
+ * índice invertido em memória x consulta JPQL com LIKE (a busca anterior).
+ * <p>
+ * A consulta JPQL roda contra um H2 em memória, então os números servem para comparar ordens
+ * de grandeza; no Postgres o LIKE '%termo%' também varre a tabela inteira.
+ * <p>
+ * Execução: mvn -Pbenchmark test-compile exec:exec -Djmh.include=ProductSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ProductSearchBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    @Param({"1000000"})
+    private int catalogSize;
+
+    @Param({"notebook", "geladeira frost free", "smart tv samsung 4k"})
+    private String keyword;
+
+    private ProductSearchIndex index;
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ProductCatalogView> catalog = SyntheticCatalog.generate(catalogSize, 42L);
+
+        index = new ProductSearchIndex();
+        catalog.forEach(index::addIfAbsent);
+
+        context = new SpringApplicationBuilder(JpaOnlyConfiguration.class)
+                .web(WebApplicationType.NONE)
+                // Argumentos de linha de comando têm precedência sobre o application.yml.
+                .run("--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--spring.flyway.enabled=false",
+                        "--spring.datasource.url=jdbc:h2:mem:catalog;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.jpa.show-sql=false");
+        productRepository = context.getBean(ProductRepository.class);
+        insertCatalog(context.getBean(JdbcTemplate.class), catalog);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProductSearchIndex.SearchHits inMemoryIndex() {
+        return index.search(keyword, null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<ProductCatalogView> jpqlLike() {
+        return productRepository.findCatalogPageByKeyword("%" + keyword + "%",
+                PageRequest.of(0, PAGE_SIZE, Sort.by("productId").ascending()));
+    }
+
+    private static void insertCatalog(JdbcTemplate jdbcTemplate, List<ProductCatalogView> catalog) {
+        for (long categoryId = 1; categoryId <= SyntheticCatalog.CATEGORY_COUNT; categoryId++) {
+            jdbcTemplate.update("INSERT INTO categories (category_id, category_name) VALUES (?, ?)",
+                    categoryId, "Categoria " + categoryId);
+        }
+        String sql = "INSERT INTO products (product_id, product_name, image, description, quantity_in_stock,"
+                + " price, special_price, special_price_active, category_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        for (int from = 0; from < catalog.size(); from += INSERT_BATCH_SIZE) {
+            List<ProductCatalogView> batch = catalog.subList(from, Math.min(from + INSERT_BATCH_SIZE, catalog.size()));
+            jdbcTemplate.batchUpdate(sql, batch, batch.size(), (statement, view) -> {
+                statement.setLong(1, view.productId());
+                statement.setString(2, view.productName());
+                statement.setString(3, view.image());
+                statement.setString(4, view.description());
+                statement.setInt(5, view.quantityInStock());
+                statement.setBigDecimal(6, view.price());
+                statement.setBigDecimal(7, view.specialPrice());
+                statement.setBoolean(8, view.specialPriceActive());
+                statement.setLong(9, view.categoryId());
+            });
+        }
+    }
+
+    /** Contexto mínimo: só JPA e os repositórios, sem web, segurança ou integrações externas. */
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Product.class)
+    @EnableJpaRepositories(basePackageClasses = ProductRepository.class)
+    static class JpaOnlyConfiguration {
+    }
+}
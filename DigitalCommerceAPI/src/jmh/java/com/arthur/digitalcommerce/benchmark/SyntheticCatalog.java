@@ -0,0 +1,63 @@
+package com.arthur.digitalcommerce.benchmark;
+
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gera um catálogo sintético e determinístico (mesma semente, mesmos produtos) para os benchmarks.
+ * Os nomes combinam tipo, marca e atributos, com a distribuição desigual de termos de um catálogo real.
+ */
+public final class SyntheticCatalog {
+
+    public static final int CATEGORY_COUNT = 20;
+
+    private static final String[] TYPES = {
+            "Notebook", "Smartphone", "Geladeira", "Fogão", "Micro-ondas", "Smart TV", "Monitor",
+            "Fone de Ouvido", "Cafeteira", "Liquidificador", "Aspirador", "Ventilador", "Cadeira Gamer",
+            "Teclado Mecânico", "Mouse", "Impressora", "Tablet", "Relógio", "Câmera", "Air Fryer"};
+    private static final String[] BRANDS = {
+            "Acme", "Brastemp", "Samsung", "Philco", "Mondial", "Electrolux", "Positivo", "Multilaser",
+            "Britânia", "Arno", "Lenovo", "Dell", "Motorola", "Xiaomi", "LG", "Consul"};
+    private static final String[] ATTRIBUTES = {
+            "Inox", "Preto", "Branco", "Bivolt", "Frost Free", "4K", "Sem Fio", "Digital", "Portátil",
+            "Turbo", "Pro", "Max", "Compacto", "Slim", "Premium", "Básico", "Duplex", "Touch", "RGB", "Eco"};
+    private static final String[] DESCRIPTIONS = {
+            "Ideal para o dia a dia da sua casa",
+            "Garantia de um ano direto com o fabricante",
+            "Design moderno com acabamento resistente",
+            "Baixo consumo de energia e funcionamento silencioso",
+            "Acompanha manual em português e cabo de alimentação",
+            "Produto novo, lacrado e com nota fiscal",
+            "Alta performance para trabalho e jogos",
+            "Fácil de limpar e de instalar"};
+
+    private SyntheticCatalog() {
+    }
+
+    public static List<ProductCatalogView> generate(int size, long seed) {
+        Random random = new Random(seed);
+        List<ProductCatalogView> catalog = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            int type = skewed(random, TYPES.length);
+            String name = TYPES[type] + " " + BRANDS[skewed(random, BRANDS.length)] + " "
+                    + ATTRIBUTES[random.nextInt(ATTRIBUTES.length)] + " " + ATTRIBUTES[random.nextInt(ATTRIBUTES.length)]
+                    + " " + (char) ('A' + random.nextInt(26)) + (100 + random.nextInt(900));
+            String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)] + ". "
+                    + DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)] + ".";
+            BigDecimal price = BigDecimal.valueOf(10 + random.nextInt(500_000) / 100.0).setScale(2, RoundingMode.HALF_UP);
+            catalog.add(new ProductCatalogView((long) i, name, "default.png", description,
+                    random.nextInt(500), price, price, false, (long) (type % CATEGORY_COUNT) + 1));
+        }
+        return catalog;
+    }
+
+    // Distribuição aproximadamente de Zipf: os primeiros índices aparecem bem mais vezes.
+    private static int skewed(Random random, int bound) {
+        return (int) Math.min(bound - 1, Math.floor(bound * Math.pow(random.nextDouble(), 2)));
+    }
+}
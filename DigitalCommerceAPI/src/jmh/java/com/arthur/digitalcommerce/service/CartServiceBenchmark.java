@@ -0,0 +1,121 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.benchmark.SyntheticCatalog;
+import com.arthur.digitalcommerce.mapper.CartMapper;
+import com.arthur.digitalcommerce.mapper.ProductMapper;
+import com.arthur.digitalcommerce.model.Cart;
+import com.arthur.digitalcommerce.model.CartItem;
+import com.arthur.digitalcommerce.model.Category;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.payload.CartDTO;
+import com.arthur.digitalcommerce.repository.CartRepository;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import com.arthur.digitalcommerce.util.AuthUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminhos de preço do carrinho que rodam em produção, para carrinhos de 1 a 500 itens:
+ * a leitura do carrinho (getCartForCurrentUser, que devolve o total gravado), a diferença aplicada ao total
+ * quando uma linha muda (adicionar, alterar quantidade, remover) e o mapeamento para CartDTO.
+ * O repositório e o AuthUtil são stubs mínimos com respostas fixas (mocks do Mockito custariam mais do que
+ * o próprio cálculo).
+ * Fica no pacote 'service' porque mapToDTO é de visibilidade de pacote.
+ * <p>
+ * Execução: mvn -Pbenchmark test-compile exec:exec -Djmh.include=CartServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartServiceBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    private int cartLines;
+
+    private CartServiceImpl cartService;
+    private Cart cart;
+    private CartItem changedLine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cart = new Cart();
+        cart.setCartId(1L);
+        List<CartItem> items = new ArrayList<>();
+        List<ProductCatalogView> catalog = SyntheticCatalog.generate(cartLines, 42L);
+        for (int i = 0; i < catalog.size(); i++) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(toProduct(catalog.get(i)));
+            item.setQuantity(1 + i % 4);
+            // Um em cada cinco itens com desconto, para exercitar também esse ramo.
+            item.setDiscount(i % 5 == 0 ? new BigDecimal("10") : BigDecimal.ZERO);
+            items.add(item);
+        }
+        cart.setCartItems(items);
+        cart.setTotalPrice(CartPricing.cartTotal(cart));
+        changedLine = items.get(items.size() - 1);
+
+        Optional<Cart> found = Optional.of(cart);
+        CartRepository cartRepository = (CartRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{CartRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findWithItemsByUserEmail")) {
+                        return found;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        AuthUtil authUtil = new AuthUtil(null, null, new SimpleMeterRegistry()) {
+            @Override
+            public String loggedInEmail() {
+                return "bench@test.com";
+            }
+        };
+        cartService = new CartServiceImpl(cartRepository, null, null, new CartMapper(new ProductMapper()), authUtil, null);
+    }
+
+    @Benchmark
+    public CartDTO getCartForCurrentUser() {
+        return cartService.getCartForCurrentUser();
+    }
+
+    // O que cada mutação faz no total: diferença da linha alterada, sem somar o carrinho inteiro.
+    @Benchmark
+    public BigDecimal applyLineDelta() {
+        BigDecimal previousLineTotal = CartPricing.lineTotal(changedLine);
+        changedLine.setQuantity(changedLine.getQuantity() % 4 + 1);
+        CartPricing.applyDelta(cart, CartPricing.lineTotal(changedLine).subtract(previousLineTotal));
+        return cart.getTotalPrice();
+    }
+
+    @Benchmark
+    public CartDTO mapToDTO() {
+        return cartService.mapToDTO(cart);
+    }
+
+    private static Product toProduct(ProductCatalogView view) {
+        Category category = new Category();
+        category.setCategoryId(view.categoryId());
+
+        Product product = new Product();
+        product.setProductId(view.productId());
+        product.setProductName(view.productName());
+        product.setDescription(view.description());
+        product.setImage(view.image());
+        product.setQuantityInStock(view.quantityInStock());
+        product.setPrice(view.price());
+        product.setSpecialPrice(view.specialPrice());
+        product.setSpecialPriceActive(view.specialPriceActive());
+        product.setCategory(category);
+        return product;
+    }
+}
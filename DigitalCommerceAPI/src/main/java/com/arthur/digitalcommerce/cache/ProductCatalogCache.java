@@ -0,0 +1,168 @@
+package com.arthur.digitalcommerce.cache;
+
+import com.arthur.digitalcommerce.events.CategoryChangedEvent;
+import com.arthur.digitalcommerce.events.ProductCreatedEvent;
+import com.arthur.digitalcommerce.events.ProductDeletedEvent;
+import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.payload.ProductResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache em memória das páginas públicas do catálogo ({@link ProductResponse}).
+ * <p>
+ * Limitado por tamanho e por TTL, e invalidado pelos eventos de produto/categoria apenas
+ * nas páginas que podem ter mudado. Uma carga que já estava em andamento quando a invalidação rodou pode ter
+ * lido o banco antes do commit; por isso, ao terminar, ela confere o contador de invalidações e, se ele andou,
+ * tira a própria página do cache. Os contadores de hit/miss/eviction são publicados no
+ * Micrometer com o nome {@value #CACHE_NAME}.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    public static final String CACHE_NAME = "productCatalogPages";
+
+    private final Cache<CatalogPageKey, ProductResponse> pages;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ProductCatalogCache(@Value("${config.cache.catalog.max-size:1000}") long maxSize,
+                               @Value("${config.cache.catalog.ttl:5m}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, CACHE_NAME);
+    }
+
+    /**
+     * Retorna a página em cache ou a carrega com o {@code loader}.
+     * Exceções do loader (ex.: categoria sem produtos) são propagadas e nada é armazenado.
+     */
+    public ProductResponse get(CatalogPageKey key, Supplier<ProductResponse> loader) {
+        long evictionsBefore = evictions.get();
+        boolean[] loaded = {false};
+        ProductResponse page = pages.get(key, k -> {
+            loaded[0] = true;
+            return loader.get();
+        });
+        if (loaded[0] && evictions.get() != evictionsBefore) {
+            // Só remove esta instância: uma recarga feita depois da invalidação continua no cache.
+            pages.asMap().remove(key, page);
+        }
+        return page;
+    }
+
+    public CacheStats stats() {
+        return pages.stats();
+    }
+
+    public long size() {
+        pages.cleanUp();
+        return pages.estimatedSize();
+    }
+
+    public void invalidateAll() {
+        evictions.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    // ======================================================= //
+    // INVALIDAÇÃO DIRIGIDA POR EVENTOS                        //
+    // ======================================================= //
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductCreated(ProductCreatedEvent event) {
+        evictCatalogPages(categoryIdOf(event.getProduct()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductUpdated(ProductUpdatedEvent event) {
+        evictCatalogPages(categoryIdOf(event.getProduct()), event.getPreviousCategoryId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        if (event.getCategoryId() == null) {
+            // Sem a categoria não dá para saber quais listagens continham o produto.
+            invalidateAll();
+            return;
+        }
+        evictCatalogPages(event.getCategoryId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        evictCatalogPages(event.getCategoryId());
+    }
+
+    /**
+     * Uma mudança em produtos das categorias informadas afeta:
+     * a listagem geral, as listagens dessas categorias e qualquer busca por palavra-chave
+     * (o nome pode ter passado a casar, ou deixado de casar, com o termo buscado).
+     * Listagens de outras categorias permanecem em cache.
+     */
+    private void evictCatalogPages(Long... categoryIds) {
+        Set<Long> affectedCategories = new HashSet<>();
+        for (Long categoryId : categoryIds) {
+            if (categoryId != null) {
+                affectedCategories.add(categoryId);
+            }
+        }
+
+        // Incrementado antes de remover: uma carga que terminar depois daqui se retira sozinha.
+        evictions.incrementAndGet();
+        pages.asMap().keySet().removeIf(key -> key.categoryId() == null
+                || affectedCategories.contains(key.categoryId()));
+        logger.debug("Catalog cache evicted for categories {}", affectedCategories);
+    }
+
+    private static Long categoryIdOf(Product product) {
+        return product != null && product.getCategory() != null ? product.getCategory().getCategoryId() : null;
+    }
+
+    /**
+     * Chave de uma página do catálogo. {@code categoryId} e {@code keyword} são mutuamente exclusivos:
+     * ambos nulos identificam a listagem geral.
+     */
+    public record CatalogPageKey(Long categoryId, String keyword, int pageNumber, int pageSize,
+                                 String sortBy, String sortOrder) {
+
+        public CatalogPageKey {
+            Objects.requireNonNull(sortBy, "sortBy");
+            sortOrder = "asc".equalsIgnoreCase(sortOrder) ? "asc" : "desc";
+            keyword = keyword == null ? null : keyword.toLowerCase();
+        }
+
+        public static CatalogPageKey all(int pageNumber, int pageSize, String sortBy, String sortOrder) {
+            return new CatalogPageKey(null, null, pageNumber, pageSize, sortBy, sortOrder);
+        }
+
+        public static CatalogPageKey category(Long categoryId, int pageNumber, int pageSize, String sortBy, String sortOrder) {
+            return new CatalogPageKey(categoryId, null, pageNumber, pageSize, sortBy, sortOrder);
+        }
+
+        public static CatalogPageKey search(String keyword, int pageNumber, int pageSize, String sortBy, String sortOrder) {
+            return new CatalogPageKey(null, keyword, pageNumber, pageSize, sortBy, sortOrder);
+        }
+    }
+}
@@ -5,5 +5,7 @@ public class AppConstants {
     public static final String PAGE_SIZE = "50";
     public static final String SORT_CATEGORIES_BY = "categoryId";
     public static final String SORT_PRODUCTS_BY = "productId";
+    public static final String SORT_SEARCH_BY = "relevance";
     public static final String SORT_DIR = "asc";
+    public static final String INCLUDE_TOTAL = "true";
 }
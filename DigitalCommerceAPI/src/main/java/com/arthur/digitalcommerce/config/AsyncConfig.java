@@ -0,0 +1,67 @@
+package com.arthur.digitalcommerce.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    public static final String CART_REPRICING_EXECUTOR = "cartRepricingExecutor";
+    public static final String CHECKOUT_EXECUTOR = "checkoutExecutor";
+    public static final String WEBHOOK_EXECUTOR = "webhookExecutor";
+
+    /**
+     * Executor limitado para a reprecificação de carrinhos. Com a fila cheia a tarefa roda na
+     * própria thread que publicou o evento (CallerRuns): fica mais lenta, mas nenhum total é perdido.
+     */
+    @Bean(name = CART_REPRICING_EXECUTOR)
+    public ThreadPoolTaskExecutor cartRepricingExecutor(
+            @Value("${config.cart.repricing.pool-size:2}") int poolSize,
+            @Value("${config.cart.repricing.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("cart-repricing-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Workers da fila de webhooks. O {@code WebhookQueueWorker} nunca entrega mais eventos do que há threads
+     * livres, então a fila interna fica vazia; no desligamento os eventos em andamento terminam.
+     */
+    @Bean(name = WEBHOOK_EXECUTOR)
+    public ThreadPoolTaskExecutor webhookExecutor(@Value("${config.webhook.queue.workers:4}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("webhook-worker-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Segunda fase do checkout assíncrono (chamada ao Mercado Pago). A tarefa passa quase todo o tempo
+     * esperando a rede, então cada uma ganha uma virtual thread; quem limita a duração são os timeouts do gateway.
+     * No desligamento, close() espera as chamadas em andamento.
+     */
+    @Bean(name = CHECKOUT_EXECUTOR, destroyMethod = "close")
+    public ExecutorService checkoutExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("checkout-", 0).factory());
+    }
+}
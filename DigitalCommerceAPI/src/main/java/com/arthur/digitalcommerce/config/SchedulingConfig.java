@@ -0,0 +1,15 @@
+package com.arthur.digitalcommerce.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Liga as tarefas agendadas (ex.: StockReservationSweeper). Pode ser desligado por instância
+ * com 'config.scheduling.enabled=false'.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(prefix = "config.scheduling", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
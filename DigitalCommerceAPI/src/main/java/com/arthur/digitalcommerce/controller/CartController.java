@@ -1,7 +1,11 @@
 package com.arthur.digitalcommerce.controller;
 
 import com.arthur.digitalcommerce.payload.CartDTO;
+import com.arthur.digitalcommerce.payload.CartItemQuantityDTO;
+import com.arthur.digitalcommerce.repository.projection.CartTotalMismatch;
+import com.arthur.digitalcommerce.service.CartMutationRetrier;
 import com.arthur.digitalcommerce.service.CartService;
+import com.arthur.digitalcommerce.service.CartTotalConsistencyChecker;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,20 +17,27 @@ import java.util.List;
 public class CartController {
 
     private final CartService cartService;
+    private final CartTotalConsistencyChecker cartTotalConsistencyChecker;
+    private final CartMutationRetrier cartMutationRetrier;
 
     // Injeção de dependência via construtor
-    public CartController(CartService cartService) {
+    public CartController(CartService cartService, CartTotalConsistencyChecker cartTotalConsistencyChecker,
+                          CartMutationRetrier cartMutationRetrier) {
         this.cartService = cartService;
+        this.cartTotalConsistencyChecker = cartTotalConsistencyChecker;
+        this.cartMutationRetrier = cartMutationRetrier;
     }
 
     /**
      * Adiciona um produto ao carrinho do usuário logado.
+     * As alterações do carrinho passam pelo {@link CartMutationRetrier}, fora da transação do serviço.
      */
     @PostMapping("/carts/products/{productId}/{quantity}")
     public ResponseEntity<CartDTO> addProductToCart(
             @PathVariable Long productId,
             @PathVariable Integer quantity) {
-        CartDTO cartDTO = cartService.addProductToCart(productId, quantity);
+        CartDTO cartDTO = cartMutationRetrier.execute("add",
+                () -> cartService.addProductToCart(productId, quantity));
         return new ResponseEntity<>(cartDTO, HttpStatus.CREATED);
     }
 
@@ -50,7 +61,17 @@ public class CartController {
     public ResponseEntity<CartDTO> updateProductQuantity(
             @PathVariable Long productId,
             @PathVariable Integer quantity) {
-        CartDTO cartDTO = cartService.updateProductQuantityInCart(productId, quantity);
+        CartDTO cartDTO = cartMutationRetrier.execute("update-quantity",
+                () -> cartService.updateProductQuantityInCart(productId, quantity));
+        return ResponseEntity.ok(cartDTO);
+    }
+
+    /**
+     * Aplica em lote as quantidades finais de vários produtos (0 remove o produto) e retorna o carrinho.
+     */
+    @PatchMapping("/carts/my-cart/items")
+    public ResponseEntity<CartDTO> updateCartItems(@RequestBody List<CartItemQuantityDTO> items) {
+        CartDTO cartDTO = cartMutationRetrier.execute("update-items", () -> cartService.updateCartItems(items));
         return ResponseEntity.ok(cartDTO);
     }
 
@@ -59,7 +80,7 @@ public class CartController {
      */
     @DeleteMapping("/carts/products/{productId}")
     public ResponseEntity<String> deleteProductFromCart(@PathVariable Long productId) {
-        String status = cartService.deleteProductFromCart(productId);
+        String status = cartMutationRetrier.execute("remove", () -> cartService.deleteProductFromCart(productId));
         return ResponseEntity.ok(status);
     }
 
@@ -71,4 +92,20 @@ public class CartController {
         List<CartDTO> cartDTOs = cartService.getAllCarts();
         return new ResponseEntity<>(cartDTOs, HttpStatus.OK); // Status corrigido para OK
     }
+
+    /**
+     * [ADMIN] Lista os carrinhos cujo total gravado não bate com o recalculado a partir dos itens.
+     */
+    @GetMapping("/admin/carts/total-mismatches")
+    public ResponseEntity<List<CartTotalMismatch>> getCartTotalMismatches() {
+        return ResponseEntity.ok(cartTotalConsistencyChecker.findMismatches());
+    }
+
+    /**
+     * [ADMIN] Corrige os totais divergentes e retorna os carrinhos corrigidos.
+     */
+    @PostMapping("/admin/carts/total-mismatches/repair")
+    public ResponseEntity<List<CartTotalMismatch>> repairCartTotalMismatches() {
+        return ResponseEntity.ok(cartTotalConsistencyChecker.repairMismatches());
+    }
 }
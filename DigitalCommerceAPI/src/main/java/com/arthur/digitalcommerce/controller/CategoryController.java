@@ -17,15 +17,24 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
 
+    // Com 'cursor' a listagem é por keyset (sem OFFSET); includeTotal=false só dispensa o COUNT, nos dois modos.
     @GetMapping("/public/categories/paged")
     public ResponseEntity<CategoryResponse> getAllCategoriesPaged(
             @RequestParam(name = "page",      defaultValue = AppConstants.PAGE_NUMBER) Integer page,
             @RequestParam(name = "size",      defaultValue = AppConstants.PAGE_SIZE)   Integer size,
             @RequestParam(name = "sortBy",    defaultValue = AppConstants.SORT_CATEGORIES_BY) String sortBy,
-            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR)           String sortOrder) {
-
-        CategoryResponse categoryResponse =
-                categoryService.getAllCategories(page, size, sortBy, sortOrder);
+            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR)           String sortOrder,
+            @RequestParam(name = "cursor",    required = false)                               String cursor,
+            @RequestParam(name = "includeTotal", defaultValue = AppConstants.INCLUDE_TOTAL)   boolean includeTotal) {
+
+        CategoryResponse categoryResponse;
+        if (cursor != null) {
+            categoryResponse = categoryService.getAllCategoriesByCursor(cursor, size, sortBy, sortOrder, includeTotal);
+        } else if (includeTotal) {
+            categoryResponse = categoryService.getAllCategories(page, size, sortBy, sortOrder);
+        } else {
+            categoryResponse = categoryService.getAllCategoriesWithoutTotal(page, size, sortBy, sortOrder);
+        }
         return ResponseEntity.ok(categoryResponse);
     }
 
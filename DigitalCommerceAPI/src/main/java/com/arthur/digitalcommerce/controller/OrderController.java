@@ -1,14 +1,29 @@
 package com.arthur.digitalcommerce.controller;
 
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.exceptions.ConcurrentUpdateException;
+import com.arthur.digitalcommerce.exceptions.IdempotencyKeyReuseException;
+import com.arthur.digitalcommerce.payload.CheckoutStatusDTO;
+import com.arthur.digitalcommerce.payload.OrderRequestDTO;
+import com.arthur.digitalcommerce.service.IdempotencyService;
+import com.arthur.digitalcommerce.service.IdempotencyService.IdempotentResponse;
 import com.arthur.digitalcommerce.service.OrderService;
+import com.arthur.digitalcommerce.util.AuthUtil;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.exceptions.MPException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mercadopago.resources.preference.Preference;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -18,13 +33,36 @@ public class OrderController {
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
 
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final AuthUtil authUtil;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * Com o header {@value IdempotencyService#HEADER}, repetições da mesma requisição devolvem a preferência
+     * já criada em vez de criar outro pedido.
+     */
     @PostMapping("/create-preference/{addressId}")
-    public ResponseEntity<?> createPreference(@PathVariable Long addressId) {
+    public ResponseEntity<?> createPreference(@PathVariable Long addressId,
+                                              @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            IdempotencyService.validateKey(idempotencyKey);
+        }
         try {
-            Preference preference = orderService.createPaymentPreference(addressId);
-            return ResponseEntity.ok(preference);
+            if (idempotencyKey == null) {
+                Preference preference = orderService.createPaymentPreference(addressId);
+                return ResponseEntity.ok(preference);
+            }
+
+            IdempotentResponse response = idempotencyService.execute(authUtil.loggedInUserId(), idempotencyKey,
+                    "POST /api/orders/create-preference/" + addressId,
+                    () -> orderService.createPaymentPreference(addressId));
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(IdempotencyService.REPLAYED_HEADER, String.valueOf(response.replayed()))
+                    .body(response.body());
 
+        } catch (ConcurrentUpdateException | IdempotencyKeyReuseException e) {
+            throw e;
         } catch (MPException | MPApiException e) {
             logger.error("Error creating Mercado Pago preference: {}", e.getMessage());
             return ResponseEntity.badRequest().body("Error communicating with payment gateway.");
@@ -33,4 +71,54 @@ public class OrderController {
             return ResponseEntity.status(500).body("An internal server error occurred.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Checkout assíncrono: responde 202 assim que o pedido e a reserva de estoque estão gravados.
+     * A preferência é criada em segundo plano; acompanhe por {@code /status} ou {@code /status/stream}.
+     */
+    @PostMapping
+    public ResponseEntity<?> startCheckout(@RequestBody OrderRequestDTO request,
+                                           @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        Long addressId = request.getAddressId();
+        if (addressId == null) {
+            throw new APIException("addressId is required.");
+        }
+        if (idempotencyKey == null) {
+            CheckoutStatusDTO status = orderService.startCheckout(addressId);
+            return ResponseEntity.accepted().location(statusUri(status.getOrderId())).body(status);
+        }
+
+        IdempotencyService.validateKey(idempotencyKey);
+        IdempotentResponse response = idempotencyService.execute(authUtil.loggedInUserId(), idempotencyKey,
+                "POST /api/orders " + addressId, () -> orderService.startCheckout(addressId));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(statusUri(replayedOrderId(response.body())))
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(IdempotencyService.REPLAYED_HEADER, String.valueOf(response.replayed()))
+                .body(response.body());
+    }
+
+    @GetMapping("/{orderId}/status")
+    public ResponseEntity<CheckoutStatusDTO> getCheckoutStatus(@PathVariable Long orderId) {
+        return ResponseEntity.ok(orderService.getCheckoutStatus(orderId));
+    }
+
+    // Um único evento (PREFERENCE_READY ou FAILED) com o status do checkout, e o stream é fechado.
+    @GetMapping(value = "/{orderId}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCheckoutStatus(@PathVariable Long orderId) {
+        return orderService.streamCheckoutStatus(orderId);
+    }
+
+    // A resposta guardada pelo IdempotencyService é o CheckoutStatusDTO em JSON; dela sai o pedido do Location.
+    private Long replayedOrderId(String body) {
+        try {
+            return objectMapper.readValue(body, CheckoutStatusDTO.class).getOrderId();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored checkout response is not a CheckoutStatusDTO.", e);
+        }
+    }
+
+    private static URI statusUri(Long orderId) {
+        return URI.create("/api/orders/" + orderId + "/status");
+    }
+}
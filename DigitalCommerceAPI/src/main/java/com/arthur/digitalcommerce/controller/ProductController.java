@@ -47,14 +47,25 @@ public class ProductController {
 
     /**
      * GET (Listar): Retorna 200 OK.
+     * Com 'cursor' (o nextCursor da resposta anterior) pagina por keyset e ignora pageNumber.
+     * includeTotal=false só dispensa o COUNT, nos dois modos.
      */
     @GetMapping("/public/products")
     public ResponseEntity<ProductResponse> getAllProducts(
             @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
             @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCTS_BY, required = false) String sortBy,
-            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
-        ProductResponse productResponse = productService.getAllProducts(pageNumber, pageSize, sortBy, sortOrder);
+            @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "includeTotal", defaultValue = AppConstants.INCLUDE_TOTAL, required = false) boolean includeTotal) {
+        ProductResponse productResponse;
+        if (cursor != null) {
+            productResponse = productService.getAllProductsByCursor(cursor, pageSize, sortBy, sortOrder, includeTotal);
+        } else if (includeTotal) {
+            productResponse = productService.getAllProducts(pageNumber, pageSize, sortBy, sortOrder);
+        } else {
+            productResponse = productService.getAllProductsWithoutTotal(pageNumber, pageSize, sortBy, sortOrder);
+        }
 
         // CORRIGIDO: Usa o atalho .ok() para consistência
         return ResponseEntity.ok(productResponse);
@@ -77,13 +88,14 @@ public class ProductController {
 
     /**
      * GET (Buscar): Retorna 200 OK.
+     * Por padrão ordena por relevância (nome e descrição); aceita também os campos do produto em sortBy.
      */
     @GetMapping("/public/products/search")
     public ResponseEntity<ProductResponse> searchProductsByKeyword(
             @RequestParam("keyword") String keyword,
             @RequestParam(name = "pageNumber", defaultValue = AppConstants.PAGE_NUMBER, required = false) Integer pageNumber,
             @RequestParam(name = "pageSize", defaultValue = AppConstants.PAGE_SIZE, required = false) Integer pageSize,
-            @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_PRODUCTS_BY, required = false) String sortBy,
+            @RequestParam(name = "sortBy", defaultValue = AppConstants.SORT_SEARCH_BY, required = false) String sortBy,
             @RequestParam(name = "sortOrder", defaultValue = AppConstants.SORT_DIR, required = false) String sortOrder) {
         ProductResponse productResponse = productService.searchProductByKeyword(keyword, pageNumber, pageSize, sortBy, sortOrder);
 
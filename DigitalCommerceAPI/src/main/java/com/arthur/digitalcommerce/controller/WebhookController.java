@@ -1,7 +1,7 @@
 package com.arthur.digitalcommerce.controller;
 
 import com.arthur.digitalcommerce.payload.mercadopago.MercadoPagoNotificationDTO;
-import com.arthur.digitalcommerce.service.WebhookService;
+import com.arthur.digitalcommerce.service.WebhookQueue;
 import lombok.RequiredArgsConstructor; // Importar
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,7 +18,10 @@ public class WebhookController {
 
     private static final Logger logger = LoggerFactory.getLogger(WebhookController.class);
 
-    private final WebhookService webhookService; // Adicionado 'final'
+    private final WebhookQueue webhookQueue;
+
+    // Só enfileira e responde: o Mercado Pago reenvia notificações que demoram, e o processamento
+    // (consulta ao gateway + escrita no banco) fica com o WebhookQueueWorker.
 
     @PostMapping("/mercadopago")
     public ResponseEntity<Void> handleMercadoPagoNotification(@RequestBody MercadoPagoNotificationDTO notification) {
@@ -29,7 +32,7 @@ public class WebhookController {
                 ( "payment.updated".equals(notification.getAction()) || "payment.created".equals(notification.getAction()) )) {
 
             String paymentId = notification.getData().getId();
-            webhookService.processPaymentNotification(paymentId);
+            webhookQueue.enqueue(paymentId, notification.getAction());
         }
 
         return ResponseEntity.ok().build();
@@ -0,0 +1,16 @@
+package com.arthur.digitalcommerce.events;
+
+import com.arthur.digitalcommerce.model.Product;
+
+public class ProductCreatedEvent {
+
+    private final Product product;
+
+    public ProductCreatedEvent(Product product) {
+        this.product = product;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+}
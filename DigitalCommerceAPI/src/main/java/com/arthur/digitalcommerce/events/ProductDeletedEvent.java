@@ -4,11 +4,22 @@ public class ProductDeletedEvent {
 
     private final Long productId;
 
+    private final Long categoryId;
+
     public ProductDeletedEvent(Long productId) {
+        this(productId, null);
+    }
+
+    public ProductDeletedEvent(Long productId, Long categoryId) {
         this.productId = productId;
+        this.categoryId = categoryId;
     }
 
     public Long getProductId() {
         return productId;
     }
-}
\ No newline at end of file
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+}
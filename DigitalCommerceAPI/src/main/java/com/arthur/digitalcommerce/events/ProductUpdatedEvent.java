@@ -6,11 +6,47 @@ public class ProductUpdatedEvent {
 
     private final Product product;
 
+    // Categoria antes da atualização, para invalidar também a listagem de onde o produto saiu.
+    private final Long previousCategoryId;
+
+    // Se o preço vigente (preço ou preço especial ativo) mudou; só nesse caso os totais dos carrinhos são refeitos.
+    private final boolean priceChanged;
+
+    // Se a edição gravou um novo estoque; só nesse caso o lote do estoque quente é descartado.
+    private final boolean stockChanged;
+
     public ProductUpdatedEvent(Product product) {
+        this(product, null, true);
+    }
+
+    public ProductUpdatedEvent(Product product, Long previousCategoryId) {
+        this(product, previousCategoryId, true);
+    }
+
+    public ProductUpdatedEvent(Product product, Long previousCategoryId, boolean priceChanged) {
+        this(product, previousCategoryId, priceChanged, false);
+    }
+
+    public ProductUpdatedEvent(Product product, Long previousCategoryId, boolean priceChanged, boolean stockChanged) {
         this.product = product;
+        this.previousCategoryId = previousCategoryId;
+        this.priceChanged = priceChanged;
+        this.stockChanged = stockChanged;
     }
 
     public Product getProduct() {
         return product;
     }
-}
\ No newline at end of file
+
+    public Long getPreviousCategoryId() {
+        return previousCategoryId;
+    }
+
+    public boolean isPriceChanged() {
+        return priceChanged;
+    }
+
+    public boolean isStockChanged() {
+        return stockChanged;
+    }
+}
@@ -0,0 +1,10 @@
+package com.arthur.digitalcommerce.exceptions;
+
+
+public class IdempotencyKeyReuseException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public IdempotencyKeyReuseException(String message) {
+        super(message);
+    }
+}
@@ -45,6 +45,20 @@ public class MyGlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
     }
 
+    @ExceptionHandler(ConcurrentUpdateException.class)
+    public ResponseEntity<APIResponse> handleConcurrentUpdate(ConcurrentUpdateException e) {
+        logger.warn("Concurrent update conflict: {}", e.getMessage());
+        APIResponse apiResponse = new APIResponse(e.getMessage(), false);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(apiResponse);
+    }
+
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<APIResponse> handleIdempotencyKeyReuse(IdempotencyKeyReuseException e) {
+        logger.warn("Idempotency key reused: {}", e.getMessage());
+        APIResponse apiResponse = new APIResponse(e.getMessage(), false);
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(apiResponse);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<APIResponse> handleGeneralException(Exception e) {
         logger.error("Unexpected error: {}", e.getMessage(), e);
@@ -0,0 +1,32 @@
+package com.arthur.digitalcommerce.mapper;
+
+import com.arthur.digitalcommerce.model.Address;
+import com.arthur.digitalcommerce.payload.AddressDTO;
+import org.springframework.stereotype.Component;
+
+/**
+ * O usuário dono do endereço não é mapeado: AddressDTO.user é @JsonIgnore e
+ * o service associa o usuário logado.
+ */
+@Component
+public class AddressMapper {
+
+    public AddressDTO toDTO(Address address) {
+        AddressDTO addressDTO = new AddressDTO();
+        addressDTO.setAddressId(address.getAddressId());
+        addressDTO.setStreet(address.getStreet());
+        addressDTO.setBuildingName(address.getBuildingName());
+        addressDTO.setCity(address.getCity());
+        addressDTO.setState(address.getState());
+        addressDTO.setCountry(address.getCountry());
+        addressDTO.setCep(address.getCep());
+        return addressDTO;
+    }
+
+    public Address toEntity(AddressDTO addressDTO) {
+        Address address = new Address(addressDTO.getStreet(), addressDTO.getBuildingName(), addressDTO.getCity(),
+                addressDTO.getState(), addressDTO.getCountry(), addressDTO.getCep());
+        address.setAddressId(addressDTO.getAddressId());
+        return address;
+    }
+}
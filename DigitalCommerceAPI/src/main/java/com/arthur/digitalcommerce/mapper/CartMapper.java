@@ -0,0 +1,46 @@
+package com.arthur.digitalcommerce.mapper;
+
+import com.arthur.digitalcommerce.model.Cart;
+import com.arthur.digitalcommerce.model.CartItem;
+import com.arthur.digitalcommerce.payload.CartDTO;
+import com.arthur.digitalcommerce.payload.ProductDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class CartMapper {
+
+    private final ProductMapper productMapper;
+
+    /**
+     * Cada item vira um ProductDTO com a quantidade no carrinho e, se o estoque não cobrir
+     * essa quantidade, uma mensagem de aviso. O total deve estar recalculado antes da chamada.
+     */
+    public CartDTO toDTO(Cart cart) {
+        CartDTO cartDTO = new CartDTO();
+        cartDTO.setCartId(cart.getCartId());
+        if (cart.getTotalPrice() != null) {
+            cartDTO.setTotalPrice(cart.getTotalPrice().doubleValue());
+        }
+
+        List<ProductDTO> productDTOs = new ArrayList<>(cart.getCartItems().size());
+        for (CartItem item : cart.getCartItems()) {
+            ProductDTO productDTO = productMapper.toDTO(item.getProduct());
+            productDTO.setCartQuantity(item.getQuantity());
+            if (productDTO.getCartQuantity() > productDTO.getQuantityInStock()) {
+                if (productDTO.getQuantityInStock() > 0) {
+                    productDTO.setWarningMessage("Warning! Only " + productDTO.getQuantityInStock() + " units available in stock.");
+                } else {
+                    productDTO.setWarningMessage("Product out of stock! Please remove it from the cart to continue.");
+                }
+            }
+            productDTOs.add(productDTO);
+        }
+        cartDTO.setProducts(productDTOs);
+        return cartDTO;
+    }
+}
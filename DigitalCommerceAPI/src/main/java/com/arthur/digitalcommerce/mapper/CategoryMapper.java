@@ -0,0 +1,27 @@
+package com.arthur.digitalcommerce.mapper;
+
+import com.arthur.digitalcommerce.model.Category;
+import com.arthur.digitalcommerce.payload.CategoryDTO;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CategoryMapper {
+
+    public CategoryDTO toDTO(Category category) {
+        return new CategoryDTO(category.getCategoryId(), category.getCategoryName());
+    }
+
+    public Category toEntity(CategoryDTO categoryDTO) {
+        Category category = new Category();
+        category.setCategoryId(categoryDTO.getCategoryId());
+        category.setCategoryName(categoryDTO.getCategoryName());
+        return category;
+    }
+
+    // Atualização parcial: nome nulo mantém o atual. O id é definido pelo service.
+    public void updateEntity(CategoryDTO categoryDTO, Category category) {
+        if (categoryDTO.getCategoryName() != null) {
+            category.setCategoryName(categoryDTO.getCategoryName());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.arthur.digitalcommerce.mapper;
+
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.payload.ProductDTO;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mapeamento Product <-> ProductDTO escrito à mão (sem reflexão), usado nas páginas do catálogo
+ * e no carrinho. A categoria nunca é copiada do DTO: o service resolve o categoryId.
+ */
+@Component
+public class ProductMapper {
+
+    public ProductDTO toDTO(Product product) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setProductId(product.getProductId());
+        productDTO.setProductName(product.getProductName());
+        productDTO.setDescription(product.getDescription());
+        productDTO.setImage(product.getImage());
+        productDTO.setQuantityInStock(product.getQuantityInStock());
+        productDTO.setPrice(product.getPrice());
+        productDTO.setSpecialPrice(product.getSpecialPrice());
+        productDTO.setSpecialPriceActive(product.isSpecialPriceActive());
+        if (product.getCategory() != null) {
+            productDTO.setCategoryId(product.getCategory().getCategoryId());
+        }
+        return productDTO;
+    }
+
+    // As páginas do catálogo vêm da projeção, sem carregar a entidade.
+    public ProductDTO toDTO(ProductCatalogView view) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setProductId(view.productId());
+        productDTO.setProductName(view.productName());
+        productDTO.setDescription(view.description());
+        productDTO.setImage(view.image());
+        productDTO.setQuantityInStock(view.quantityInStock());
+        productDTO.setPrice(view.price());
+        productDTO.setSpecialPrice(view.specialPrice());
+        productDTO.setSpecialPriceActive(view.specialPriceActive());
+        productDTO.setCategoryId(view.categoryId());
+        return productDTO;
+    }
+
+    public Product toEntity(ProductDTO productDTO) {
+        Product product = new Product();
+        product.setProductId(productDTO.getProductId());
+        updateEntity(productDTO, product);
+        return product;
+    }
+
+    /**
+     * Atualização parcial: campos nulos no DTO mantêm o valor atual da entidade.
+     * specialPriceActive é primitivo e, como antes, sempre é copiado. O id nunca é alterado.
+     */
+    public void updateEntity(ProductDTO productDTO, Product product) {
+        if (productDTO.getProductName() != null) {
+            product.setProductName(productDTO.getProductName());
+        }
+        if (productDTO.getDescription() != null) {
+            product.setDescription(productDTO.getDescription());
+        }
+        if (productDTO.getImage() != null) {
+            product.setImage(productDTO.getImage());
+        }
+        if (productDTO.getQuantityInStock() != null) {
+            product.setQuantityInStock(productDTO.getQuantityInStock());
+        }
+        if (productDTO.getPrice() != null) {
+            product.setPrice(productDTO.getPrice());
+        }
+        if (productDTO.getSpecialPrice() != null) {
+            product.setSpecialPrice(productDTO.getSpecialPrice());
+        }
+        product.setSpecialPriceActive(productDTO.isSpecialPriceActive());
+    }
+}
@@ -31,4 +31,9 @@ public class Cart {
     private List<CartItem> cartItems = new ArrayList<>();
 
     @Column(precision = 10, scale = 2)
-    private BigDecimal totalPrice;}
+    private BigDecimal totalPrice;
+
+    // Duas abas adicionando ao mesmo carrinho: quem gravar por último recebe conflito em vez de sobrescrever.
+    @Version
+    private Long version;
+}
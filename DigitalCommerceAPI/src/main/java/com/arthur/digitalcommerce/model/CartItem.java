@@ -13,8 +13,10 @@ import java.math.BigDecimal; // <-- Adicione a importação
 @NoArgsConstructor
 @AllArgsConstructor
 public class CartItem {
+    // Sequence com alocação em blocos (V10) para que os INSERTs de itens saiam em lote JDBC.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_items_seq")
+    @SequenceGenerator(name = "cart_items_seq", sequenceName = "cart_items_cart_item_id_seq", allocationSize = 50)
     private Long cartItemId;
 
     @ManyToOne
@@ -30,6 +32,6 @@ public class CartItem {
     @Column(precision = 10, scale = 2)
     private BigDecimal discount;
 
-
-
+    @Version
+    private Long version;
 }
\ No newline at end of file
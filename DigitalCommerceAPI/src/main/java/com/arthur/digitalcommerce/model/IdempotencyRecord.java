@@ -0,0 +1,39 @@
+package com.arthur.digitalcommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Uma chave de idempotência enviada por um usuário.
+ * Enquanto a requisição original roda fica IN_PROGRESS; depois guarda a resposta (JSON) para ser repetida.
+ * As linhas são gravadas pelas consultas nativas do {@code IdempotencyKeyRepository}, nunca por persist().
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long userId;
+
+    private String idempotencyKey;
+
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    private IdempotencyStatus status;
+
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+}
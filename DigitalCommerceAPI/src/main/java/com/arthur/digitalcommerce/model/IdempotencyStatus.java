@@ -0,0 +1,6 @@
+package com.arthur.digitalcommerce.model;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -43,6 +43,10 @@ public class Order {
     private BigDecimal totalAmount;
     private String orderStatus;
 
+    // Preferência do Mercado Pago, gravada depois que o pedido já foi commitado (checkout em duas fases).
+    private String preferenceId;
+    private String paymentInitPoint;
+
     // Reference to Address
     @ManyToOne
     @JoinColumn(name = "address_id")
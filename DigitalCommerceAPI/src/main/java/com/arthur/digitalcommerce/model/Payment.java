@@ -28,6 +28,7 @@ public class Payment {
     @Size(min = 3, message = "Payment method must contain at least 4 characters")
     private String paymentMethod; // Ex: "credit_card"
 
+    @Column(unique = true)
     private String pgPaymentId;
     private String pgStatus;
     private String pgStatusDetail;
@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -18,6 +19,9 @@ import java.util.List;
 @AllArgsConstructor
 @Table(name = "products")
 @ToString
+// UPDATE só com as colunas alteradas: editar nome ou preço não regrava quantity_in_stock, que muda
+// por UPDATEs condicionais (reservas, estoque quente) fora desta entidade.
+@DynamicUpdate
 public class Product {
 
     @Id
@@ -48,10 +52,14 @@ public class Product {
     @JoinColumn(name = "category_id")
     private Category category;
 
-    @ManyToOne
+    // LAZY: o vendedor e os itens de carrinho não são usados ao exibir o produto, e carregá-los
+    // junto custava consultas extras por produto em toda leitura de carrinho.
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_id")
+    @ToString.Exclude
     private User user;
 
-    @OneToMany(mappedBy = "product", cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "product", cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    @ToString.Exclude
     private List<CartItem> products = new ArrayList<>();
 }
@@ -0,0 +1,7 @@
+package com.arthur.digitalcommerce.model;
+
+public enum ReservationStatus {
+    HELD,
+    CONFIRMED,
+    RELEASED
+}
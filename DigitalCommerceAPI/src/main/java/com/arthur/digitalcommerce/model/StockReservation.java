@@ -0,0 +1,52 @@
+package com.arthur.digitalcommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Quantidade de um produto separada para um pedido aguardando pagamento.
+ * O estoque já foi descontado do produto; a reserva diz se ele volta (RELEASED) ou não (CONFIRMED).
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "stock_reservations")
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservations_seq")
+    @SequenceGenerator(name = "stock_reservations_seq", sequenceName = "stock_reservations_seq", allocationSize = 50)
+    private Long reservationId;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id")
+    @ToString.Exclude
+    private Order order;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "product_id")
+    @ToString.Exclude
+    private Product product;
+
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status;
+
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime createdAt;
+
+    public StockReservation(Order order, Product product, Integer quantity, LocalDateTime expiresAt) {
+        this.order = order;
+        this.product = product;
+        this.quantity = quantity;
+        this.status = ReservationStatus.HELD;
+        this.expiresAt = expiresAt;
+        this.createdAt = LocalDateTime.now();
+    }
+}
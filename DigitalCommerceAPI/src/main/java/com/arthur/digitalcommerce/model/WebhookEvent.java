@@ -0,0 +1,52 @@
+package com.arthur.digitalcommerce.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notificação do Mercado Pago aguardando processamento.
+ * PENDING até um worker pegá-la (PROCESSING, com lease em 'lockedUntil'); termina DONE, ou FAILED depois
+ * de esgotar as tentativas.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "webhook_events")
+public class WebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String paymentId;
+
+    private String action;
+
+    @Enumerated(EnumType.STRING)
+    private WebhookEventStatus status;
+
+    private Integer attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime lockedUntil;
+
+    private String lastError;
+
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime processedAt;
+
+    public WebhookEvent(String paymentId, String action) {
+        LocalDateTime now = LocalDateTime.now();
+        this.paymentId = paymentId;
+        this.action = action;
+        this.status = WebhookEventStatus.PENDING;
+        this.attempts = 0;
+        this.nextAttemptAt = now;
+        this.receivedAt = now;
+    }
+}
@@ -0,0 +1,8 @@
+package com.arthur.digitalcommerce.model;
+
+public enum WebhookEventStatus {
+    PENDING,
+    PROCESSING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,17 @@
+package com.arthur.digitalcommerce.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Uma linha do PATCH em lote do carrinho: a quantidade final desejada do produto
+ * (0 remove o produto do carrinho).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartItemQuantityDTO {
+    private Long productId;
+    private Integer quantity;
+}
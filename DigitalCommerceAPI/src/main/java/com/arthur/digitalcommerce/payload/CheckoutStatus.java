@@ -0,0 +1,12 @@
+package com.arthur.digitalcommerce.payload;
+
+
+public enum CheckoutStatus {
+    PREFERENCE_PENDING,
+    PREFERENCE_READY,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this != PREFERENCE_PENDING;
+    }
+}
@@ -0,0 +1,22 @@
+package com.arthur.digitalcommerce.payload;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutStatusDTO {
+    private Long orderId;
+    private CheckoutStatus status;
+    private String preferenceId;
+    private String initPoint;    // URL de pagamento do Mercado Pago, quando PREFERENCE_READY
+    private String orderStatus;
+
+    @JsonIgnore
+    public boolean isTerminal() {
+        return status.isTerminal();
+    }
+}
@@ -16,4 +16,6 @@ public class ProductResponse {
     private Long totalElements;
     private Integer totalPages;
     private boolean lastPage;
+    // Cursor da próxima página (paginação por keyset); nulo na última página.
+    private String nextCursor;
 }
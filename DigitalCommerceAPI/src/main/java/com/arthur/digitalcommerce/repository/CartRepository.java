@@ -3,9 +3,14 @@ package com.arthur.digitalcommerce.repository;
 import com.arthur.digitalcommerce.model.Cart;
 import com.arthur.digitalcommerce.model.Category;
 import com.arthur.digitalcommerce.model.User;
+import com.arthur.digitalcommerce.repository.projection.CartTotalMismatch;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,5 +30,62 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
 
     Optional<Cart> findByUserEmail(String email);
 
+    // Leitura do carrinho em uma única consulta: itens, produtos e categorias no mesmo SELECT.
+    @Query("SELECT c FROM Cart c JOIN FETCH c.user u " +
+            "LEFT JOIN FETCH c.cartItems ci LEFT JOIN FETCH ci.product p LEFT JOIN FETCH p.category " +
+            "WHERE u.email = :email")
+    Optional<Cart> findWithItemsByUserEmail(@Param("email") String email);
+
+    // Total de uma linha do carrinho em SQL, com a mesma regra do CartPricing (aliases ci = cart_items, p = products).
+    String CART_LINE_TOTAL_SQL = "ci.quantity " +
+            "* (CASE WHEN p.special_price_active AND p.special_price IS NOT NULL THEN p.special_price ELSE p.price END) " +
+            "* (1 - GREATEST(COALESCE(ci.discount, 0), 0) / 100)";
+
+    // Recalcula em SQL o total de todos os carrinhos e devolve só os divergentes.
+    @Query(value = "SELECT c.cart_id AS cartId, c.total_price AS storedTotal, " +
+            "ROUND(COALESCE(SUM(l.line_total), 0), 2) AS expectedTotal " +
+            "FROM carts c " +
+            "LEFT JOIN (SELECT ci.cart_id, " + CART_LINE_TOTAL_SQL + " AS line_total " +
+            "           FROM cart_items ci JOIN products p ON p.product_id = ci.product_id) l ON l.cart_id = c.cart_id " +
+            "GROUP BY c.cart_id, c.total_price " +
+            "HAVING c.total_price IS DISTINCT FROM ROUND(COALESCE(SUM(l.line_total), 0), 2) " +
+            "ORDER BY c.cart_id",
+            nativeQuery = true)
+    List<CartTotalMismatch> findTotalMismatches();
+
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalPrice = :totalPrice, c.version = c.version + 1 WHERE c.cartId = :cartId")
+    int updateTotalPrice(@Param("cartId") Long cartId, @Param("totalPrice") BigDecimal totalPrice);
+
+    // Carrinhos que contêm o produto, em lotes por id (keyset), para o reprecificador.
+    @Query("SELECT DISTINCT ci.cart.cartId FROM CartItem ci " +
+            "WHERE ci.product.productId = :productId AND ci.cart.cartId > :afterCartId ORDER BY ci.cart.cartId")
+    List<Long> findCartIdsByProductIdAfter(@Param("productId") Long productId, @Param("afterCartId") Long afterCartId,
+                                           Pageable batch);
+
+    // Recalcula o total de um lote de carrinhos em um único UPDATE, sem carregar entidades.
+    // As atualizações em massa também incrementam a versão, para não serem sobrescritas por uma escrita concorrente.
+    @Modifying
+    @Query(value = "UPDATE carts c SET version = c.version + 1, total_price = COALESCE(" +
+            "(SELECT ROUND(SUM(" + CART_LINE_TOTAL_SQL + "), 2) " +
+            " FROM cart_items ci JOIN products p ON p.product_id = ci.product_id " +
+            " WHERE ci.cart_id = c.cart_id), 0) " +
+            "WHERE c.cart_id IN (:cartIds)",
+            nativeQuery = true)
+    int recalculateTotals(@Param("cartIds") List<Long> cartIds);
+
+    // Tira o produto de todos os carrinhos e recalcula seus totais em um único comando.
+    // O UPDATE enxerga cart_items de antes do DELETE (mesmo snapshot), por isso exclui o produto explicitamente.
+    // Devolve quantos carrinhos foram afetados.
+    @Modifying
+    @Query(value = "WITH removed AS (DELETE FROM cart_items WHERE product_id = :productId RETURNING cart_id) " +
+            "UPDATE carts c SET version = c.version + 1, total_price = COALESCE(" +
+            "(SELECT ROUND(SUM(" + CART_LINE_TOTAL_SQL + "), 2) " +
+            " FROM cart_items ci JOIN products p ON p.product_id = ci.product_id " +
+            " WHERE ci.cart_id = c.cart_id AND ci.product_id <> :productId), 0) " +
+            "WHERE c.cart_id IN (SELECT cart_id FROM removed)",
+            nativeQuery = true)
+    int removeProductFromAllCarts(@Param("productId") Long productId);
+
 
 }
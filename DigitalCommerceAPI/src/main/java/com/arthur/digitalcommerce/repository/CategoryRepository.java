@@ -1,12 +1,17 @@
 package com.arthur.digitalcommerce.repository;
 
 import com.arthur.digitalcommerce.model.Category;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
 
-public interface CategoryRepository extends JpaRepository<Category, Long> {
+public interface CategoryRepository extends JpaRepository<Category, Long>, CategoryRepositoryCustom {
 
     Category findByCategoryName(String categoryName);
 
+    // Página sem o COUNT: o Slice lê um item a mais só para saber se existe próxima.
+    Slice<Category> findSliceBy(Pageable pageable);
+
 }
@@ -0,0 +1,18 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.Category;
+
+import java.util.List;
+import java.util.Set;
+
+public interface CategoryRepositoryCustom {
+
+    /** Campos aceitos na paginação por keyset (a PK e o índice único de category_name). */
+    Set<String> KEYSET_SORT_FIELDS = Set.of("categoryId", "categoryName");
+
+    /**
+     * Próxima fatia de categorias depois de (lastValue, lastId) na ordenação pedida.
+     * Com {@code lastId} nulo devolve a primeira fatia.
+     */
+    List<Category> findAfter(String sortBy, boolean ascending, String lastValue, Long lastId, int limit);
+}
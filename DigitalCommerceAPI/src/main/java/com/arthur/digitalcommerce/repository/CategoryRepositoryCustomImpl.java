@@ -0,0 +1,24 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.model.Category;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+
+public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Category> findAfter(String sortBy, boolean ascending, String lastValue, Long lastId, int limit) {
+        if (!KEYSET_SORT_FIELDS.contains(sortBy)) {
+            throw new APIException("Cursor pagination supports sortBy: " + String.join(", ", KEYSET_SORT_FIELDS));
+        }
+        Object typedValue = "categoryName".equals(sortBy) ? lastValue : lastId;
+        return KeysetQueries.seek(entityManager, Category.class, "SELECT c FROM Category c",
+                "c.categoryId", "c." + sortBy, ascending, typedValue, lastId, limit);
+    }
+}
@@ -0,0 +1,48 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    // Reserva a chave para esta requisição. Só uma requisição concorrente ganha (a constraint única decide);
+    // uma chave já expirada, ou presa em IN_PROGRESS desde antes de :staleBefore (instância caiu), é reaproveitada.
+    // Devolve 1 se a chave ficou com esta requisição.
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, status, created_at, expires_at) " +
+            "VALUES (:userId, :key, :requestHash, 'IN_PROGRESS', :now, :expiresAt) " +
+            "ON CONFLICT (user_id, idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+            "  status = 'IN_PROGRESS', response_body = NULL, created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+            "WHERE idempotency_keys.expires_at < :now " +
+            "   OR (idempotency_keys.status = 'IN_PROGRESS' AND idempotency_keys.created_at < :staleBefore)",
+            nativeQuery = true)
+    int claim(@Param("userId") Long userId, @Param("key") String key, @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt,
+              @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = com.arthur.digitalcommerce.model.IdempotencyStatus.COMPLETED, " +
+            "r.responseBody = :responseBody WHERE r.userId = :userId AND r.idempotencyKey = :key " +
+            "AND r.status = com.arthur.digitalcommerce.model.IdempotencyStatus.IN_PROGRESS")
+    int complete(@Param("userId") Long userId, @Param("key") String key, @Param("responseBody") String responseBody);
+
+    // A requisição original falhou: libera a chave para que o cliente possa tentar de novo.
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.userId = :userId AND r.idempotencyKey = :key " +
+            "AND r.status = com.arthur.digitalcommerce.model.IdempotencyStatus.IN_PROGRESS")
+    int release(@Param("userId") Long userId, @Param("key") String key);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
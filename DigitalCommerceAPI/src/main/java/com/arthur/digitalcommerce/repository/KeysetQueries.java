@@ -0,0 +1,82 @@
+package com.arthur.digitalcommerce.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Monta consultas de paginação por keyset (seek): em vez de OFFSET, filtra pelos itens depois da
+ * chave (campo de ordenação, id) do último item da página anterior. Com um índice em (campo, id)
+ * o Postgres desce direto na posição, qualquer que seja a profundidade da página.
+ * <p>
+ * Os caminhos de campo são interpolados no JPQL, então só podem vir de listas fixas dos repositórios.
+ */
+final class KeysetQueries {
+
+    private KeysetQueries() {
+    }
+
+    /**
+     * Ordem: campo (nulos por último, nas duas direções) e depois o id. A fatia sai de até duas consultas
+     * indexadas: primeiro os valores não nulos depois da chave; se faltarem linhas, a cauda de valores nulos
+     * em ordem de id. Um cursor com {@code lastValue} nulo (e {@code lastId} preenchido) já está na cauda.
+     *
+     * @param select    cláusulas SELECT e FROM, sem WHERE
+     * @param idPath    caminho do id (desempate e chave única), ex.: {@code p.productId}
+     * @param sortPath  caminho do campo de ordenação; pode ser o próprio id
+     * @param lastValue valor do campo no último item, ou {@code null} na primeira página e na cauda de nulos
+     * @param lastId    id do último item, ou {@code null} na primeira página
+     */
+    static <T> List<T> seek(EntityManager entityManager, Class<T> type, String select, String idPath, String sortPath,
+                            boolean ascending, Object lastValue, Long lastId, int limit) {
+        String comparison = ascending ? ">" : "<";
+        String direction = ascending ? "ASC" : "DESC";
+
+        if (sortPath.equals(idPath)) {
+            StringBuilder jpql = new StringBuilder(select);
+            if (lastId != null) {
+                jpql.append(" WHERE ").append(idPath).append(' ').append(comparison).append(" :lastId");
+            }
+            jpql.append(" ORDER BY ").append(idPath).append(' ').append(direction);
+            TypedQuery<T> query = entityManager.createQuery(jpql.toString(), type).setMaxResults(limit);
+            if (lastId != null) {
+                query.setParameter("lastId", lastId);
+            }
+            return query.getResultList();
+        }
+
+        List<T> rows = new ArrayList<>();
+        boolean inNullTail = lastId != null && lastValue == null;
+        if (!inNullTail) {
+            StringBuilder jpql = new StringBuilder(select).append(" WHERE ").append(sortPath).append(" IS NOT NULL");
+            if (lastId != null) {
+                // Comparação de tuplas: vira (campo, id) > (?, ?) no SQL e usa o índice composto.
+                jpql.append(" AND (").append(sortPath).append(", ").append(idPath).append(") ")
+                        .append(comparison).append(" (:lastValue, :lastId)");
+            }
+            jpql.append(" ORDER BY ").append(sortPath).append(' ').append(direction)
+                    .append(", ").append(idPath).append(' ').append(direction);
+            TypedQuery<T> query = entityManager.createQuery(jpql.toString(), type).setMaxResults(limit);
+            if (lastId != null) {
+                query.setParameter("lastValue", lastValue);
+                query.setParameter("lastId", lastId);
+            }
+            rows.addAll(query.getResultList());
+        }
+        if (rows.size() < limit) {
+            StringBuilder jpql = new StringBuilder(select).append(" WHERE ").append(sortPath).append(" IS NULL");
+            if (inNullTail) {
+                jpql.append(" AND ").append(idPath).append(' ').append(comparison).append(" :lastId");
+            }
+            jpql.append(" ORDER BY ").append(idPath).append(' ').append(direction);
+            TypedQuery<T> query = entityManager.createQuery(jpql.toString(), type).setMaxResults(limit - rows.size());
+            if (inNullTail) {
+                query.setParameter("lastId", lastId);
+            }
+            rows.addAll(query.getResultList());
+        }
+        return rows;
+    }
+}
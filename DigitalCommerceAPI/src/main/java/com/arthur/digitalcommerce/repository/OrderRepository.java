@@ -1,10 +1,43 @@
 package com.arthur.digitalcommerce.repository;
 
 import com.arthur.digitalcommerce.model.Order;
+import com.arthur.digitalcommerce.repository.projection.OrderCheckoutView;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-}
\ No newline at end of file
+    // Serializa o webhook com o sweeper de reservas no mesmo pedido.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.orderId = :orderId")
+    Optional<Order> findByIdForUpdate(@Param("orderId") Long orderId);
+
+    // Status do checkout do pedido do usuário (polling e SSE); sempre uma consulta nova, nunca a entidade em cache.
+    @Query("SELECT new com.arthur.digitalcommerce.repository.projection.OrderCheckoutView(" +
+            "o.orderId, o.orderStatus, o.preferenceId, o.paymentInitPoint) FROM Order o " +
+            "WHERE o.orderId = :orderId AND o.email = :email")
+    Optional<OrderCheckoutView> findCheckoutView(@Param("orderId") Long orderId, @Param("email") String email);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = 'EXPIRED' WHERE o.orderId IN :orderIds AND o.orderStatus = 'PENDING_PAYMENT'")
+    int markExpired(@Param("orderIds") List<Long> orderIds);
+
+    // Resultado da segunda fase do checkout (chamada ao Mercado Pago, fora da transação do pedido).
+    @Modifying
+    @Query("UPDATE Order o SET o.preferenceId = :preferenceId, o.paymentInitPoint = :initPoint WHERE o.orderId = :orderId")
+    int attachPreference(@Param("orderId") Long orderId, @Param("preferenceId") String preferenceId,
+                         @Param("initPoint") String initPoint);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.orderStatus = 'CHECKOUT_FAILED' WHERE o.orderId = :orderId AND o.orderStatus = 'PENDING_PAYMENT'")
+    int markCheckoutFailed(@Param("orderId") Long orderId);
+}
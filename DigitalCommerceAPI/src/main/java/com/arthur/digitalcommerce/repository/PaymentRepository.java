@@ -4,8 +4,11 @@ import com.arthur.digitalcommerce.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long>{
 
+    // pg_payment_id é único (V17): um pagamento do Mercado Pago tem no máximo uma linha.
+    Optional<Payment> findByPgPaymentId(String pgPaymentId);
 }
@@ -2,21 +2,135 @@ package com.arthur.digitalcommerce.repository;
 
 import com.arthur.digitalcommerce.model.Category;
 import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import com.arthur.digitalcommerce.repository.projection.ProductStockView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     Page<Product> findByCategoryOrderByPriceAsc(Category category, Pageable pageDetails);
 
     Page<Product> findByProductNameLikeIgnoreCase(String keyword, Pageable pageDetails);
 
     boolean existsByProductNameAndCategory(String productName, Category category);
 
+    // ======================================================= //
+    // CATÁLOGO PÚBLICO (read model, sem carregar entidades)   //
+    // ======================================================= //
 
+    @Query(value = "SELECT new com.arthur.digitalcommerce.repository.projection.ProductCatalogView(" +
+            "p.productId, p.productName, p.image, p.description, p.quantityInStock, " +
+            "p.price, p.specialPrice, p.specialPriceActive, c.categoryId) " +
+            "FROM Product p LEFT JOIN p.category c",
+            countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductCatalogView> findCatalogPage(Pageable pageDetails);
+
+    // Mesma página sem o COUNT: o Slice lê um item a mais só para saber se existe próxima.
+    @Query("SELECT new com.arthur.digitalcommerce.repository.projection.ProductCatalogView(" +
+            "p.productId, p.productName, p.image, p.description, p.quantityInStock, " +
+            "p.price, p.specialPrice, p.specialPriceActive, c.categoryId) " +
+            "FROM Product p LEFT JOIN p.category c")
+    Slice<ProductCatalogView> findCatalogSlice(Pageable pageDetails);
+
+    @Query(value = "SELECT new com.arthur.digitalcommerce.repository.projection.ProductCatalogView(" +
+            "p.productId, p.productName, p.image, p.description, p.quantityInStock, " +
+            "p.price, p.specialPrice, p.specialPriceActive, c.categoryId) " +
+            "FROM Product p JOIN p.category c WHERE c.categoryId = :categoryId ORDER BY p.price ASC",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category.categoryId = :categoryId")
+    Page<ProductCatalogView> findCatalogPageByCategoryId(@Param("categoryId") Long categoryId, Pageable pageDetails);
+
+    @Query(value = "SELECT new com.arthur.digitalcommerce.repository.projection.ProductCatalogView(" +
+            "p.productId, p.productName, p.image, p.description, p.quantityInStock, " +
+            "p.price, p.specialPrice, p.specialPriceActive, c.categoryId) " +
+            "FROM Product p LEFT JOIN p.category c WHERE LOWER(p.productName) LIKE LOWER(:keyword)",
+            countQuery = "SELECT COUNT(p) FROM Product p WHERE LOWER(p.productName) LIKE LOWER(:keyword)")
+    Page<ProductCatalogView> findCatalogPageByKeyword(@Param("keyword") String keyword, Pageable pageDetails);
+
+    // Carga em lotes por id (keyset), usada para montar o índice de busca em memória.
+    @Query("SELECT new com.arthur.digitalcommerce.repository.projection.ProductCatalogView(" +
+            "p.productId, p.productName, p.image, p.description, p.quantityInStock, " +
+            "p.price, p.specialPrice, p.specialPriceActive, c.categoryId) " +
+            "FROM Product p LEFT JOIN p.category c WHERE p.productId > :afterId ORDER BY p.productId")
+    List<ProductCatalogView> findCatalogBatchAfter(@Param("afterId") Long afterId, Pageable batch);
+
+    @Query("SELECT new com.arthur.digitalcommerce.repository.projection.ProductCatalogView(" +
+            "p.productId, p.productName, p.image, p.description, p.quantityInStock, " +
+            "p.price, p.specialPrice, p.specialPriceActive, c.categoryId) " +
+            "FROM Product p JOIN p.category c WHERE c.categoryId = :categoryId")
+    List<ProductCatalogView> findCatalogByCategoryId(@Param("categoryId") Long categoryId);
+
+    // Estoque de todos os produtos de um carrinho em uma única consulta (checkout).
+    @Query("SELECT new com.arthur.digitalcommerce.repository.projection.ProductStockView(" +
+            "p.productId, p.productName, p.quantityInStock) FROM Product p WHERE p.productId IN :productIds")
+    List<ProductStockView> findStockByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    // Reserva atômica: só desconta se houver estoque suficiente. Devolve 0 quando não há.
+    @Modifying
+    @Query("UPDATE Product p SET p.quantityInStock = p.quantityInStock - :quantity " +
+            "WHERE p.productId = :productId AND p.quantityInStock >= :quantity")
+    int decrementStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("UPDATE Product p SET p.quantityInStock = p.quantityInStock + :quantity WHERE p.productId = :productId")
+    int incrementStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    // Estoque definido pelo admin: só grava se ninguém mexeu no estoque desde a leitura. Devolve 0 quando mexeu.
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.quantityInStock = :newStock " +
+            "WHERE p.productId = :productId AND p.quantityInStock = :expectedStock")
+    int replaceStock(@Param("productId") Long productId, @Param("expectedStock") int expectedStock,
+                     @Param("newStock") int newStock);
+
+    // Tira até :max unidades do estoque para o contador em memória (HotStockCounters) e devolve quantas tirou.
+    // Null quando o produto não existe.
+    @Query(value = "UPDATE products p SET quantity_in_stock = p.quantity_in_stock - l.leased " +
+            "FROM (SELECT product_id, LEAST(quantity_in_stock, :max) AS leased FROM products " +
+            "      WHERE product_id = :productId FOR UPDATE) l " +
+            "WHERE p.product_id = l.product_id RETURNING l.leased",
+            nativeQuery = true)
+    Integer leaseStock(@Param("productId") Long productId, @Param("max") int max);
+
+    // Devolve ao estoque as sobras de vários produtos em um único UPDATE (arrays paralelos).
+    @Modifying
+    @Query(value = "UPDATE products p SET quantity_in_stock = p.quantity_in_stock + v.quantity " +
+            "FROM unnest(CAST(:productIds AS bigint[]), CAST(:quantities AS integer[])) AS v(product_id, quantity) " +
+            "WHERE p.product_id = v.product_id",
+            nativeQuery = true)
+    int restock(@Param("productIds") Long[] productIds, @Param("quantities") Integer[] quantities);
+
+    // Busca nativa do Postgres (V8): 'rank' fica disponível para ordenação via Pageable
+    // (Sort.by(DESC, "rank")), assim como os aliases das colunas do catálogo.
+    @Query(value = "SELECT r.product_id AS productId, r.product_name AS productName, r.image AS image, " +
+            "r.description AS description, r.quantity_in_stock AS quantityInStock, r.price AS price, " +
+            "r.special_price AS specialPrice, r.special_price_active AS specialPriceActive, r.category_id AS categoryId " +
+            "FROM (SELECT p.*, ts_rank(p.search_vector, websearch_to_tsquery('portuguese', f_unaccent(:keyword))) AS rank " +
+            "      FROM products p " +
+            "      WHERE p.search_vector @@ websearch_to_tsquery('portuguese', f_unaccent(:keyword))) r",
+            countQuery = "SELECT COUNT(*) FROM products p " +
+                    "WHERE p.search_vector @@ websearch_to_tsquery('portuguese', f_unaccent(:keyword))",
+            nativeQuery = true)
+    Page<ProductCatalogView> searchCatalogByFullText(@Param("keyword") String keyword, Pageable pageDetails);
+
+    // Fallback para erros de digitação: similaridade de trigramas entre a busca e as palavras do nome.
+    @Query(value = "SELECT r.product_id AS productId, r.product_name AS productName, r.image AS image, " +
+            "r.description AS description, r.quantity_in_stock AS quantityInStock, r.price AS price, " +
+            "r.special_price AS specialPrice, r.special_price_active AS specialPriceActive, r.category_id AS categoryId " +
+            "FROM (SELECT p.*, word_similarity(f_unaccent(lower(:keyword)), f_unaccent(lower(p.product_name))) AS rank " +
+            "      FROM products p " +
+            "      WHERE f_unaccent(lower(:keyword)) <% f_unaccent(lower(p.product_name))) r",
+            countQuery = "SELECT COUNT(*) FROM products p " +
+                    "WHERE f_unaccent(lower(:keyword)) <% f_unaccent(lower(p.product_name))",
+            nativeQuery = true)
+    Page<ProductCatalogView> searchCatalogBySimilarity(@Param("keyword") String keyword, Pageable pageDetails);
 
 }
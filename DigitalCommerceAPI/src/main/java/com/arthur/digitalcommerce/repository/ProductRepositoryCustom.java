@@ -0,0 +1,18 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+
+import java.util.List;
+import java.util.Set;
+
+public interface ProductRepositoryCustom {
+
+    /** Campos aceitos na paginação por keyset (cada um com índice (campo, product_id), ver V9). */
+    Set<String> KEYSET_SORT_FIELDS = Set.of("productId", "productName", "price");
+
+    /**
+     * Próxima fatia do catálogo depois do produto (lastValue, lastId) na ordenação pedida.
+     * Com {@code lastId} nulo devolve a primeira fatia.
+     */
+    List<ProductCatalogView> findCatalogAfter(String sortBy, boolean ascending, String lastValue, Long lastId, int limit);
+}
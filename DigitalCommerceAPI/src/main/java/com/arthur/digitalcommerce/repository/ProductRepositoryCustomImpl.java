@@ -0,0 +1,39 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private static final String CATALOG_SELECT = "SELECT new com.arthur.digitalcommerce.repository.projection.ProductCatalogView(" +
+            "p.productId, p.productName, p.image, p.description, p.quantityInStock, " +
+            "p.price, p.specialPrice, p.specialPriceActive, c.categoryId) " +
+            "FROM Product p LEFT JOIN p.category c";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductCatalogView> findCatalogAfter(String sortBy, boolean ascending, String lastValue, Long lastId, int limit) {
+        if (!KEYSET_SORT_FIELDS.contains(sortBy)) {
+            throw new APIException("Cursor pagination supports sortBy: " + String.join(", ", KEYSET_SORT_FIELDS));
+        }
+        Object typedValue;
+        try {
+            typedValue = lastId == null || lastValue == null ? null : switch (sortBy) {
+                case "price" -> new BigDecimal(lastValue);
+                case "productName" -> lastValue;
+                default -> lastId;
+            };
+        } catch (NumberFormatException e) {
+            throw new APIException("Invalid cursor.");
+        }
+        return KeysetQueries.seek(entityManager, ProductCatalogView.class, CATALOG_SELECT,
+                "p.productId", "p." + sortBy, ascending, typedValue, lastId, limit);
+    }
+}
@@ -0,0 +1,46 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.ReservationStatus;
+import com.arthur.digitalcommerce.model.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to WHERE r.order.orderId = :orderId AND r.status = :from")
+    int updateStatus(@Param("orderId") Long orderId, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+
+    boolean existsByOrderOrderIdAndStatus(Long orderId, ReservationStatus status);
+
+    // Pedidos com reservas a liberar (expiradas ou de pagamento recusado). Trava as linhas de 'orders'
+    // pulando as já travadas, para que várias instâncias varram em paralelo sem disputar os mesmos pedidos.
+    @Query(value = "SELECT o.order_id FROM orders o " +
+            "WHERE o.order_id IN (SELECT r.order_id FROM stock_reservations r JOIN orders ro ON ro.order_id = r.order_id " +
+            "                     WHERE r.status = 'HELD' AND (r.expires_at < :now OR ro.order_status = 'PAYMENT_FAILED')) " +
+            "ORDER BY o.order_id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Long> claimOrdersWithReleasableHolds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Marca as reservas em aberto dos pedidos como liberadas e devolve as quantidades ao estoque, em um só comando.
+    // Devolve quantas reservas foram liberadas.
+    @Query(value = "WITH released AS (" +
+            "  UPDATE stock_reservations SET status = 'RELEASED' " +
+            "  WHERE order_id IN (:orderIds) AND status = 'HELD' " +
+            "  RETURNING product_id, quantity), " +
+            "restocked AS (" +
+            "  UPDATE products p SET quantity_in_stock = p.quantity_in_stock + x.quantity " +
+            "  FROM (SELECT product_id, SUM(quantity) AS quantity FROM released GROUP BY product_id) x " +
+            "  WHERE p.product_id = x.product_id " +
+            "  RETURNING p.product_id) " +
+            "SELECT COUNT(*) FROM released",
+            nativeQuery = true)
+    int releaseHolds(@Param("orderIds") List<Long> orderIds);
+}
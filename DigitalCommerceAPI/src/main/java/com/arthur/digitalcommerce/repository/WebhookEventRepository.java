@@ -0,0 +1,54 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.WebhookEvent;
+import com.arthur.digitalcommerce.repository.projection.WebhookQueueStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    // Pega até :limit eventos vencidos (ou com lease expirado: worker caiu) e os marca PROCESSING até :lockedUntil.
+    // SKIP LOCKED deixa várias instâncias drenarem a fila sem pegar o mesmo evento.
+    @Query(value = "UPDATE webhook_events SET status = 'PROCESSING', locked_until = :lockedUntil, attempts = attempts + 1 " +
+            "WHERE id IN (SELECT id FROM webhook_events " +
+            "             WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+            "                OR (status = 'PROCESSING' AND locked_until < :now) " +
+            "             ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING *",
+            nativeQuery = true)
+    List<WebhookEvent> claimDue(@Param("now") LocalDateTime now, @Param("lockedUntil") LocalDateTime lockedUntil,
+                                @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = com.arthur.digitalcommerce.model.WebhookEventStatus.DONE, " +
+            "e.processedAt = :now, e.lockedUntil = NULL WHERE e.id = :id")
+    int markDone(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = com.arthur.digitalcommerce.model.WebhookEventStatus.PENDING, " +
+            "e.nextAttemptAt = :nextAttemptAt, e.lockedUntil = NULL, e.lastError = :error WHERE e.id = :id")
+    int reschedule(@Param("id") Long id, @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = com.arthur.digitalcommerce.model.WebhookEventStatus.FAILED, " +
+            "e.processedAt = :now, e.lockedUntil = NULL, e.lastError = :error WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("error") String error);
+
+    // Profundidade da fila e a notificação mais antiga ainda não processada (para o lag).
+    @Query("SELECT new com.arthur.digitalcommerce.repository.projection.WebhookQueueStats(COUNT(e), MIN(e.receivedAt)) " +
+            "FROM WebhookEvent e WHERE e.status IN (com.arthur.digitalcommerce.model.WebhookEventStatus.PENDING, " +
+            "com.arthur.digitalcommerce.model.WebhookEventStatus.PROCESSING)")
+    WebhookQueueStats queueStats();
+
+    @Modifying
+    @Query("DELETE FROM WebhookEvent e WHERE e.status = com.arthur.digitalcommerce.model.WebhookEventStatus.DONE " +
+            "AND e.processedAt < :before")
+    int deleteDoneBefore(@Param("before") LocalDateTime before);
+}
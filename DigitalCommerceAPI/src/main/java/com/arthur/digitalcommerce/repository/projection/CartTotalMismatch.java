@@ -0,0 +1,13 @@
+package com.arthur.digitalcommerce.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Carrinho cujo total gravado difere do total recalculado a partir dos itens e dos preços atuais.
+ */
+public record CartTotalMismatch(
+        Long cartId,
+        BigDecimal storedTotal,
+        BigDecimal expectedTotal
+) {
+}
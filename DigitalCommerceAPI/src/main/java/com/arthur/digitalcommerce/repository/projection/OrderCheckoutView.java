@@ -0,0 +1,13 @@
+package com.arthur.digitalcommerce.repository.projection;
+
+/**
+ * Colunas do pedido que definem o status do checkout, lidas sem carregar a entidade.
+ * Por não passar pelo contexto de persistência, cada leitura reflete o que está no banco.
+ */
+public record OrderCheckoutView(
+        Long orderId,
+        String orderStatus,
+        String preferenceId,
+        String paymentInitPoint
+) {
+}
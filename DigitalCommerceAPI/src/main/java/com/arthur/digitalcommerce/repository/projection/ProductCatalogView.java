@@ -0,0 +1,41 @@
+package com.arthur.digitalcommerce.repository.projection;
+
+import com.arthur.digitalcommerce.model.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Read model enxuto do catálogo público.
+ * Carrega apenas as colunas de 'products' e o id da categoria, sem tocar nos CartItems
+ * nem no vendedor, para que uma página do catálogo custe uma única consulta.
+ */
+public record ProductCatalogView(
+        Long productId,
+        String productName,
+        String image,
+        String description,
+        Integer quantityInStock,
+        BigDecimal price,
+        BigDecimal specialPrice,
+        boolean specialPriceActive,
+        Long categoryId
+) {
+
+    public static ProductCatalogView of(Product product) {
+        return new ProductCatalogView(
+                product.getProductId(),
+                product.getProductName(),
+                product.getImage(),
+                product.getDescription(),
+                product.getQuantityInStock(),
+                product.getPrice(),
+                product.getSpecialPrice(),
+                product.isSpecialPriceActive(),
+                product.getCategory() != null ? product.getCategory().getCategoryId() : null);
+    }
+
+    public ProductCatalogView withQuantityInStock(Integer quantityInStock) {
+        return new ProductCatalogView(productId, productName, image, description, quantityInStock,
+                price, specialPrice, specialPriceActive, categoryId);
+    }
+}
@@ -0,0 +1,11 @@
+package com.arthur.digitalcommerce.repository.projection;
+
+/**
+ * Estoque atual de um produto, lido sem carregar a entidade (validação do checkout).
+ */
+public record ProductStockView(
+        Long productId,
+        String productName,
+        Integer quantityInStock
+) {
+}
@@ -0,0 +1,7 @@
+package com.arthur.digitalcommerce.repository.projection;
+
+import java.time.LocalDateTime;
+
+/** Eventos ainda na fila de webhooks e o recebimento do mais antigo ({@code null} com a fila vazia). */
+public record WebhookQueueStats(long depth, LocalDateTime oldestReceivedAt) {
+}
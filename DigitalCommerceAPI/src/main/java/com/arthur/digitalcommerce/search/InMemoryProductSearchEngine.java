@@ -0,0 +1,196 @@
+package com.arthur.digitalcommerce.search;
+
+import com.arthur.digitalcommerce.events.CategoryChangedEvent;
+import com.arthur.digitalcommerce.events.ProductCreatedEvent;
+import com.arthur.digitalcommerce.events.ProductDeletedEvent;
+import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import com.arthur.digitalcommerce.repository.projection.ProductStockView;
+import com.arthur.digitalcommerce.search.ProductSearchIndex.SearchHits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Busca de produtos servida pelo {@link ProductSearchIndex} em memória.
+ * <p>
+ * O índice é montado a partir da tabela 'products' logo após a subida da aplicação (em background;
+ * até lá as buscas caem no {@link JpqlProductSearchEngine}) e mantido em dia pelos eventos de produto
+ * e categoria. Os listeners rodam antes da invalidação do cache do catálogo, para que uma página
+ * recarregada já enxergue o índice atualizado.
+ * <p>
+ * O estoque muda sem esses eventos (reservas, expiração, webhook, contadores de produto quente), então o
+ * índice não o serve: o estoque da página de resultados é lido do banco em uma consulta pelos ids, e
+ * ordenar por 'quantityInStock' vai para o {@link JpqlProductSearchEngine}.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "config.search", name = "engine", havingValue = "memory", matchIfMissing = true)
+public class InMemoryProductSearchEngine implements ProductSearchEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryProductSearchEngine.class);
+
+    private static final int LOAD_BATCH_SIZE = 5_000;
+
+    private static final Map<String, Comparator<ProductCatalogView>> SORTABLE_FIELDS = Map.of(
+            "productId", Comparator.comparing(ProductCatalogView::productId),
+            "productName", nullsLast(ProductCatalogView::productName),
+            "price", nullsLast(ProductCatalogView::price),
+            "specialPrice", nullsLast(ProductCatalogView::specialPrice));
+
+    private static final String SORT_BY_STOCK = "quantityInStock";
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+    private final ProductRepository productRepository;
+    private final JpqlProductSearchEngine fallback;
+
+    private volatile boolean ready;
+    // Produtos apagados durante a carga inicial, para que um lote lido antes do DELETE não os traga de volta.
+    private final Set<Long> removedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    public InMemoryProductSearchEngine(ProductRepository productRepository, JpqlProductSearchEngine fallback) {
+        this.productRepository = productRepository;
+        this.fallback = fallback;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexInBackground() {
+        Thread loader = new Thread(this::loadIndex, "search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    void loadIndex() {
+        long start = System.currentTimeMillis();
+        try {
+            long lastId = 0L;
+            List<ProductCatalogView> batch;
+            do {
+                batch = productRepository.findCatalogBatchAfter(lastId, PageRequest.of(0, LOAD_BATCH_SIZE));
+                for (ProductCatalogView view : batch) {
+                    if (!removedWhileLoading.contains(view.productId())) {
+                        index.addIfAbsent(view);
+                    }
+                    lastId = view.productId();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+
+            ready = true;
+            removedWhileLoading.clear();
+            logger.info("Product search index loaded with {} products in {} ms.", index.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Failed to load the product search index; searches will keep using the JPQL fallback.", e);
+        }
+    }
+
+    @Override
+    public Page<ProductCatalogView> search(String keyword, int pageNumber, int pageSize, String sortBy, String sortOrder) {
+        if (!ready || SORT_BY_STOCK.equals(sortBy)) {
+            return fallback.search(keyword, pageNumber, pageSize, sortBy, sortOrder);
+        }
+        SearchHits hits = index.search(keyword, resolveOrder(sortBy, sortOrder), pageNumber * pageSize, pageSize);
+        return new PageImpl<>(withCurrentStock(hits.content()), PageRequest.of(pageNumber, pageSize), hits.totalElements());
+    }
+
+    // Troca o estoque guardado no índice pelo atual, só para os produtos da página.
+    private List<ProductCatalogView> withCurrentStock(List<ProductCatalogView> page) {
+        if (page.isEmpty()) {
+            return page;
+        }
+        Map<Long, ProductStockView> stock = productRepository.findStockByProductIdIn(
+                        page.stream().map(ProductCatalogView::productId).toList()).stream()
+                .collect(Collectors.toMap(ProductStockView::productId, Function.identity()));
+        return page.stream()
+                .map(view -> {
+                    ProductStockView current = stock.get(view.productId());
+                    return current != null ? view.withQuantityInStock(current.quantityInStock()) : view;
+                })
+                .toList();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private Comparator<ProductCatalogView> resolveOrder(String sortBy, String sortOrder) {
+        if (SORT_BY_RELEVANCE.equals(sortBy)) {
+            return null;
+        }
+        Comparator<ProductCatalogView> comparator = SORTABLE_FIELDS.get(sortBy);
+        if (comparator == null) {
+            throw new APIException("Invalid sortBy for product search: " + sortBy);
+        }
+        return sortOrder.equalsIgnoreCase("asc") ? comparator : comparator.reversed();
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<ProductCatalogView> nullsLast(
+            Function<ProductCatalogView, T> field) {
+        return Comparator.comparing(field, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    // ======================================================= //
+    // ATUALIZAÇÃO DO ÍNDICE POR EVENTOS                       //
+    // ======================================================= //
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onProductCreated(ProductCreatedEvent event) {
+        index.upsert(ProductCatalogView.of(event.getProduct()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onProductUpdated(ProductUpdatedEvent event) {
+        index.upsert(ProductCatalogView.of(event.getProduct()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        if (!ready) {
+            removedWhileLoading.add(event.getProductId());
+        }
+        index.remove(event.getProductId());
+    }
+
+    /**
+     * Apagar uma categoria apaga seus produtos em cascata, sem eventos por produto;
+     * por isso a categoria inteira é relida do banco.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        List<ProductCatalogView> current = productRepository.findCatalogByCategoryId(event.getCategoryId());
+        Set<Long> indexed = index.productIdsInCategory(event.getCategoryId());
+        for (ProductCatalogView view : current) {
+            indexed.remove(view.productId());
+            index.upsert(view);
+        }
+        for (Long removedProductId : indexed) {
+            if (!ready) {
+                removedWhileLoading.add(removedProductId);
+            }
+            index.remove(removedProductId);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.arthur.digitalcommerce.search;
+
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+/**
+ * Busca original por {@code LIKE '%keyword%'} no nome do produto.
+ * Fica sempre disponível: é o backend com {@code config.search.engine=jpql} e o fallback
+ * do índice em memória enquanto ele ainda está sendo carregado.
+ */
+@Component
+@RequiredArgsConstructor
+public class JpqlProductSearchEngine implements ProductSearchEngine {
+
+    private final ProductRepository productRepository;
+
+    @Override
+    public Page<ProductCatalogView> search(String keyword, int pageNumber, int pageSize, String sortBy, String sortOrder) {
+        // Sem score no SQL: "relevância" cai na ordenação estável por id.
+        String sortProperty = SORT_BY_RELEVANCE.equals(sortBy) ? "productId" : sortBy;
+        Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc") ? Sort.by(sortProperty).ascending() : Sort.by(sortProperty).descending();
+        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
+        return productRepository.findCatalogPageByKeyword('%' + keyword + '%', pageDetails);
+    }
+}
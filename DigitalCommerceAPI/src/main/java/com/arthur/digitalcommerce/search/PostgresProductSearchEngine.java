@@ -0,0 +1,63 @@
+package com.arthur.digitalcommerce.search;
+
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Busca de produtos feita pelo próprio Postgres (migração V8): full-text com {@code ts_rank}
+ * sobre a coluna gerada {@code search_vector} e, quando nada casa, similaridade de trigramas
+ * no nome para tolerar erros de digitação.
+ * <p>
+ * Não guarda estado na JVM, então serve para deploys com várias instâncias.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "config.search", name = "engine", havingValue = "postgres")
+public class PostgresProductSearchEngine implements ProductSearchEngine {
+
+    // Aliases expostos pelas consultas nativas de ProductRepository.
+    private static final Set<String> SORTABLE_FIELDS = Set.of(
+            "productId", "productName", "price", "specialPrice", "quantityInStock");
+
+    private final ProductRepository productRepository;
+    private final boolean typoFallback;
+
+    public PostgresProductSearchEngine(ProductRepository productRepository,
+                                       @Value("${config.search.postgres.typo-fallback:true}") boolean typoFallback) {
+        this.productRepository = productRepository;
+        this.typoFallback = typoFallback;
+    }
+
+    @Override
+    public Page<ProductCatalogView> search(String keyword, int pageNumber, int pageSize, String sortBy, String sortOrder) {
+        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, resolveSort(sortBy, sortOrder));
+
+        Page<ProductCatalogView> page = productRepository.searchCatalogByFullText(keyword, pageDetails);
+        if (page.getTotalElements() == 0 && typoFallback) {
+            page = productRepository.searchCatalogBySimilarity(keyword, pageDetails);
+        }
+        return page;
+    }
+
+    private Sort resolveSort(String sortBy, String sortOrder) {
+        if (SORT_BY_RELEVANCE.equals(sortBy)) {
+            return Sort.by(Sort.Order.desc("rank"), Sort.Order.asc("productId"));
+        }
+        if (!SORTABLE_FIELDS.contains(sortBy)) {
+            throw new APIException("Invalid sortBy for product search: " + sortBy);
+        }
+        Sort sort = sortOrder.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
+        return "productId".equals(sortBy) ? sort : sort.and(Sort.by("productId"));
+    }
+}
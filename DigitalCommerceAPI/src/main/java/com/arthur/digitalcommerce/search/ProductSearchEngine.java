@@ -0,0 +1,16 @@
+package com.arthur.digitalcommerce.search;
+
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import org.springframework.data.domain.Page;
+
+/**
+ * Backend da busca pública de produtos ({@code /api/public/products/search}).
+ * A implementação ativa é escolhida por {@code config.search.engine}.
+ */
+public interface ProductSearchEngine {
+
+    /** Ordenação padrão da busca: melhores resultados primeiro (sortOrder é ignorado). */
+    String SORT_BY_RELEVANCE = "relevance";
+
+    Page<ProductCatalogView> search(String keyword, int pageNumber, int pageSize, String sortBy, String sortOrder);
+}
@@ -0,0 +1,365 @@
+package com.arthur.digitalcommerce.search;
+
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido em memória sobre o nome e a descrição dos produtos, com ranking BM25.
+ * <p>
+ * Cada versão de um produto recebe um docId interno crescente; as listas de postings ficam
+ * ordenadas por docId e guardadas em arrays de int (sem boxing), o que mantém 1M de produtos
+ * em algumas centenas de MB. Atualizar um produto marca o docId antigo como removido e adiciona
+ * um novo; quando as entradas mortas passam de uma fração do índice, a compactação renumera os
+ * docIds vivos e libera os documentos, tamanhos e postings dos mortos.
+ * <p>
+ * Leituras concorrentes são liberadas; escritas (eventos de produto) usam o lock de escrita.
+ * Esta classe não depende do Spring para poder ser usada também nos benchmarks.
+ */
+public class ProductSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Um termo no nome vale mais do que o mesmo termo na descrição (BM25F simplificado).
+    static final int NAME_WEIGHT = 3;
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final float PREFIX_MATCH_WEIGHT = 0.5f;
+
+    private static final double COMPACTION_RATIO = 0.25;
+    private static final int COMPACTION_MIN_DEAD_DOCS = 1_000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final ArrayList<ProductCatalogView> docs = new ArrayList<>();
+    private int[] docLengths = new int[1024];
+    private final Map<Long, Integer> docIdByProduct = new HashMap<>();
+    private long totalLength;
+    private int deadDocs;
+
+    public record SearchHits(List<ProductCatalogView> content, long totalElements) {
+    }
+
+    // ======================================================= //
+    // ESCRITA                                                 //
+    // ======================================================= //
+
+    public void upsert(ProductCatalogView view) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(view.productId());
+            addInternal(view);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adiciona o produto apenas se ele ainda não estiver indexado.
+     * Usado na carga inicial, para não sobrescrever uma versão mais nova que já chegou por evento.
+     */
+    public boolean addIfAbsent(ProductCatalogView view) {
+        lock.writeLock().lock();
+        try {
+            if (docIdByProduct.containsKey(view.productId())) {
+                return false;
+            }
+            addInternal(view);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            docs.clear();
+            docLengths = new int[1024];
+            docIdByProduct.clear();
+            totalLength = 0;
+            deadDocs = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Ids dos produtos indexados em uma categoria (usado para reindexar categorias). */
+    public Set<Long> productIdsInCategory(Long categoryId) {
+        lock.readLock().lock();
+        try {
+            Set<Long> ids = new HashSet<>();
+            for (ProductCatalogView view : docs) {
+                if (view != null && Objects.equals(view.categoryId(), categoryId)) {
+                    ids.add(view.productId());
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addInternal(ProductCatalogView view) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : SearchTextAnalyzer.analyze(view.productName())) {
+            frequencies.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : SearchTextAnalyzer.analyze(view.description())) {
+            frequencies.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+
+        int docId = docs.size();
+        docs.add(view);
+        if (docId == docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, docLengths.length * 2);
+        }
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), t -> new Postings()).add(docId, entry.getValue());
+            length += entry.getValue();
+        }
+        docLengths[docId] = length;
+        totalLength += length;
+        docIdByProduct.put(view.productId(), docId);
+    }
+
+    private void removeInternal(Long productId) {
+        Integer docId = docIdByProduct.remove(productId);
+        if (docId == null) {
+            return;
+        }
+        docs.set(docId, null);
+        totalLength -= docLengths[docId];
+        deadDocs++;
+    }
+
+    private void compactIfNeeded() {
+        if (deadDocs < COMPACTION_MIN_DEAD_DOCS || deadDocs < docIdByProduct.size() * COMPACTION_RATIO) {
+            return;
+        }
+        compact();
+    }
+
+    // Renumera os docIds vivos em ordem (as postings continuam ordenadas) e descarta os mortos.
+    void compact() {
+        int[] newIds = new int[docs.size()];
+        ArrayList<ProductCatalogView> liveDocs = new ArrayList<>(docIdByProduct.size());
+        int[] liveLengths = new int[Math.max(1024, docIdByProduct.size())];
+        for (int docId = 0; docId < docs.size(); docId++) {
+            ProductCatalogView view = docs.get(docId);
+            if (view == null) {
+                newIds[docId] = -1;
+                continue;
+            }
+            int newId = liveDocs.size();
+            newIds[docId] = newId;
+            liveDocs.add(view);
+            liveLengths[newId] = docLengths[docId];
+            docIdByProduct.put(view.productId(), newId);
+        }
+
+        Iterator<Postings> iterator = terms.values().iterator();
+        while (iterator.hasNext()) {
+            Postings postings = iterator.next();
+            postings.renumber(newIds);
+            if (postings.size == 0) {
+                iterator.remove();
+            }
+        }
+
+        docs.clear();
+        docs.addAll(liveDocs);
+        docs.trimToSize();
+        docLengths = liveLengths;
+        deadDocs = 0;
+    }
+
+    /** Quantidade de docIds alocados, vivos ou mortos (para testes). */
+    int allocatedDocs() {
+        return docs.size();
+    }
+
+    // ======================================================= //
+    // LEITURA                                                 //
+    // ======================================================= //
+
+    /**
+     * Busca com semântica AND: todo termo da consulta precisa casar (exatamente ou como prefixo)
+     * com algum termo do produto.
+     *
+     * @param order  ordenação desejada; {@code null} ordena por relevância (maior score primeiro)
+     * @param offset índice do primeiro resultado da página
+     * @param limit  tamanho da página
+     */
+    public SearchHits search(String query, Comparator<ProductCatalogView> order, int offset, int limit) {
+        List<String> queryTerms = SearchTextAnalyzer.analyze(query).stream().distinct().toList();
+        if (queryTerms.isEmpty()) {
+            return new SearchHits(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            int liveDocs = docIdByProduct.size();
+            if (liveDocs == 0) {
+                return new SearchHits(List.of(), 0);
+            }
+            float averageLength = (float) totalLength / liveDocs;
+
+            // Processa primeiro os termos mais seletivos para encolher os candidatos cedo.
+            List<List<WeightedPostings>> expansions = queryTerms.stream()
+                    .map(this::expand)
+                    .sorted(Comparator.comparingLong(ProductSearchIndex::postingsVolume))
+                    .toList();
+
+            Map<Integer, Float> scores = null;
+            for (List<WeightedPostings> expansion : expansions) {
+                Map<Integer, Float> termScores = new HashMap<>();
+                for (WeightedPostings weighted : expansion) {
+                    Postings postings = weighted.postings();
+                    float idf = idf(liveDocs, postings.size);
+                    for (int i = 0; i < postings.size; i++) {
+                        int docId = postings.docIds[i];
+                        if (docs.get(docId) == null || (scores != null && !scores.containsKey(docId))) {
+                            continue;
+                        }
+                        int tf = postings.frequencies[i];
+                        float norm = K1 * (1 - B + B * docLengths[docId] / averageLength);
+                        float score = weighted.weight() * idf * (tf * (K1 + 1)) / (tf + norm);
+                        termScores.merge(docId, score, Float::sum);
+                    }
+                }
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((docId, score) -> score + termScores.get(docId));
+                }
+                if (scores.isEmpty()) {
+                    return new SearchHits(List.of(), 0);
+                }
+            }
+
+            return new SearchHits(topK(scores, order, offset, limit), scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<ProductCatalogView> topK(Map<Integer, Float> scores, Comparator<ProductCatalogView> order,
+                                          int offset, int limit) {
+        if (offset >= scores.size()) {
+            return List.of();
+        }
+        Comparator<Map.Entry<Integer, Float>> comparator = order == null
+                ? Map.Entry.<Integer, Float>comparingByValue().reversed()
+                : Comparator.comparing(entry -> docs.get(entry.getKey()), order);
+        comparator = comparator.thenComparing(entry -> docs.get(entry.getKey()).productId());
+
+        // Heap com os (offset + limit) melhores: O(n log k) em vez de ordenar todos os resultados.
+        int k = offset + limit;
+        PriorityQueue<Map.Entry<Integer, Float>> heap = new PriorityQueue<>(Math.min(k, scores.size()) + 1, comparator.reversed());
+        for (Map.Entry<Integer, Float> entry : scores.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+
+        List<Map.Entry<Integer, Float>> best = new ArrayList<>(heap);
+        best.sort(comparator);
+        return best.subList(offset, best.size()).stream()
+                .map(entry -> docs.get(entry.getKey()))
+                .toList();
+    }
+
+    private List<WeightedPostings> expand(String queryTerm) {
+        List<WeightedPostings> expansion = new ArrayList<>();
+        Postings exact = terms.get(queryTerm);
+        if (exact != null) {
+            expansion.add(new WeightedPostings(exact, 1f));
+        }
+        if (queryTerm.length() >= MIN_PREFIX_LENGTH) {
+            int expanded = 0;
+            for (Postings postings : terms.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).values()) {
+                if (expanded++ == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                expansion.add(new WeightedPostings(postings, PREFIX_MATCH_WEIGHT));
+            }
+        }
+        return expansion;
+    }
+
+    private static long postingsVolume(List<WeightedPostings> expansion) {
+        long volume = 0;
+        for (WeightedPostings weighted : expansion) {
+            volume += weighted.postings().size;
+        }
+        return volume;
+    }
+
+    private static float idf(int liveDocs, int documentFrequency) {
+        // Postings ainda não compactados podem contar documentos removidos; o limite evita idf negativo.
+        int df = Math.min(documentFrequency, liveDocs);
+        return (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+    }
+
+    private record WeightedPostings(Postings postings, float weight) {
+    }
+
+    private static final class Postings {
+        private int[] docIds = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void add(int docId, int frequency) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            docIds[size] = docId;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        void renumber(int[] newIds) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int newId = newIds[docIds[i]];
+                if (newId >= 0) {
+                    docIds[kept] = newId;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.arthur.digitalcommerce.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Analisador de texto usado pelo índice de busca (e pelas consultas).
+ * Remove acentos, normaliza para minúsculas, quebra em palavras, descarta stopwords do português
+ * e aplica uma redução leve de plural, para que "Fogões", "fogao" e "FOGÃO" virem o mesmo termo.
+ */
+public final class SearchTextAnalyzer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "o", "as", "os", "e", "de", "da", "do", "das", "dos", "em", "na", "no", "nas", "nos",
+            "um", "uma", "uns", "umas", "para", "pra", "por", "com", "sem", "que", "ao", "aos", "se", "ou");
+
+    private SearchTextAnalyzer() {
+    }
+
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        for (String token : NON_ALPHANUMERIC.split(fold(text))) {
+            if (token.isEmpty() || STOPWORDS.contains(token)) {
+                continue;
+            }
+            terms.add(stem(token));
+        }
+        return terms;
+    }
+
+    /** Remove acentos e converte para minúsculas. */
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Redução de plural simplificada (não é um stemmer completo).
+     * O mesmo passo é aplicado ao indexar e ao consultar, então basta ser consistente.
+     */
+    static String stem(String token) {
+        if (token.length() <= 3 || Character.isDigit(token.charAt(token.length() - 1))) {
+            return token;
+        }
+        if (token.endsWith("oes") || token.endsWith("aes")) {
+            return token.substring(0, token.length() - 3) + "ao";
+        }
+        if (token.endsWith("ns")) {
+            return token.substring(0, token.length() - 2) + "m";
+        }
+        if (token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
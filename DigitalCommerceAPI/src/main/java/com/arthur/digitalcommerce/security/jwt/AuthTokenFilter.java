@@ -1,6 +1,7 @@
 package com.arthur.digitalcommerce.security.jwt;
 
 import com.arthur.digitalcommerce.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -32,10 +33,14 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // Uma única verificação de assinatura por requisição; o username sai das claims já validadas.
+            Claims claims = jwt != null ? jwtUtils.parseValidatedClaims(jwt) : null;
+            if (claims != null) {
+                // Id, e-mail e roles vêm do próprio token; só tokens antigos, sem essas claims, vão ao banco.
+                UserDetails userDetails = jwtUtils.getUserDetailsFromClaims(claims);
+                if (userDetails == null) {
+                    userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+                }
 
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails,
@@ -2,6 +2,7 @@ package com.arthur.digitalcommerce.service;
 
 import com.arthur.digitalcommerce.exceptions.APIException;
 import com.arthur.digitalcommerce.exceptions.ResourceNotFoundException;
+import com.arthur.digitalcommerce.mapper.AddressMapper;
 import com.arthur.digitalcommerce.model.Address;
 import com.arthur.digitalcommerce.model.User;
 import com.arthur.digitalcommerce.payload.AddressDTO;
@@ -10,13 +11,13 @@ import com.arthur.digitalcommerce.payload.UserDTO;
 import com.arthur.digitalcommerce.repository.AddressRepository;
 import com.arthur.digitalcommerce.repository.UserRepository;
 import com.arthur.digitalcommerce.util.AuthUtil;
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,7 +37,7 @@ public class AddressesServiceImpl implements AddressesService {
     private UserRepository userRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private AddressMapper addressMapper;
 
     private void validateOwnership(Address address, String email) {
         if (!address.getUser().getEmail().equals(email)) {
@@ -46,15 +47,17 @@ public class AddressesServiceImpl implements AddressesService {
     }
 
     @Override
+    // Transacional porque percorre a coleção lazy de endereços (não há open-in-view).
+    @Transactional
     public AddressDTO createAddress(AddressDTO addressDTO) {
         User user = authUtil.loggedInUser();
-        Address address = modelMapper.map(addressDTO, Address.class);
+        Address address = addressMapper.toEntity(addressDTO);
         address.setUser(user);
         List<Address> addressesList = user.getAddresses();
         addressesList.add(address);
         user.setAddresses(addressesList);
         Address savedAddress = addressRepository.save(address);
-        return modelMapper.map(savedAddress, AddressDTO.class);
+        return addressMapper.toDTO(savedAddress);
     }
 
 
@@ -62,7 +65,7 @@ public class AddressesServiceImpl implements AddressesService {
     public List<AddressDTO> getAllAddress() {
         List<Address> addresses = addressRepository.findAll();
         List<AddressDTO> dtos = new ArrayList<>();
-        addresses.forEach(a -> dtos.add(modelMapper.map(a, AddressDTO.class)));
+        addresses.forEach(a -> dtos.add(addressMapper.toDTO(a)));
 
         logger.info("Retrieved {} addresses", dtos.size());
         return dtos;
@@ -74,7 +77,7 @@ public class AddressesServiceImpl implements AddressesService {
                 .orElseThrow(() -> new ResourceNotFoundException("Address", "addressId", addressId));
 
         logger.info("Retrieved address {}", addressId);
-        return modelMapper.map(address, AddressDTO.class);
+        return addressMapper.toDTO(address);
     }
 
     @Override
@@ -83,13 +86,14 @@ public class AddressesServiceImpl implements AddressesService {
         List<Address> addresses = addressRepository.findByUserEmail(email);
 
         List<AddressDTO> dtos = new ArrayList<>();
-        addresses.forEach(a -> dtos.add(modelMapper.map(a, AddressDTO.class)));
+        addresses.forEach(a -> dtos.add(addressMapper.toDTO(a)));
 
         logger.info("Retrieved {} addresses for user {}", dtos.size(), email);
         return dtos;
     }
 
     @Override
+    @Transactional
     public AddressDTO updateAddress(Long addressId, AddressDTO addressDTO) {
         Address addressFromDatabase = addressRepository.findById(addressId)
                 .orElseThrow(() -> new ResourceNotFoundException("Address", "addressId", addressId));
@@ -109,7 +113,7 @@ public class AddressesServiceImpl implements AddressesService {
         user.getAddresses().add(updatedAddress);
         userRepository.save(user);
 
-        return modelMapper.map(updatedAddress, AddressDTO.class);
+        return addressMapper.toDTO(updatedAddress);
     }
     @Override
     public String deletingAddress(Long addressId) {
@@ -0,0 +1,78 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.exceptions.ConcurrentUpdateException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Reexecuta uma alteração de carrinho que perdeu a corrida do {@code @Version} para outra requisição
+ * do mesmo usuário (duas abas, app e web).
+ * <p>
+ * Precisa envolver a chamada transacional por fora: cada tentativa abre uma transação nova e relê o
+ * carrinho. Chamado dentro de uma transação já aberta, apenas executa uma vez (a releitura veria o
+ * mesmo contexto de persistência). Esgotadas as tentativas, lança {@link ConcurrentUpdateException} (409).
+ * <p>
+ * Métricas, com tag 'operation': 'cart.optimistic_lock.conflicts', 'cart.optimistic_lock.retries'
+ * e 'cart.optimistic_lock.exhausted'.
+ */
+@Component
+public class CartMutationRetrier {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartMutationRetrier.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public CartMutationRetrier(MeterRegistry meterRegistry,
+                               @Value("${config.cart.optimistic-retry.max-attempts:4}") int maxAttempts,
+                               @Value("${config.cart.optimistic-retry.backoff-ms:10}") long backoffMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+    }
+
+    public <T> T execute(String operation, Supplier<T> mutation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return mutation.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return mutation.get();
+            } catch (OptimisticLockingFailureException e) {
+                meterRegistry.counter("cart.optimistic_lock.conflicts", "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("cart.optimistic_lock.exhausted", "operation", operation).increment();
+                    logger.warn("Cart {} still conflicting after {} attempts.", operation, attempt);
+                    throw new ConcurrentUpdateException(
+                            "Your cart was changed by another request at the same time. Please try again.", e);
+                }
+                meterRegistry.counter("cart.optimistic_lock.retries", "operation", operation).increment();
+                logger.debug("Optimistic lock conflict on cart {} (attempt {}), retrying.", operation, attempt);
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Espera crescente com jitter, para que as requisições concorrentes não colidam de novo no mesmo instante.
+    private void backOff(int attempt) {
+        if (backoffMs <= 0) {
+            return;
+        }
+        long delay = backoffMs * attempt + ThreadLocalRandom.current().nextLong(backoffMs + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException("Interrupted while retrying a cart update.", e);
+        }
+    }
+}
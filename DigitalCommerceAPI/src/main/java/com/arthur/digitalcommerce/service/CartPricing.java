@@ -0,0 +1,57 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.model.Cart;
+import com.arthur.digitalcommerce.model.CartItem;
+import com.arthur.digitalcommerce.model.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Regras de preço do carrinho, em um só lugar: preço unitário vigente do produto (preço especial
+ * quando ativo), desconto percentual do item e total de cada linha.
+ * A mesma conta é feita em SQL em CartRepository.CART_LINE_TOTAL_SQL.
+ */
+public final class CartPricing {
+
+    private static final BigDecimal ONE_HUNDRED = new BigDecimal("100");
+
+    private CartPricing() {
+    }
+
+    public static BigDecimal unitPrice(Product product) {
+        if (product.isSpecialPriceActive() && product.getSpecialPrice() != null) {
+            return product.getSpecialPrice();
+        }
+        return product.getPrice();
+    }
+
+    public static BigDecimal lineTotal(CartItem item) {
+        BigDecimal currentBasePrice = unitPrice(item.getProduct());
+        BigDecimal finalUnitPrice = currentBasePrice;
+        BigDecimal discountPercent = item.getDiscount();
+        if (discountPercent != null && discountPercent.compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal discountAmount = currentBasePrice.multiply(discountPercent.divide(ONE_HUNDRED));
+            finalUnitPrice = currentBasePrice.subtract(discountAmount);
+        }
+        return finalUnitPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
+    }
+
+    public static BigDecimal cartTotal(Cart cart) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem item : cart.getCartItems()) {
+            total = total.add(lineTotal(item));
+        }
+        return total;
+    }
+
+    /** Compara valores monetários ignorando a escala (10.0 == 10.00). */
+    public static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    /** Soma {@code delta} ao total gravado no carrinho (tratando total nulo como zero). */
+    public static void applyDelta(Cart cart, BigDecimal delta) {
+        BigDecimal current = cart.getTotalPrice() != null ? cart.getTotalPrice() : BigDecimal.ZERO;
+        cart.setTotalPrice(current.add(delta));
+    }
+}
@@ -0,0 +1,140 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.config.AsyncConfig;
+import com.arthur.digitalcommerce.events.ProductDeletedEvent;
+import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
+import com.arthur.digitalcommerce.repository.CartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recalcula os totais dos carrinhos quando o preço vigente de um produto muda.
+ * <p>
+ * Roda depois do commit da atualização do produto, no executor limitado {@link AsyncConfig#CART_REPRICING_EXECUTOR},
+ * e trabalha em SQL: os carrinhos afetados são lidos em lotes de ids (keyset) e cada lote é recalculado
+ * com um único UPDATE, em sua própria transação. Nenhuma entidade Cart/CartItem é carregada.
+ * <p>
+ * A exclusão de um produto segue o mesmo caminho em SQL, mas dentro da transação que apaga o produto
+ * (ver {@link #onProductDeleted}).
+ * <p>
+ * Métricas: 'cart.repricing.carts' (carrinhos recalculados, cresce a cada lote), 'cart.repricing.active'
+ * (reprecificações em andamento), 'cart.repricing.duration' (por produto, com tag de resultado) e
+ * 'cart.product_removal.carts' (carrinhos dos quais um produto excluído foi retirado).
+ */
+@Component
+public class CartRepricingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartRepricingService.class);
+
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter repricedCarts;
+    private final Counter cartsAffectedByProductRemoval;
+    private final AtomicInteger activeRepricings = new AtomicInteger();
+
+    public CartRepricingService(CartRepository cartRepository,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${config.cart.repricing.batch-size:1000}") int batchSize) {
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.meterRegistry = meterRegistry;
+        this.repricedCarts = meterRegistry.counter("cart.repricing.carts");
+        this.cartsAffectedByProductRemoval = meterRegistry.counter("cart.product_removal.carts");
+        meterRegistry.gauge("cart.repricing.active", activeRepricings);
+    }
+
+    @Async(AsyncConfig.CART_REPRICING_EXECUTOR)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductUpdated(ProductUpdatedEvent event) {
+        if (event.isPriceChanged()) {
+            repriceCartsContaining(event.getProduct().getProductId());
+        }
+    }
+
+    /**
+     * @return quantos carrinhos foram recalculados
+     */
+    public int repriceCartsContaining(Long productId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        activeRepricings.incrementAndGet();
+        String outcome = "success";
+        int repriced = 0;
+        try {
+            long lastCartId = 0L;
+            List<Long> cartIds;
+            do {
+                cartIds = cartRepository.findCartIdsByProductIdAfter(productId, lastCartId, PageRequest.of(0, batchSize));
+                if (cartIds.isEmpty()) {
+                    break;
+                }
+                List<Long> batch = cartIds;
+                transactionTemplate.executeWithoutResult(status -> cartRepository.recalculateTotals(batch));
+                repriced += batch.size();
+                repricedCarts.increment(batch.size());
+                lastCartId = batch.get(batch.size() - 1);
+                logger.debug("Repriced {} carts so far for product {}.", repriced, productId);
+            } while (cartIds.size() == batchSize);
+
+            logger.info("Repriced {} carts after a price change of product {}.", repriced, productId);
+            return repriced;
+        } catch (RuntimeException e) {
+            outcome = "failure";
+            logger.error("Cart repricing for product {} stopped after {} carts; run the cart total repair to finish it.",
+                    productId, repriced, e);
+            throw e;
+        } finally {
+            activeRepricings.decrementAndGet();
+            sample.stop(meterRegistry.timer("cart.repricing.duration", "outcome", outcome));
+        }
+    }
+
+    /**
+     * Retira o produto excluído de todos os carrinhos com um DELETE e um UPDATE dos totais.
+     * <p>
+     * Precisa rodar antes do DELETE do produto e na mesma transação: a FK de cart_items apaga os itens
+     * em cascata, e depois do commit não haveria mais como saber quais carrinhos ficaram com o total errado.
+     * Só a contagem de carrinhos afetados é publicada depois do commit.
+     */
+    @EventListener
+    public void onProductDeleted(ProductDeletedEvent event) {
+        Long productId = event.getProductId();
+        int affected = transactionTemplate.execute(status -> cartRepository.removeProductFromAllCarts(productId));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reportProductRemoval(productId, affected);
+                }
+            });
+        } else {
+            reportProductRemoval(productId, affected);
+        }
+    }
+
+    private void reportProductRemoval(Long productId, int affected) {
+        cartsAffectedByProductRemoval.increment(affected);
+        logger.info("Deleted product {} was removed from {} carts.", productId, affected);
+    }
+}
@@ -1,6 +1,7 @@
 package com.arthur.digitalcommerce.service;
 
 import com.arthur.digitalcommerce.payload.CartDTO;
+import com.arthur.digitalcommerce.payload.CartItemQuantityDTO;
 import java.util.List;
 
 public interface CartService {
@@ -11,6 +12,8 @@ public interface CartService {
 
     CartDTO updateProductQuantityInCart(Long productId, Integer quantity);
 
+    CartDTO updateCartItems(List<CartItemQuantityDTO> items);
+
     String deleteProductFromCart(Long productId);
 
     void clearCartByUserEmail(String email);
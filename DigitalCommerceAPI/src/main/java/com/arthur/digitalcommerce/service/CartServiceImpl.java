@@ -1,26 +1,28 @@
 package com.arthur.digitalcommerce.service;
 
-import com.arthur.digitalcommerce.events.ProductDeletedEvent;
-import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
 import com.arthur.digitalcommerce.exceptions.APIException;
 import com.arthur.digitalcommerce.exceptions.ResourceNotFoundException;
+import com.arthur.digitalcommerce.mapper.CartMapper;
 import com.arthur.digitalcommerce.model.Cart;
 import com.arthur.digitalcommerce.model.CartItem;
 import com.arthur.digitalcommerce.model.Product;
 import com.arthur.digitalcommerce.payload.CartDTO;
-import com.arthur.digitalcommerce.payload.ProductDTO;
+import com.arthur.digitalcommerce.payload.CartItemQuantityDTO;
 import com.arthur.digitalcommerce.repository.CartItemRepository;
 import com.arthur.digitalcommerce.repository.CartRepository;
 import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.stock.HotStockCounters;
 import com.arthur.digitalcommerce.util.AuthUtil;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,8 +32,9 @@ public class CartServiceImpl implements CartService {
     private final CartRepository cartRepository;
     private final ProductRepository productRepository;
     private final CartItemRepository cartItemRepository;
-    private final ModelMapper modelMapper;
+    private final CartMapper cartMapper;
     private final AuthUtil authUtil;
+    private final HotStockCounters hotStockCounters;
 
     // ... addProductToCart e getCartForCurrentUser permanecem os mesmos ...
 
@@ -49,13 +52,16 @@ public class CartServiceImpl implements CartService {
 
         if (cartItem != null) {
             int newQuantity = cartItem.getQuantity() + quantity;
-            if (product.getQuantityInStock() < newQuantity) {
-                throw new APIException("Not enough stock for " + product.getProductName() + ". Available: " + product.getQuantityInStock());
+            int available = availableStock(product);
+            if (available < newQuantity) {
+                throw new APIException("Not enough stock for " + product.getProductName() + ". Available: " + available);
             }
+            BigDecimal previousLineTotal = CartPricing.lineTotal(cartItem);
             cartItem.setQuantity(newQuantity);
+            CartPricing.applyDelta(cart, CartPricing.lineTotal(cartItem).subtract(previousLineTotal));
 
         } else {
-            if (product.getQuantityInStock() < quantity) {
+            if (availableStock(product) < quantity) {
                 throw new APIException("Not enough stock for " + product.getProductName());
             }
 
@@ -66,21 +72,26 @@ public class CartServiceImpl implements CartService {
             cartItem.setDiscount(BigDecimal.ZERO);
 
             cart.getCartItems().add(cartItem);
+            CartPricing.applyDelta(cart, CartPricing.lineTotal(cartItem));
         }
 
-        recalculateCartTotal(cart);
         cartRepository.save(cart);
 
         return mapToDTO(cart);
     }
 
 
+    /**
+     * Leitura sem efeitos colaterais: carrinho, itens, produtos e categorias vêm em uma única
+     * consulta (fetch join) e nada é gravado. O total exibido é o gravado no carrinho, mantido por
+     * diferença nas escritas (não soma as linhas; divergências aparecem no CartTotalConsistencyChecker);
+     * quem ainda não tem carrinho recebe um carrinho vazio, que só é criado no primeiro item.
+     */
+    @Transactional(readOnly = true)
     public CartDTO getCartForCurrentUser(){
-        Cart cart = getOrCreateCartForCurrentUser();
-        recalculateCartTotal(cart);
-        cartRepository.save(cart);
-
-        return mapToDTO(cart);
+        return cartRepository.findWithItemsByUserEmail(authUtil.loggedInEmail())
+                .map(this::mapToDTO)
+                .orElseGet(CartDTO::new);
     }
 
     // ======================================================= //
@@ -104,7 +115,8 @@ public class CartServiceImpl implements CartService {
             // 3. Deleta do banco EXPLICITAMENTE
             cartItemRepository.delete(cartItemToRemove);
 
-            recalculateCartTotal(cart);
+            // 4. Desconta só a linha removida do total
+            CartPricing.applyDelta(cart, CartPricing.lineTotal(cartItemToRemove).negate());
             cartRepository.save(cart);
             return true;
         }
@@ -124,22 +136,96 @@ public class CartServiceImpl implements CartService {
             return mapToDTO(cart);
         }
 
-        if (product.getQuantityInStock() < quantity) {
-            throw new APIException("Not enough stock. Available: " + product.getQuantityInStock());
+        int available = availableStock(product);
+        if (available < quantity) {
+            throw new APIException("Not enough stock. Available: " + available);
         }
 
         CartItem cartItem = cartItemRepository.findCartItemByProductIdAndCartId(cart.getCartId(), productId)
                 .orElseThrow(() -> new APIException("Product not found in cart."));
 
+        BigDecimal previousLineTotal = CartPricing.lineTotal(cartItem);
         cartItem.setQuantity(quantity);
         cartItemRepository.save(cartItem);
 
-        recalculateCartTotal(cart);
+        CartPricing.applyDelta(cart, CartPricing.lineTotal(cartItem).subtract(previousLineTotal));
         cartRepository.save(cart);
 
         return mapToDTO(cart);
     }
 
+    /**
+     * Aplica várias alterações de quantidade em uma única transação (sincronização do carrinho
+     * após edições offline). Os produtos vêm em uma só consulta IN, todo o estoque é validado antes
+     * de qualquer alteração e as escritas dos itens saem em lote no flush.
+     */
+    @Override
+    @Transactional
+    public CartDTO updateCartItems(List<CartItemQuantityDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new APIException("At least one cart item must be informed.");
+        }
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItemQuantityDTO item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() < 0) {
+                throw new APIException("Each cart item needs a productId and a quantity of zero or more.");
+            }
+            if (quantities.put(item.getProductId(), item.getQuantity()) != null) {
+                throw new APIException("Product " + item.getProductId() + " appears more than once in the request.");
+            }
+        }
+
+        Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+
+        List<String> stockErrors = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product", "productId", entry.getKey());
+            }
+            int available = availableStock(product);
+            if (available < entry.getValue()) {
+                stockErrors.add(product.getProductName() + " (available: " + available + ")");
+            }
+        }
+        if (!stockErrors.isEmpty()) {
+            throw new APIException("Not enough stock for: " + String.join(", ", stockErrors));
+        }
+
+        Cart cart = getOrCreateCartWithItemsForCurrentUser();
+        Map<Long, CartItem> cartItemsByProduct = cart.getCartItems().stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getProductId(), Function.identity()));
+
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            CartItem cartItem = cartItemsByProduct.get(entry.getKey());
+            int quantity = entry.getValue();
+            if (cartItem == null) {
+                if (quantity == 0) {
+                    continue;
+                }
+                cartItem = new CartItem();
+                cartItem.setProduct(products.get(entry.getKey()));
+                cartItem.setCart(cart);
+                cartItem.setQuantity(quantity);
+                cartItem.setDiscount(BigDecimal.ZERO);
+                cart.getCartItems().add(cartItem);
+                CartPricing.applyDelta(cart, CartPricing.lineTotal(cartItem));
+            } else if (quantity == 0) {
+                // orphanRemoval apaga o item no flush
+                cart.getCartItems().remove(cartItem);
+                CartPricing.applyDelta(cart, CartPricing.lineTotal(cartItem).negate());
+            } else {
+                BigDecimal previousLineTotal = CartPricing.lineTotal(cartItem);
+                cartItem.setQuantity(quantity);
+                CartPricing.applyDelta(cart, CartPricing.lineTotal(cartItem).subtract(previousLineTotal));
+            }
+        }
+
+        cartRepository.save(cart);
+        return mapToDTO(cart);
+    }
+
     @Override
     @Transactional
     public String deleteProductFromCart(Long productId) {
@@ -158,18 +244,6 @@ public class CartServiceImpl implements CartService {
         }
     }
 
-    @EventListener
-    @Transactional
-    public void handleProductDelete(ProductDeletedEvent event) {
-        Long productId = event.getProductId();
-        List<Cart> cartsToUpdate = cartRepository.findCartsByProductId(productId);
-
-        for (Cart cart : cartsToUpdate) {
-            // Chama o novo helper "bruto" para cada carrinho
-            removeProductFromCartExplicitly(cart, productId);
-        }
-    }
-
     /**
      * MÉTODO BRUTO PARA O WEBHOOK (que já funcionou)
      */
@@ -196,6 +270,7 @@ public class CartServiceImpl implements CartService {
     // ======================================================= //
 
     @Override
+    @Transactional(readOnly = true)
     public List<CartDTO> getAllCarts() {
         List<Cart> carts = cartRepository.findAll();
         if (carts.isEmpty()) {
@@ -204,85 +279,34 @@ public class CartServiceImpl implements CartService {
         return carts.stream().map(this::mapToDTO).collect(Collectors.toList());
     }
 
-    @EventListener
-    @Transactional
-    public void handleProductUpdate(ProductUpdatedEvent event) {
-        Product updatedProduct = event.getProduct();
-        List<Cart> cartsToUpdate = cartRepository.findCartsByProductId(updatedProduct.getProductId());
-        for (Cart cart : cartsToUpdate) {
-            recalculateCartTotal(cart);
-            cartRepository.save(cart);
-        }
-    }
-
     private Cart getOrCreateCartForCurrentUser() {
         String email = authUtil.loggedInEmail();
         return cartRepository.findByUserEmail(email).orElseGet(() -> {
             Cart newCart = new Cart();
             newCart.setTotalPrice(BigDecimal.ZERO);
-            newCart.setUser(authUtil.loggedInUser());
+            newCart.setUser(authUtil.loggedInUserReference());
             return cartRepository.save(newCart);
         });
     }
 
-    public void validateCartForCheckout(Cart cart) {
-        if (cart.getCartItems() == null || cart.getCartItems().isEmpty()) {
-            throw new APIException("Cannot proceed to checkout with an empty cart.");
-        }
-        for (CartItem item : cart.getCartItems()) {
-            Product product = productRepository.findById(item.getProduct().getProductId())
-                    .orElseThrow(() -> new APIException("Product '" + item.getProduct().getProductName() +
-                            "' is no longer available. Please remove it from your cart."));
-            if (product.getQuantityInStock() <= 0) {
-                throw new APIException("Sorry, '" + product.getProductName() +
-                        "' is now out of stock. Please remove it from your cart to proceed.");
-            } else if (item.getQuantity() > product.getQuantityInStock()) {
-                throw new APIException("Cannot proceed to checkout. Product '" + product.getProductName() +
-                        "' has insufficient stock. Available: " + product.getQuantityInStock() +
-                        ", in your cart: " + item.getQuantity());
-            }
-        }
+    // Como getOrCreateCartForCurrentUser, mas já com itens, produtos e categorias (uma consulta).
+    private Cart getOrCreateCartWithItemsForCurrentUser() {
+        String email = authUtil.loggedInEmail();
+        return cartRepository.findWithItemsByUserEmail(email).orElseGet(() -> {
+            Cart newCart = new Cart();
+            newCart.setTotalPrice(BigDecimal.ZERO);
+            newCart.setUser(authUtil.loggedInUserReference());
+            return cartRepository.save(newCart);
+        });
     }
 
-    private void recalculateCartTotal(Cart cart) {
-        BigDecimal total = BigDecimal.ZERO;
-        for (CartItem item : cart.getCartItems()) {
-            Product product = item.getProduct();
-            BigDecimal currentBasePrice;
-            if (product.isSpecialPriceActive() && product.getSpecialPrice() != null) {
-                currentBasePrice = product.getSpecialPrice();
-            } else {
-                currentBasePrice = product.getPrice();
-            }
-            BigDecimal finalUnitPrice = currentBasePrice;
-            BigDecimal discountPercent = item.getDiscount();
-            if (discountPercent != null && discountPercent.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal discountMultiplier = discountPercent.divide(new BigDecimal("100"));
-                BigDecimal discountAmount = currentBasePrice.multiply(discountMultiplier);
-                finalUnitPrice = currentBasePrice.subtract(discountAmount);
-            }
-            BigDecimal subtotal = finalUnitPrice.multiply(BigDecimal.valueOf(item.getQuantity()));
-            total = total.add(subtotal);
-        }
-        cart.setTotalPrice(total);
+    // Estoque do banco mais o que um produto quente tem no contador em memória (já descontado da linha).
+    private int availableStock(Product product) {
+        return product.getQuantityInStock() + hotStockCounters.leased(product.getProductId());
     }
 
-    private CartDTO mapToDTO(Cart cart) {
-        recalculateCartTotal(cart);
-        CartDTO cartDTO = modelMapper.map(cart, CartDTO.class);
-        List<ProductDTO> productDTOs = cart.getCartItems().stream().map(item -> {
-            ProductDTO productDTO = modelMapper.map(item.getProduct(), ProductDTO.class);
-            productDTO.setCartQuantity(item.getQuantity());
-            if (productDTO.getCartQuantity() > productDTO.getQuantityInStock()) {
-                if (productDTO.getQuantityInStock() > 0) {
-                    productDTO.setWarningMessage("Warning! Only " + productDTO.getQuantityInStock() + " units available in stock.");
-                } else {
-                    productDTO.setWarningMessage("Product out of stock! Please remove it from the cart to continue.");
-                }
-            }
-            return productDTO;
-        }).collect(Collectors.toList());
-        cartDTO.setProducts(productDTOs);
-        return cartDTO;
+    // O total já está em dia (mantido por diferença), então o mapeamento não recalcula nada.
+    CartDTO mapToDTO(Cart cart) {
+        return cartMapper.toDTO(cart);
     }
 }
\ No newline at end of file
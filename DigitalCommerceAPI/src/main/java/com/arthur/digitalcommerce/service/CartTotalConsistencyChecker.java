@@ -0,0 +1,46 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.repository.CartRepository;
+import com.arthur.digitalcommerce.repository.projection.CartTotalMismatch;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Confere em lote os totais mantidos por diferença no CartServiceImpl contra o recálculo completo,
+ * feito em uma única consulta no banco. Usado pelo endpoint de admin e útil após migrações ou
+ * correções manuais de preço.
+ */
+@Component
+@RequiredArgsConstructor
+public class CartTotalConsistencyChecker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartTotalConsistencyChecker.class);
+
+    private final CartRepository cartRepository;
+
+    @Transactional(readOnly = true)
+    public List<CartTotalMismatch> findMismatches() {
+        return cartRepository.findTotalMismatches();
+    }
+
+    /**
+     * Regrava o total recalculado nos carrinhos divergentes.
+     *
+     * @return os carrinhos corrigidos
+     */
+    @Transactional
+    public List<CartTotalMismatch> repairMismatches() {
+        List<CartTotalMismatch> mismatches = cartRepository.findTotalMismatches();
+        for (CartTotalMismatch mismatch : mismatches) {
+            logger.warn("Cart {} total out of sync: stored {}, expected {}. Repairing.",
+                    mismatch.cartId(), mismatch.storedTotal(), mismatch.expectedTotal());
+            cartRepository.updateTotalPrice(mismatch.cartId(), mismatch.expectedTotal());
+        }
+        return mismatches;
+    }
+}
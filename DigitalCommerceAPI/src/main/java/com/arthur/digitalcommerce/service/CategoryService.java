@@ -5,6 +5,10 @@ import com.arthur.digitalcommerce.payload.CategoryResponse;
 
 public interface CategoryService {
     CategoryResponse getAllCategories(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
+
+    CategoryResponse getAllCategoriesWithoutTotal(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
+
+    CategoryResponse getAllCategoriesByCursor(String cursor, Integer pageSize, String sortBy, String sortOrder, boolean includeTotal);
     CategoryDTO createCategory(CategoryDTO categoryDTO);
 
     CategoryDTO deleteCategory(Long categoryId);
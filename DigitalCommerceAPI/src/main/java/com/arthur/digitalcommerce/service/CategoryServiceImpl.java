@@ -1,16 +1,21 @@
 package com.arthur.digitalcommerce.service;
 
+import com.arthur.digitalcommerce.events.CategoryChangedEvent;
 import com.arthur.digitalcommerce.exceptions.APIException;
 import com.arthur.digitalcommerce.exceptions.ResourceNotFoundException;
+import com.arthur.digitalcommerce.mapper.CategoryMapper;
 import com.arthur.digitalcommerce.model.Category;
 import com.arthur.digitalcommerce.payload.CategoryDTO;
 import com.arthur.digitalcommerce.payload.CategoryResponse;
 import com.arthur.digitalcommerce.repository.CategoryRepository;
+import com.arthur.digitalcommerce.repository.CategoryRepositoryCustom;
+import com.arthur.digitalcommerce.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
@@ -22,7 +27,8 @@ public class CategoryServiceImpl implements CategoryService {
 
     // Dependências agora são 'final' e injetadas pelo construtor gerado pelo Lombok
     private final CategoryRepository categoryRepository;
-    private final ModelMapper modelMapper;
+    private final CategoryMapper categoryMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public CategoryResponse getAllCategories(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
@@ -39,7 +45,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         List<CategoryDTO> categoryDTOS = categories.stream()
-                .map(category -> modelMapper.map(category, CategoryDTO.class))
+                .map(categoryMapper::toDTO)
                 .toList();
 
         CategoryResponse categoryResponse = new CategoryResponse();
@@ -49,18 +55,85 @@ public class CategoryServiceImpl implements CategoryService {
         categoryResponse.setTotalElements(categoryPage.getTotalElements());
         categoryResponse.setTotalPages(categoryPage.getTotalPages());
         categoryResponse.setLastPage(categoryPage.isLast());
+        if (categoryPage.hasNext() && CategoryRepositoryCustom.KEYSET_SORT_FIELDS.contains(sortBy)) {
+            categoryResponse.setNextCursor(nextCursor(categories.getLast(), sortBy, sortOrder));
+        }
         return categoryResponse;
     }
 
+    // A mesma página por OFFSET sem o COUNT (includeTotal=false): totalElements e totalPages ficam nulos.
+    @Override
+    public CategoryResponse getAllCategoriesWithoutTotal(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+        Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc")
+                ? Sort.by(sortBy).ascending()
+                : Sort.by(sortBy).descending();
+
+        Slice<Category> categorySlice = categoryRepository.findSliceBy(PageRequest.of(pageNumber, pageSize, sortByAndOrder));
+
+        List<Category> categories = categorySlice.getContent();
+        if (categories.isEmpty()) {
+            throw new APIException("No category created till now.");
+        }
+
+        CategoryResponse categoryResponse = new CategoryResponse();
+        categoryResponse.setContent(categories.stream()
+                .map(categoryMapper::toDTO)
+                .toList());
+        categoryResponse.setPageNumber(categorySlice.getNumber());
+        categoryResponse.setPageSize(categorySlice.getSize());
+        categoryResponse.setLastPage(!categorySlice.hasNext());
+        if (categorySlice.hasNext() && CategoryRepositoryCustom.KEYSET_SORT_FIELDS.contains(sortBy)) {
+            categoryResponse.setNextCursor(nextCursor(categories.getLast(), sortBy, sortOrder));
+        }
+        return categoryResponse;
+    }
+
+    @Override
+    public CategoryResponse getAllCategoriesByCursor(String cursor, Integer pageSize, String sortBy, String sortOrder, boolean includeTotal) {
+        KeysetCursor position = cursor == null ? new KeysetCursor(sortBy, sortOrder, null, null) : KeysetCursor.decode(cursor);
+        position.requireSort(sortBy, sortOrder);
+
+        // Um item a mais indica se existe próxima página, sem precisar do COUNT.
+        List<Category> rows = categoryRepository.findAfter(
+                sortBy, position.ascending(), position.lastValue(), position.lastId(), pageSize + 1);
+        if (rows.isEmpty() && cursor == null) {
+            throw new APIException("No category created till now.");
+        }
+        boolean hasNext = rows.size() > pageSize;
+        List<Category> categories = hasNext ? rows.subList(0, pageSize) : rows;
+
+        CategoryResponse categoryResponse = new CategoryResponse();
+        categoryResponse.setContent(categories.stream()
+                .map(categoryMapper::toDTO)
+                .toList());
+        categoryResponse.setPageSize(pageSize);
+        categoryResponse.setLastPage(!hasNext);
+        if (includeTotal) {
+            long totalElements = categoryRepository.count();
+            categoryResponse.setTotalElements(totalElements);
+            categoryResponse.setTotalPages((int) Math.ceil((double) totalElements / pageSize));
+        }
+        if (hasNext) {
+            categoryResponse.setNextCursor(nextCursor(categories.getLast(), sortBy, sortOrder));
+        }
+        return categoryResponse;
+    }
+
+    private String nextCursor(Category last, String sortBy, String sortOrder) {
+        String lastValue = "categoryName".equals(sortBy) ? last.getCategoryName() : String.valueOf(last.getCategoryId());
+        return new KeysetCursor(sortBy, sortOrder, lastValue, last.getCategoryId()).encode();
+    }
+
     @Override
     public CategoryDTO createCategory(CategoryDTO categoryDTO) {
-        Category category = modelMapper.map(categoryDTO, Category.class);
+        Category category = categoryMapper.toEntity(categoryDTO);
         Category categoryFromDb = categoryRepository.findByCategoryName(category.getCategoryName());
         if (categoryFromDb != null) {
             throw new APIException("Category with the name " + category.getCategoryName() + " already exists !!!");
         }
         Category savedCategory = categoryRepository.save(category);
-        return modelMapper.map(savedCategory, CategoryDTO.class);
+        eventPublisher.publishEvent(new CategoryChangedEvent(savedCategory.getCategoryId()));
+        return categoryMapper.toDTO(savedCategory);
     }
 
     @Override
@@ -69,7 +142,8 @@ public class CategoryServiceImpl implements CategoryService {
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
 
         categoryRepository.delete(category);
-        return modelMapper.map(category, CategoryDTO.class);
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryId));
+        return categoryMapper.toDTO(category);
     }
 
     @Override
@@ -78,10 +152,11 @@ public class CategoryServiceImpl implements CategoryService {
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
 
         // Mapeia os dados do DTO para a entidade existente para evitar problemas com relacionamentos
-        modelMapper.map(categoryDTO, savedCategory);
+        categoryMapper.updateEntity(categoryDTO, savedCategory);
         savedCategory.setCategoryId(categoryId); // Garante que o ID não seja alterado
 
         Category updatedCategory = categoryRepository.save(savedCategory);
-        return modelMapper.map(updatedCategory, CategoryDTO.class);
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryId));
+        return categoryMapper.toDTO(updatedCategory);
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.payload.CheckoutStatusDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Streams SSE abertos por pedido, à espera do fim do checkout assíncrono.
+ * <p>
+ * {@link #publish} envia o status final (evento com o nome do status) a todos os streams do pedido e os fecha.
+ * Os streams ficam só na memória desta instância: se o checkout terminar em outra, o stream expira por
+ * 'config.checkout.sse-timeout-ms' e o cliente continua pelo GET de status.
+ */
+@Component
+public class CheckoutNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutNotifier.class);
+
+    private final long timeoutMs;
+    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    public CheckoutNotifier(@Value("${config.checkout.sse-timeout-ms:60000}") long timeoutMs,
+                            MeterRegistry meterRegistry) {
+        this.timeoutMs = timeoutMs;
+        meterRegistry.gaugeMapSize("checkout.sse.orders", List.of(), emitters);
+    }
+
+    public SseEmitter subscribe(Long orderId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitters.computeIfAbsent(orderId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        Runnable unsubscribe = () -> emitters.computeIfPresent(orderId, (id, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
+    }
+
+    public void publish(CheckoutStatusDTO status) {
+        List<SseEmitter> subscribers = emitters.remove(status.getOrderId());
+        if (subscribers == null) {
+            return;
+        }
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().name(status.getStatus().name()).data(status));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Checkout stream of order {} was already closed.", status.getOrderId());
+            }
+        }
+    }
+
+    int subscriberCount(Long orderId) {
+        List<SseEmitter> subscribers = emitters.get(orderId);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+}
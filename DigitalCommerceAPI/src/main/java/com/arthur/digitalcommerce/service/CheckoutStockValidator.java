@@ -0,0 +1,65 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.model.Cart;
+import com.arthur.digitalcommerce.model.CartItem;
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.projection.ProductStockView;
+import com.arthur.digitalcommerce.stock.HotStockCounters;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Confere se o carrinho ainda pode ir para o checkout.
+ * <p>
+ * O estoque de todos os produtos é lido em uma única consulta (projeção id/nome/estoque) e todas as
+ * linhas com problema são reportadas de uma vez, para o usuário corrigir o carrinho em uma só ida.
+ * Produtos quentes têm parte do estoque no contador em memória ({@link HotStockCounters}); essas unidades
+ * contam como disponíveis.
+ */
+@Component
+@RequiredArgsConstructor
+public class CheckoutStockValidator {
+
+    private final ProductRepository productRepository;
+    private final HotStockCounters hotStockCounters;
+
+    public void validate(Cart cart) {
+        if (cart.getCartItems() == null || cart.getCartItems().isEmpty()) {
+            throw new APIException("Cannot proceed to checkout with an empty cart.");
+        }
+
+        List<Long> productIds = cart.getCartItems().stream()
+                .map(item -> item.getProduct().getProductId())
+                .toList();
+        Map<Long, ProductStockView> stock = productRepository.findStockByProductIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductStockView::productId, Function.identity()));
+
+        List<String> problems = new ArrayList<>();
+        for (CartItem item : cart.getCartItems()) {
+            ProductStockView product = stock.get(item.getProduct().getProductId());
+            if (product == null) {
+                problems.add("'" + item.getProduct().getProductName() + "' is no longer available");
+                continue;
+            }
+            int available = product.quantityInStock() + hotStockCounters.leased(product.productId());
+            if (available <= 0) {
+                problems.add("'" + product.productName() + "' is out of stock");
+            } else if (item.getQuantity() > available) {
+                problems.add("'" + product.productName() + "' has insufficient stock (available: " +
+                        available + ", in your cart: " + item.getQuantity() + ")");
+            }
+        }
+
+        if (!problems.isEmpty()) {
+            throw new APIException("Cannot proceed to checkout: " + String.join("; ", problems) +
+                    ". Please update your cart to proceed.");
+        }
+    }
+}
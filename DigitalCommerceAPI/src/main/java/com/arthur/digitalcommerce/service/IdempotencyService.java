@@ -0,0 +1,231 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.exceptions.ConcurrentUpdateException;
+import com.arthur.digitalcommerce.exceptions.IdempotencyKeyReuseException;
+import com.arthur.digitalcommerce.model.IdempotencyRecord;
+import com.arthur.digitalcommerce.model.IdempotencyStatus;
+import com.arthur.digitalcommerce.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Idempotência das requisições com o header {@value #HEADER}.
+ * <p>
+ * A primeira requisição com uma chave reserva a linha em 'idempotency_keys' (INSERT ... ON CONFLICT, em transação
+ * própria e curta), executa a operação e grava a resposta em JSON. Repetições com a mesma chave recebem essa resposta
+ * de volta sem executar nada: primeiro de um cache Caffeine local, depois da tabela. Duplicatas que chegam enquanto a
+ * original ainda roda esperam por ela se estiverem na mesma instância; em outra instância recebem 409.
+ * <p>
+ * A chave vale por usuário e fica guardada por 'config.idempotency.ttl'. Reusar a chave com outra requisição
+ * (hash diferente) é recusado com 422. Se a operação falhar, a chave é liberada para que o cliente tente de novo.
+ * O contador {@value #METRIC} separa as requisições por desfecho.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final String METRIC = "idempotency.requests";
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+
+    private final Cache<String, StoredResponse> completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyKeyRepository repository,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${config.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${config.idempotency.in-progress-timeout:2m}") Duration inProgressTimeout,
+                              @Value("${config.idempotency.cache-max-size:10000}") long cacheMaxSize) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.inProgressTimeout = inProgressTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @FunctionalInterface
+    public interface Operation<E extends Exception> {
+        Object run() throws E;
+    }
+
+    /** Corpo JSON da resposta e se ele veio de uma execução anterior. */
+    public record IdempotentResponse(String body, boolean replayed) {
+    }
+
+    /**
+     * Executa a operação uma única vez por (usuário, chave).
+     *
+     * @param request identifica a requisição (método, rota e parâmetros); o hash dela detecta chaves reusadas
+     */
+    public <E extends Exception> IdempotentResponse execute(Long userId, String key, String request,
+                                                            Operation<E> operation) throws E {
+        validateKey(key);
+        String scope = userId + ":" + key;
+        String requestHash = sha256(request);
+
+        StoredResponse cached = completed.getIfPresent(scope);
+        if (cached != null) {
+            return replay(cached, requestHash, "cache");
+        }
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(scope, mine);
+        if (running != null) {
+            return awaitOriginal(running, requestHash);
+        }
+
+        try {
+            IdempotentResponse response = claimAndRun(userId, key, scope, requestHash, operation);
+            mine.result().complete(response.body());
+            return response;
+        } catch (Exception e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scope, mine);
+        }
+    }
+
+    public static void validateKey(String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new APIException(HEADER + " must have between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+    }
+
+    private <E extends Exception> IdempotentResponse claimAndRun(Long userId, String key, String scope,
+                                                                 String requestHash, Operation<E> operation) throws E {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> repository.claim(userId, key, requestHash, now,
+                now.plus(ttl), now.minus(inProgressTimeout)));
+
+        if (claimed == null || claimed == 0) {
+            IdempotencyRecord existing = repository.findByUserIdAndIdempotencyKey(userId, key)
+                    .orElseThrow(() -> new ConcurrentUpdateException("A request with this " + HEADER + " is being processed."));
+            if (existing.getStatus() != IdempotencyStatus.COMPLETED) {
+                count("in_progress");
+                throw new ConcurrentUpdateException("A request with this " + HEADER + " is still being processed. Retry later.");
+            }
+            StoredResponse stored = new StoredResponse(existing.getRequestHash(), existing.getResponseBody());
+            completed.put(scope, stored);
+            return replay(stored, requestHash, "database");
+        }
+
+        String body;
+        try {
+            body = toJson(operation.run());
+        } catch (Exception e) {
+            transactionTemplate.executeWithoutResult(status -> repository.release(userId, key));
+            count("failed");
+            throw e;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> repository.complete(userId, key, body));
+        completed.put(scope, new StoredResponse(requestHash, body));
+        count("executed");
+        return new IdempotentResponse(body, false);
+    }
+
+    // Duplicata concorrente na mesma instância: espera a original em vez de disputar a chave no banco.
+    private IdempotentResponse awaitOriginal(InFlight running, String requestHash) {
+        checkSameRequest(running.requestHash(), requestHash);
+        try {
+            String body = running.result().join();
+            count("coalesced");
+            return new IdempotentResponse(body, true);
+        } catch (CompletionException e) {
+            count("failed");
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new APIException("The original request with this " + HEADER + " failed. Retry with the same key.");
+        }
+    }
+
+    private IdempotentResponse replay(StoredResponse stored, String requestHash, String source) {
+        checkSameRequest(stored.requestHash(), requestHash);
+        meterRegistry.counter(METRIC, "outcome", "replayed", "source", source).increment();
+        return new IdempotentResponse(stored.body(), true);
+    }
+
+    private void checkSameRequest(String originalHash, String requestHash) {
+        if (!originalHash.equals(requestHash)) {
+            count("key_reused");
+            throw new IdempotencyKeyReuseException(HEADER + " was already used for a different request.");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${config.idempotency.purge-interval-ms:3600000}",
+            initialDelayString = "${config.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+        if (purged != null && purged > 0) {
+            logger.info("Purged {} expired idempotency keys.", purged);
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter(METRIC, "outcome", outcome).increment();
+    }
+
+    private String toJson(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the idempotent response.", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, String body) {
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<String> result) {
+    }
+}
@@ -4,8 +4,11 @@ package com.arthur.digitalcommerce.service;
 import com.mercadopago.client.preference.PreferenceRequest;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.exceptions.MPException;
+import com.mercadopago.resources.payment.Payment;
 import com.mercadopago.resources.preference.Preference;
 
 public interface MercadoPagoService {
     Preference createPaymentPreference(PreferenceRequest preferenceRequest) throws MPException, MPApiException;
-}
\ No newline at end of file
+
+    Payment getPayment(Long paymentId) throws MPException, MPApiException;
+}
@@ -1,30 +1,172 @@
 package com.arthur.digitalcommerce.service;
 
-import com.mercadopago.MercadoPagoConfig;
+import com.mercadopago.client.payment.PaymentClient;
 import com.mercadopago.client.preference.PreferenceClient;
 import com.mercadopago.client.preference.PreferenceRequest;
+import com.mercadopago.core.MPRequestOptions;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.exceptions.MPException;
+import com.mercadopago.net.MPDefaultHttpClient;
+import com.mercadopago.resources.payment.Payment;
 import com.mercadopago.resources.preference.Preference;
-import org.springframework.beans.factory.annotation.Autowired; // Importe
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gateway único para o SDK do Mercado Pago.
+ * <p>
+ * Os clients do SDK e o pool de conexões HTTP são criados uma vez e reaproveitados por todas as chamadas. O token e os
+ * timeouts vão em um {@link MPRequestOptions} fixo passado a cada chamada, sem mexer no estado global do
+ * {@code MercadoPagoConfig}. A latência de cada operação fica no timer {@value #METRIC} (tags operation e outcome).
+ * <p>
+ * Cada chamada pega antes uma permissão de um semáforo do tamanho do pool. No Java 21 uma virtual thread que espera
+ * conexão dentro do pool do HttpClient 4 fica presa à carrier (o pool espera dentro de um bloco synchronized); num pico
+ * do checkoutExecutor essas esperas ocupariam todas as carriers e nem quem já tem conexão conseguiria terminar. No
+ * semáforo a virtual thread só estaciona. A espera por uma vaga é limitada por 'pool-timeout-ms' (outcome
+ * pool_timeout), independente do connect timeout.
+ */
 @Service
-public class MercadoPagoServiceImpl implements MercadoPagoService {
+public class MercadoPagoServiceImpl implements MercadoPagoService, DisposableBean {
+
+    public static final String METRIC = "mercadopago.requests";
 
-    private final String mercadoPagoAccessToken;
+    private final PreferenceClient preferenceClient;
+    private final PaymentClient paymentClient;
+    private final MPRequestOptions requestOptions;
+    private final MeterRegistry meterRegistry;
+    private final CloseableHttpClient httpClient;
+    private final Semaphore connectionPermits;
+    private final long poolTimeoutMs;
 
     @Autowired
-    public MercadoPagoServiceImpl(@Value("${config.integrations.mercadopago.access-token}") String mercadoPagoAccessToken) {
-        this.mercadoPagoAccessToken = mercadoPagoAccessToken;
+    public MercadoPagoServiceImpl(@Value("${config.integrations.mercadopago.access-token}") String mercadoPagoAccessToken,
+                                  @Value("${config.integrations.mercadopago.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                  @Value("${config.integrations.mercadopago.read-timeout-ms:5000}") int readTimeoutMs,
+                                  @Value("${config.integrations.mercadopago.max-connections:20}") int maxConnections,
+                                  @Value("${config.integrations.mercadopago.pool-timeout-ms:10000}") int poolTimeoutMs,
+                                  MeterRegistry meterRegistry) {
+        this(pooledHttpClient(connectTimeoutMs, readTimeoutMs, maxConnections, poolTimeoutMs),
+                requestOptions(mercadoPagoAccessToken, connectTimeoutMs, readTimeoutMs, poolTimeoutMs), meterRegistry,
+                maxConnections, poolTimeoutMs);
+    }
+
+    private MercadoPagoServiceImpl(CloseableHttpClient httpClient, MPRequestOptions requestOptions,
+                                   MeterRegistry meterRegistry, int maxConnections, long poolTimeoutMs) {
+        this(new PreferenceClient(new MPDefaultHttpClient(httpClient)), new PaymentClient(new MPDefaultHttpClient(httpClient)),
+                requestOptions, meterRegistry, httpClient, maxConnections, poolTimeoutMs);
+    }
+
+    MercadoPagoServiceImpl(PreferenceClient preferenceClient, PaymentClient paymentClient,
+                           MPRequestOptions requestOptions, MeterRegistry meterRegistry, CloseableHttpClient httpClient,
+                           int maxConnections, long poolTimeoutMs) {
+        this.preferenceClient = preferenceClient;
+        this.paymentClient = paymentClient;
+        this.requestOptions = requestOptions;
+        this.meterRegistry = meterRegistry;
+        this.httpClient = httpClient;
+        this.connectionPermits = new Semaphore(maxConnections, true);
+        this.poolTimeoutMs = poolTimeoutMs;
+    }
+
+    // Pool compartilhado pelos dois clients: o checkout e os workers do webhook reaproveitam as conexões TLS.
+    // A fila de um pico fica no semáforo; o limite de espera do próprio pool é só uma segunda barreira.
+    static CloseableHttpClient pooledHttpClient(int connectTimeoutMs, int readTimeoutMs, int maxConnections,
+                                                int poolTimeoutMs) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setConnectionRequestTimeout(poolTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    // Timeouts próprios: quem chama espera o gateway por no máximo pool + connect + read.
+    private static MPRequestOptions requestOptions(String accessToken, int connectTimeoutMs, int readTimeoutMs,
+                                                   int poolTimeoutMs) {
+        return MPRequestOptions.builder()
+                .accessToken(accessToken)
+                .connectionTimeout(connectTimeoutMs)
+                .connectionRequestTimeout(poolTimeoutMs)
+                .socketTimeout(readTimeoutMs)
+                .build();
     }
 
     @Override
     public Preference createPaymentPreference(PreferenceRequest preferenceRequest) throws MPException, MPApiException {
-        MercadoPagoConfig.setAccessToken(mercadoPagoAccessToken);
+        return timed("create_preference", () -> preferenceClient.create(preferenceRequest, requestOptions));
+    }
+
+    @Override
+    public Payment getPayment(Long paymentId) throws MPException, MPApiException {
+        return timed("get_payment", () -> paymentClient.get(paymentId, requestOptions));
+    }
+
+    @FunctionalInterface
+    private interface GatewayCall<T> {
+        T call() throws MPException, MPApiException;
+    }
 
-        PreferenceClient client = new PreferenceClient();
-        return client.create(preferenceRequest);
+    private <T> T timed(String operation, GatewayCall<T> call) throws MPException, MPApiException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        boolean permitted = false;
+        try {
+            permitted = acquireConnectionPermit();
+            if (!permitted) {
+                outcome = "pool_timeout";
+                throw new MPException("No Mercado Pago connection available after " + poolTimeoutMs + " ms.");
+            }
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } catch (MPApiException e) {
+            outcome = "api_error";
+            throw e;
+        } finally {
+            if (permitted) {
+                connectionPermits.release();
+            }
+            sample.stop(Timer.builder(METRIC)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private boolean acquireConnectionPermit() throws MPException {
+        try {
+            return connectionPermits.tryAcquire(poolTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MPException("Interrupted while waiting for a Mercado Pago connection.", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        httpClient.close();
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,17 @@
 package com.arthur.digitalcommerce.service;
 
+import com.arthur.digitalcommerce.payload.CheckoutStatusDTO;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.exceptions.MPException;
 import com.mercadopago.resources.preference.Preference;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 public interface OrderService {
     Preference createPaymentPreference(Long addressId) throws MPException, MPApiException;
+
+    CheckoutStatusDTO startCheckout(Long addressId);
+
+    CheckoutStatusDTO getCheckoutStatus(Long orderId);
+
+    SseEmitter streamCheckoutStatus(Long orderId);
 }
\ No newline at end of file
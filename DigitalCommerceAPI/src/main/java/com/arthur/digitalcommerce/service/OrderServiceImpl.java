@@ -3,7 +3,10 @@ package com.arthur.digitalcommerce.service;
 import com.arthur.digitalcommerce.exceptions.APIException;
 import com.arthur.digitalcommerce.exceptions.ResourceNotFoundException;
 import com.arthur.digitalcommerce.model.*;
+import com.arthur.digitalcommerce.payload.CheckoutStatus;
+import com.arthur.digitalcommerce.payload.CheckoutStatusDTO;
 import com.arthur.digitalcommerce.repository.*;
+import com.arthur.digitalcommerce.repository.projection.OrderCheckoutView;
 import com.arthur.digitalcommerce.util.AuthUtil;
 import com.mercadopago.client.common.IdentificationRequest;
 import com.mercadopago.client.preference.*;
@@ -15,14 +18,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
+/**
+ * Checkout em duas fases.
+ * <p>
+ * A primeira é uma transação curta que valida o carrinho, grava o pedido, reserva o estoque e já monta o
+ * {@link PreferenceRequest}. A segunda chama o Mercado Pago fora de qualquer transação (com os timeouts do
+ * {@link MercadoPagoService}), então um gateway lento não segura conexões do pool nem locks de linha; o resultado
+ * é gravado no pedido em outra transação curta. Se a chamada falhar, o pedido vira CHECKOUT_FAILED e a reserva
+ * é devolvida na hora, sem esperar o sweeper.
+ * <p>
+ * No checkout assíncrono ({@link #startCheckout}) a requisição volta logo depois da primeira fase; a segunda roda no
+ * {@code checkoutExecutor} (virtual threads) e o resultado chega ao cliente pelo status do pedido ou pelo stream SSE.
+ */
 @Service
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
@@ -32,24 +50,98 @@ public class OrderServiceImpl implements OrderService {
     private final CartRepository cartRepository;
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
-    private final ProductRepository productRepository;
     private final AddressRepository addressRepository; // Adicionado
     private final AuthUtil authUtil;
     private final MercadoPagoService mercadoPagoService;
+    private final CheckoutStockValidator checkoutStockValidator;
+    private final StockReservationService stockReservationService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService checkoutExecutor;
+    private final CheckoutNotifier checkoutNotifier;
 
     @Value("${config.integrations.webhook.base-url}")
     private String webhookBaseUrl;
 
     @Override
-    @Transactional
     public Preference createPaymentPreference(Long addressId) {
         User user = authUtil.loggedInUser();
+        CheckoutDraft draft = transactionTemplate.execute(status -> persistOrder(user, addressId));
+        return requestPreference(draft);
+    }
+
+    @Override
+    public CheckoutStatusDTO startCheckout(Long addressId) {
+        User user = authUtil.loggedInUser();
+        CheckoutDraft draft = transactionTemplate.execute(status -> persistOrder(user, addressId));
+        try {
+            checkoutExecutor.execute(() -> completeCheckout(draft));
+        } catch (RejectedExecutionException e) {
+            // Aplicação desligando: o pedido não fica esperando uma preferência que nunca vai chegar.
+            failCheckout(draft.orderId());
+            throw new APIException("Checkout is temporarily unavailable. Please try again.");
+        }
+        return new CheckoutStatusDTO(draft.orderId(), CheckoutStatus.PREFERENCE_PENDING, null, null, "PENDING_PAYMENT");
+    }
+
+    private void completeCheckout(CheckoutDraft draft) {
+        CheckoutStatusDTO result;
+        try {
+            Preference preference = requestPreference(draft);
+            result = new CheckoutStatusDTO(draft.orderId(), CheckoutStatus.PREFERENCE_READY,
+                    preference.getId(), preference.getInitPoint(), "PENDING_PAYMENT");
+        } catch (RuntimeException e) {
+            result = new CheckoutStatusDTO(draft.orderId(), CheckoutStatus.FAILED, null, null, "CHECKOUT_FAILED");
+        }
+        checkoutNotifier.publish(result);
+    }
+
+    @Override
+    public CheckoutStatusDTO getCheckoutStatus(Long orderId) {
+        OrderCheckoutView order = orderRepository.findCheckoutView(orderId, authUtil.loggedInEmail())
+                .orElseThrow(() -> new ResourceNotFoundException("Order", "orderId", orderId));
+        return toCheckoutStatus(order);
+    }
+
+    @Override
+    public SseEmitter streamCheckoutStatus(Long orderId) {
+        CheckoutStatusDTO current = getCheckoutStatus(orderId);
+        SseEmitter emitter = checkoutNotifier.subscribe(orderId);
+        // Relê depois de assinar: se o checkout terminou entre as duas leituras, o evento não se perde. As duas
+        // leituras são projeções (consultas novas, sem entidade em cache) e nenhuma conexão fica presa ao stream.
+        if (!current.isTerminal()) {
+            current = getCheckoutStatus(orderId);
+        }
+        if (current.isTerminal()) {
+            checkoutNotifier.publish(current);
+        }
+        return emitter;
+    }
+
+    private static CheckoutStatusDTO toCheckoutStatus(OrderCheckoutView order) {
+        CheckoutStatus status;
+        if (order.preferenceId() != null) {
+            status = CheckoutStatus.PREFERENCE_READY;
+        } else if ("PENDING_PAYMENT".equals(order.orderStatus())) {
+            status = CheckoutStatus.PREFERENCE_PENDING;
+        } else {
+            status = CheckoutStatus.FAILED;
+        }
+        return new CheckoutStatusDTO(order.orderId(), status, order.preferenceId(),
+                order.paymentInitPoint(), order.orderStatus());
+    }
+
+    private record CheckoutDraft(Long orderId, PreferenceRequest preferenceRequest) {
+    }
+
+    private CheckoutDraft persistOrder(User user, Long addressId) {
         Cart userCart = cartRepository.findByUser(user)
                 .orElseThrow(() -> new APIException("Cart not found for user: " + user.getUserName()));
 
         if (userCart.getCartItems().isEmpty()) {
             throw new APIException("Cannot create a payment preference for an empty cart.");
         }
+        // Produto quente esgotado é recusado aqui, sem o endereço, a validação e o INSERT do pedido.
+        stockReservationService.admit(userCart);
 
         Address address = addressRepository.findById(addressId)
                 .orElseThrow(() -> new ResourceNotFoundException("Address", "addressId", addressId));
@@ -59,26 +151,50 @@ public class OrderServiceImpl implements OrderService {
         }
 
         logger.info("Validating cart for checkout...");
-        this.validateCartForCheckout(userCart);
+        checkoutStockValidator.validate(userCart);
         logger.info("Cart validation successful.");
 
         Order newOrder = createOrderInDatabase(user, userCart, address);
+        // A validação acima só dá a mensagem amigável; quem garante o estoque é a reserva atômica.
+        stockReservationService.reserve(newOrder);
 
-        try {
-            PreferenceRequest preferenceRequest = buildPreferenceRequest(newOrder, user, address);
+        return new CheckoutDraft(newOrder.getOrderId(), buildPreferenceRequest(newOrder, user, address));
+    }
 
+    private Preference requestPreference(CheckoutDraft draft) {
+        Preference preference;
+        try {
             logger.info("Sending preference request to MercadoPagoService...");
-            return mercadoPagoService.createPaymentPreference(preferenceRequest);
+            preference = mercadoPagoService.createPaymentPreference(draft.preferenceRequest());
 
-        } catch (MPException | MPApiException e) {
+        } catch (MPException | MPApiException | RuntimeException e) {
             logger.error("Error creating preference in Mercado Pago", e);
 
-            if (e instanceof MPApiException) {
-                MPApiException apiException = (MPApiException) e;
+            if (e instanceof MPApiException apiException && apiException.getApiResponse() != null) {
                 logger.error("Mercado Pago API Error Details: {}", apiException.getApiResponse().getContent());
             }
+            failCheckout(draft.orderId());
             throw new RuntimeException("Failed to communicate with Mercado Pago.", e);
         }
+
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.attachPreference(draft.orderId(), preference.getId(), preference.getInitPoint()));
+        logger.info("Preference {} attached to order {}.", preference.getId(), draft.orderId());
+        return preference;
+    }
+
+    private void failCheckout(Long orderId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (orderRepository.markCheckoutFailed(orderId) > 0) {
+                    stockReservationService.release(List.of(orderId));
+                }
+            });
+            logger.info("Order {} marked CHECKOUT_FAILED and its stock released.", orderId);
+        } catch (RuntimeException e) {
+            // A reserva expira sozinha pelo TTL; o sweeper devolve o estoque.
+            logger.error("Could not release the stock of order {} after the gateway failure.", orderId, e);
+        }
     }
 
     private Order createOrderInDatabase(User user, Cart userCart, Address address) {
@@ -174,25 +290,4 @@ public class OrderServiceImpl implements OrderService {
                 .notificationUrl(notificationUrl)
                 .build();
     }
-
-    private void validateCartForCheckout(Cart cart) {
-        if (cart.getCartItems() == null || cart.getCartItems().isEmpty()) {
-            throw new APIException("Cannot proceed to checkout with an empty cart.");
-        }
-
-        for (CartItem item : cart.getCartItems()) {
-            Product product = productRepository.findById(item.getProduct().getProductId())
-                    .orElseThrow(() -> new APIException("Product '" + item.getProduct().getProductName() +
-                            "' is no longer available. Please remove it from your cart."));
-
-            if (product.getQuantityInStock() <= 0) {
-                throw new APIException("Sorry, '" + product.getProductName() +
-                        "' is now out of stock. Please remove it from your cart to proceed.");
-            } else if (item.getQuantity() > product.getQuantityInStock()) {
-                throw new APIException("Cannot proceed to checkout. Product '" + product.getProductName() +
-                        "' has insufficient stock. Available: " + product.getQuantityInStock() +
-                        ", in your cart: " + item.getQuantity());
-            }
-        }
-    }
-}
\ No newline at end of file
+}
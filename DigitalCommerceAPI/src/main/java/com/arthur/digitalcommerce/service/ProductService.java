@@ -9,6 +9,10 @@ import java.io.IOException;
 public interface ProductService {
     ProductResponse getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
 
+    ProductResponse getAllProductsWithoutTotal(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder);
+
+    ProductResponse getAllProductsByCursor(String cursor, Integer pageSize, String sortBy, String sortOrder, boolean includeTotal);
+
     ProductDTO addProduct(ProductDTO productDTO, MultipartFile image) throws IOException;
 
     // Mantenha este, que é o nome mais claro
@@ -1,24 +1,34 @@
 package com.arthur.digitalcommerce.service;
 
+import com.arthur.digitalcommerce.cache.ProductCatalogCache;
+import com.arthur.digitalcommerce.cache.ProductCatalogCache.CatalogPageKey;
+import com.arthur.digitalcommerce.events.ProductCreatedEvent;
 import com.arthur.digitalcommerce.events.ProductDeletedEvent;
 import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
 import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.exceptions.ConcurrentUpdateException;
 import com.arthur.digitalcommerce.exceptions.ResourceNotFoundException;
+import com.arthur.digitalcommerce.mapper.ProductMapper;
 import com.arthur.digitalcommerce.model.Category;
 import com.arthur.digitalcommerce.model.Product;
 import com.arthur.digitalcommerce.payload.ProductDTO;
 import com.arthur.digitalcommerce.payload.ProductResponse;
 import com.arthur.digitalcommerce.repository.CategoryRepository;
 import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.ProductRepositoryCustom;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import com.arthur.digitalcommerce.search.ProductSearchEngine;
+import com.arthur.digitalcommerce.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -31,9 +41,11 @@ public class ProductServiceImpl implements ProductService {
 
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
-    private final ModelMapper modelMapper;
+    private final ProductMapper productMapper;
     private final FileService fileService;
     private final ApplicationEventPublisher eventPublisher;
+    private final ProductCatalogCache catalogCache;
+    private final ProductSearchEngine productSearchEngine;
 
     @Value("${config.paths.image-upload}")
     private String imageUploadPath;
@@ -50,24 +62,31 @@ public class ProductServiceImpl implements ProductService {
         }
 
         String imageFileName = fileService.uploadImage(imageUploadPath, image);
-        Product product = modelMapper.map(productDTO, Product.class);
+        Product product = productMapper.toEntity(productDTO);
         product.setCategory(category);
         product.setImage(imageFileName);
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductCreatedEvent(savedProduct));
 
-        return modelMapper.map(savedProduct, ProductDTO.class);
+        return productMapper.toDTO(savedProduct);
     }
 
 
     @Override
+    @Transactional
     public ProductDTO updateProduct(Long productId, ProductDTO productDTO, MultipartFile image) throws IOException {
         // 1. Encontre a entidade existente que será atualizada.
         Product productToUpdate = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
+        Long previousCategoryId = productToUpdate.getCategory() != null ? productToUpdate.getCategory().getCategoryId() : null;
+        BigDecimal previousUnitPrice = CartPricing.unitPrice(productToUpdate);
+        Integer previousStock = productToUpdate.getQuantityInStock();
 
-        // 2. Use o ModelMapper para aplicar as atualizações parciais.
-        // Graças à sua configuração, esta linha já ignora campos nulos no DTO.
-        modelMapper.map(productDTO, productToUpdate);
+        // 2. Aplica as atualizações parciais: campos nulos no DTO são ignorados.
+        productMapper.updateEntity(productDTO, productToUpdate);
+        // O estoque não vai no UPDATE da entidade (uma reserva feita depois da leitura seria sobrescrita):
+        // é gravado no passo 5, com um UPDATE condicional.
+        productToUpdate.setQuantityInStock(previousStock);
 
         // 3. Trate manualmente os casos especiais (associações e arquivos).
 
@@ -94,65 +113,142 @@ public class ProductServiceImpl implements ProductService {
             productToUpdate.setSpecialPriceActive(false);
         }
 
-        // 5. Salve a entidade atualizada, publique o evento e retorne o DTO.
+        // 5. Salve a entidade atualizada (só as colunas alteradas), o estoque, publique o evento e retorne o DTO.
         Product savedProduct = productRepository.save(productToUpdate);
-        eventPublisher.publishEvent(new ProductUpdatedEvent(savedProduct));
+        Integer requestedStock = productDTO.getQuantityInStock();
+        boolean stockChanged = requestedStock != null && !requestedStock.equals(previousStock);
+        if (stockChanged) {
+            if (productRepository.replaceStock(productId, previousStock, requestedStock) == 0) {
+                throw new ConcurrentUpdateException("The stock of product " + productId
+                        + " changed while it was being edited. Reload the product and try again.");
+            }
+            // A linha fica travada pelo UPDATE até o commit, então regravar o mesmo valor no flush é inofensivo.
+            savedProduct.setQuantityInStock(requestedStock);
+        }
+        boolean priceChanged = !CartPricing.samePrice(previousUnitPrice, CartPricing.unitPrice(savedProduct));
+        eventPublisher.publishEvent(new ProductUpdatedEvent(savedProduct, previousCategoryId, priceChanged, stockChanged));
 
-        return modelMapper.map(savedProduct, ProductDTO.class);
+        return productMapper.toDTO(savedProduct);
     }
 
     // ... (outros métodos como delete, buscas, etc. permanecem os mesmos)
     @Override
     public ProductResponse getAllProducts(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
-        Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> pageProducts = productRepository.findAll(pageDetails);
-        return createProductResponse(pageProducts);
+        CatalogPageKey key = CatalogPageKey.all(pageNumber, pageSize, sortBy, sortOrder);
+        return catalogCache.get(key, () -> {
+            Pageable pageDetails = PageRequest.of(pageNumber, pageSize, catalogSort(sortBy, sortOrder));
+            Page<ProductCatalogView> pageProducts = productRepository.findCatalogPage(pageDetails);
+            ProductResponse productResponse = createProductResponse(pageProducts);
+            // Permite ao cliente seguir dali em diante por keyset, sem OFFSET.
+            if (pageProducts.hasNext() && ProductRepositoryCustom.KEYSET_SORT_FIELDS.contains(sortBy)) {
+                productResponse.setNextCursor(nextCursor(pageProducts.getContent().getLast(), sortBy, sortOrder));
+            }
+            return productResponse;
+        });
     }
 
+    /**
+     * A mesma página por OFFSET sem o COUNT (includeTotal=false): totalElements e totalPages ficam nulos.
+     * Não passa pelo cache, cuja chave guarda a página completa.
+     */
     @Override
-    public ProductResponse getProductByCategoryId(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
-        Category category = categoryRepository.findById(categoryId)
-                .orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+    public ProductResponse getAllProductsWithoutTotal(Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, catalogSort(sortBy, sortOrder));
+        Slice<ProductCatalogView> sliceProducts = productRepository.findCatalogSlice(pageDetails);
 
-        Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> pageProducts = productRepository.findByCategoryOrderByPriceAsc(category, pageDetails);
+        ProductResponse productResponse = new ProductResponse();
+        productResponse.setContent(sliceProducts.getContent().stream().map(productMapper::toDTO).toList());
+        productResponse.setPageNumber(sliceProducts.getNumber());
+        productResponse.setPageSize(sliceProducts.getSize());
+        productResponse.setLastPage(!sliceProducts.hasNext());
+        if (sliceProducts.hasNext() && ProductRepositoryCustom.KEYSET_SORT_FIELDS.contains(sortBy)) {
+            productResponse.setNextCursor(nextCursor(sliceProducts.getContent().getLast(), sortBy, sortOrder));
+        }
+        return productResponse;
+    }
 
-        if (pageProducts.isEmpty()) {
-            throw new APIException(category.getCategoryName() + " category does not have any products.");
+    /**
+     * Listagem por keyset: continua depois do item codificado no cursor (ou do início, sem cursor),
+     * com um SELECT indexado e o COUNT apenas quando {@code includeTotal} for verdadeiro.
+     * Não passa pelo cache: o seek já é barato e cada cursor seria uma chave nova.
+     */
+    @Override
+    public ProductResponse getAllProductsByCursor(String cursor, Integer pageSize, String sortBy, String sortOrder, boolean includeTotal) {
+        KeysetCursor position = cursor == null ? new KeysetCursor(sortBy, sortOrder, null, null) : KeysetCursor.decode(cursor);
+        position.requireSort(sortBy, sortOrder);
+
+        // Busca um item a mais só para saber se existe próxima página.
+        List<ProductCatalogView> rows = productRepository.findCatalogAfter(
+                sortBy, position.ascending(), position.lastValue(), position.lastId(), pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        List<ProductCatalogView> content = hasNext ? rows.subList(0, pageSize) : rows;
+
+        ProductResponse productResponse = new ProductResponse();
+        productResponse.setContent(content.stream().map(productMapper::toDTO).toList());
+        productResponse.setPageSize(pageSize);
+        productResponse.setLastPage(!hasNext);
+        if (includeTotal) {
+            long totalElements = productRepository.count();
+            productResponse.setTotalElements(totalElements);
+            productResponse.setTotalPages((int) Math.ceil((double) totalElements / pageSize));
         }
+        if (hasNext) {
+            productResponse.setNextCursor(nextCursor(content.getLast(), sortBy, sortOrder));
+        }
+        return productResponse;
+    }
 
-        return createProductResponse(pageProducts);
+    @Override
+    public ProductResponse getProductByCategoryId(Long categoryId, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
+        CatalogPageKey key = CatalogPageKey.category(categoryId, pageNumber, pageSize, sortBy, sortOrder);
+        return catalogCache.get(key, () -> {
+            Category category = categoryRepository.findById(categoryId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Category", "categoryId", categoryId));
+
+            Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
+            Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
+            Page<ProductCatalogView> pageProducts = productRepository.findCatalogPageByCategoryId(categoryId, pageDetails);
+
+            if (pageProducts.isEmpty()) {
+                throw new APIException(category.getCategoryName() + " category does not have any products.");
+            }
+
+            return createProductResponse(pageProducts);
+        });
     }
 
     @Override
     public ProductResponse searchProductByKeyword(String keyword, Integer pageNumber, Integer pageSize, String sortBy, String sortOrder) {
-        Sort sortByAndOrder = sortOrder.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        Pageable pageDetails = PageRequest.of(pageNumber, pageSize, sortByAndOrder);
-        Page<Product> pageProducts = productRepository.findByProductNameLikeIgnoreCase('%' + keyword + '%', pageDetails);
+        CatalogPageKey key = CatalogPageKey.search(keyword, pageNumber, pageSize, sortBy, sortOrder);
+        return catalogCache.get(key, () -> {
+            Page<ProductCatalogView> pageProducts = productSearchEngine.search(keyword, pageNumber, pageSize, sortBy, sortOrder);
 
-        if (pageProducts.isEmpty()) {
-            throw new APIException("Products not found with keyword: " + keyword);
-        }
+            if (pageProducts.isEmpty()) {
+                throw new APIException("Products not found with keyword: " + keyword);
+            }
 
-        return createProductResponse(pageProducts);
+            return createProductResponse(pageProducts);
+        });
     }
 
     @Override
+    @Transactional
     public void deleteProduct(Long productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", "productId", productId));
 
+        Long categoryId = product.getCategory() != null ? product.getCategory().getCategoryId() : null;
+        // Publicado antes do DELETE: o listener dos carrinhos precisa ver os itens antes da cascata da FK.
+        // Os demais listeners (cache, busca) só rodam após o commit.
+        eventPublisher.publishEvent(new ProductDeletedEvent(productId, categoryId));
         productRepository.delete(product);
-        eventPublisher.publishEvent(new ProductDeletedEvent(productId));
     }
 
 
 
-    private ProductResponse createProductResponse(Page<Product> pageProducts) {
+    private ProductResponse createProductResponse(Page<ProductCatalogView> pageProducts) {
         List<ProductDTO> productDTOs = pageProducts.getContent().stream()
-                .map(product -> modelMapper.map(product, ProductDTO.class))
+                .map(productMapper::toDTO)
                 .toList();
 
         ProductResponse productResponse = new ProductResponse();
@@ -164,5 +260,23 @@ public class ProductServiceImpl implements ProductService {
         productResponse.setLastPage(pageProducts.isLast());
         return productResponse;
     }
-}
 
+    // Nos campos de keyset a página usa a mesma ordem do seek (nulos por último, depois o id), para que o
+    // nextCursor continue exatamente dali.
+    private static Sort catalogSort(String sortBy, String sortOrder) {
+        Sort.Direction direction = sortOrder.equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        if (!ProductRepositoryCustom.KEYSET_SORT_FIELDS.contains(sortBy) || "productId".equals(sortBy)) {
+            return Sort.by(direction, sortBy);
+        }
+        return Sort.by(new Sort.Order(direction, sortBy).nullsLast(), new Sort.Order(direction, "productId"));
+    }
+
+    private String nextCursor(ProductCatalogView last, String sortBy, String sortOrder) {
+        String lastValue = switch (sortBy) {
+            case "productName" -> last.productName();
+            case "price" -> last.price() != null ? last.price().toPlainString() : null;
+            default -> String.valueOf(last.productId());
+        };
+        return new KeysetCursor(sortBy, sortOrder, lastValue, last.productId()).encode();
+    }
+}
@@ -0,0 +1,189 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.model.Cart;
+import com.arthur.digitalcommerce.model.CartItem;
+import com.arthur.digitalcommerce.model.Order;
+import com.arthur.digitalcommerce.model.OrderItem;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.model.ReservationStatus;
+import com.arthur.digitalcommerce.model.StockReservation;
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.StockReservationRepository;
+import com.arthur.digitalcommerce.stock.HotStockCounters;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reserva de estoque do checkout.
+ * <p>
+ * Quando o pedido entra em PENDING_PAYMENT, cada produto tem o estoque descontado por um UPDATE condicional
+ * ({@code quantity_in_stock >= ?}): não há leitura antes da escrita, então compras simultâneas do mesmo
+ * produto nunca vendem além do estoque. Os produtos são sempre atualizados em ordem de id, para que pedidos
+ * com vários itens não travem uns aos outros. Produtos muito disputados são servidos pelo
+ * {@link HotStockCounters}, sem tocar na linha do produto. As reservas expiram após 'config.stock.reservation.ttl' e são
+ * devolvidas pelo {@link StockReservationSweeper}; o webhook confirma (pagamento aprovado) ou libera (recusado).
+ * <p>
+ * Métrica: 'stock.reservations', com tag 'outcome' (held, rejected, confirmed, re-reserved, unavailable, released).
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private final StockReservationRepository reservationRepository;
+    private final ProductRepository productRepository;
+    private final HotStockCounters hotStockCounters;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+
+    public StockReservationService(StockReservationRepository reservationRepository,
+                                   ProductRepository productRepository,
+                                   HotStockCounters hotStockCounters,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${config.stock.reservation.ttl:15m}") Duration ttl) {
+        this.reservationRepository = reservationRepository;
+        this.productRepository = productRepository;
+        this.hotStockCounters = hotStockCounters;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Caminho rápido de admissão: conta a tentativa em cada produto do carrinho (detecção de produto quente) e
+     * recusa o checkout se algum produto quente está sabidamente esgotado. Não consulta o banco; o checkout chama
+     * logo depois de ler o carrinho, antes de carregar o endereço, validar o estoque e gravar o pedido.
+     */
+    public void admit(Cart cart) {
+        Map<Long, Product> products = new TreeMap<>();
+        for (CartItem item : cart.getCartItems()) {
+            products.putIfAbsent(item.getProduct().getProductId(), item.getProduct());
+        }
+        List<String> unavailable = new ArrayList<>();
+        products.forEach((productId, product) -> {
+            if (!hotStockCounters.admit(productId)) {
+                unavailable.add("'" + product.getProductName() + "'");
+            }
+        });
+        if (!unavailable.isEmpty()) {
+            count("rejected", 1);
+            throw new APIException("Not enough stock to reserve " + String.join(", ", unavailable) +
+                    ". Please update your cart to proceed.");
+        }
+    }
+
+    /**
+     * Desconta o estoque de todos os itens do pedido e grava as reservas.
+     * Roda na transação que cria o pedido: se algum produto não tiver estoque, tudo é desfeito e
+     * a exceção lista todos os produtos em falta.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Order order) {
+        Map<Long, OrderLine> lines = linesByProduct(order);
+
+        List<String> unavailable = new ArrayList<>();
+        for (OrderLine line : lines.values()) {
+            Long productId = line.product().getProductId();
+            if (!hotStockCounters.tryTake(productId, line.quantity())
+                    && productRepository.decrementStock(productId, line.quantity()) == 0) {
+                unavailable.add("'" + line.product().getProductName() + "'");
+            }
+        }
+        if (!unavailable.isEmpty()) {
+            count("rejected", 1);
+            throw new APIException("Not enough stock to reserve " + String.join(", ", unavailable) +
+                    ". Please update your cart to proceed.");
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+        List<StockReservation> reservations = lines.values().stream()
+                .map(line -> new StockReservation(order, line.product(), line.quantity(), expiresAt))
+                .toList();
+        reservationRepository.saveAll(reservations);
+        count("held", reservations.size());
+    }
+
+    /**
+     * Torna definitivas as reservas de um pedido pago.
+     * Se elas já tinham sido liberadas (pagamento aprovado depois da expiração), tenta reservar de novo.
+     *
+     * @return {@code false} quando não há mais estoque para o pedido pago
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean confirm(Order order) {
+        Long orderId = order.getOrderId();
+        int confirmed = reservationRepository.updateStatus(orderId, ReservationStatus.HELD, ReservationStatus.CONFIRMED);
+        if (confirmed > 0) {
+            count("confirmed", confirmed);
+            return true;
+        }
+        if (reservationRepository.existsByOrderOrderIdAndStatus(orderId, ReservationStatus.CONFIRMED)) {
+            return true;
+        }
+
+        // Mesmo caminho do reserve: produto quente sai do contador em memória, os demais do banco.
+        List<OrderLine> taken = new ArrayList<>();
+        for (OrderLine line : linesByProduct(order).values()) {
+            Long productId = line.product().getProductId();
+            if (!hotStockCounters.tryTake(productId, line.quantity())
+                    && productRepository.decrementStock(productId, line.quantity()) == 0) {
+                // Devolve o que já tinha sido descontado: o pagamento continua registrado, sem o estoque.
+                // O que saiu do contador também volta para o banco (a transação do webhook não é desfeita).
+                taken.forEach(t -> productRepository.incrementStock(t.product().getProductId(), t.quantity()));
+                count("unavailable", 1);
+                logger.error("Order {} was paid after its stock reservation expired and '{}' is no longer available.",
+                        orderId, line.product().getProductName());
+                return false;
+            }
+            taken.add(line);
+        }
+        int reReserved = reservationRepository.updateStatus(orderId, ReservationStatus.RELEASED, ReservationStatus.CONFIRMED);
+        count("re-reserved", reReserved);
+        logger.info("Order {} was paid after its reservation expired; stock reserved again.", orderId);
+        return true;
+    }
+
+    /**
+     * Devolve ao estoque as reservas em aberto dos pedidos.
+     *
+     * @return quantas reservas foram liberadas
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int release(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        int released = reservationRepository.releaseHolds(orderIds);
+        count("released", released);
+        return released;
+    }
+
+    // Um pedido pode ter o mesmo produto em mais de uma linha; o TreeMap também fixa a ordem dos UPDATEs.
+    private static Map<Long, OrderLine> linesByProduct(Order order) {
+        Map<Long, OrderLine> lines = new TreeMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            lines.merge(item.getProduct().getProductId(), new OrderLine(item.getProduct(), item.getQuantity()),
+                    (a, b) -> new OrderLine(a.product(), a.quantity() + b.quantity()));
+        }
+        return lines;
+    }
+
+    private void count(String outcome, int amount) {
+        meterRegistry.counter("stock.reservations", "outcome", outcome).increment(amount);
+    }
+
+    private record OrderLine(Product product, int quantity) {
+    }
+}
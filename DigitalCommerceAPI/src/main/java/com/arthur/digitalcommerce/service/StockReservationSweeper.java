@@ -0,0 +1,68 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.repository.OrderRepository;
+import com.arthur.digitalcommerce.repository.StockReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Devolve ao estoque as reservas de pedidos não pagos (expirados) ou com pagamento recusado.
+ * <p>
+ * Cada lote é uma transação curta: trava os pedidos com SKIP LOCKED (o webhook trava o mesmo pedido
+ * antes de confirmar, então as duas pontas nunca dividem um pedido), libera as reservas e devolve o
+ * estoque em um único comando e marca como EXPIRED os pedidos que ainda aguardavam pagamento.
+ */
+@Component
+public class StockReservationSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationSweeper.class);
+
+    private final StockReservationRepository reservationRepository;
+    private final OrderRepository orderRepository;
+    private final StockReservationService reservationService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public StockReservationSweeper(StockReservationRepository reservationRepository,
+                                   OrderRepository orderRepository,
+                                   StockReservationService reservationService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${config.stock.reservation.sweep-batch-size:200}") int batchSize) {
+        this.reservationRepository = reservationRepository;
+        this.orderRepository = orderRepository;
+        this.reservationService = reservationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${config.stock.reservation.sweep-interval-ms:60000}",
+            initialDelayString = "${config.stock.reservation.sweep-interval-ms:60000}")
+    public void sweep() {
+        int sweptOrders = 0;
+        int orders;
+        do {
+            List<Long> orderIds = transactionTemplate.execute(status -> {
+                List<Long> claimed = reservationRepository.claimOrdersWithReleasableHolds(LocalDateTime.now(), batchSize);
+                if (!claimed.isEmpty()) {
+                    reservationService.release(claimed);
+                    orderRepository.markExpired(claimed);
+                }
+                return claimed;
+            });
+            orders = orderIds.size();
+            sweptOrders += orders;
+        } while (orders == batchSize);
+
+        if (sweptOrders > 0) {
+            logger.info("Released the stock reservations of {} orders.", sweptOrders);
+        }
+    }
+}
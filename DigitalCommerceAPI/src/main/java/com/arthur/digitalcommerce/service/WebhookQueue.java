@@ -0,0 +1,37 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.model.WebhookEvent;
+import com.arthur.digitalcommerce.repository.WebhookEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Entrada da fila de webhooks: grava a notificação (um INSERT) para que o endpoint responda na hora.
+ * O processamento fica com o {@link WebhookQueueWorker}.
+ */
+@Service
+public class WebhookQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookQueue.class);
+
+    private final WebhookEventRepository repository;
+    private final Counter enqueued;
+
+    public WebhookQueue(WebhookEventRepository repository, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.enqueued = meterRegistry.counter("webhook.queue.enqueued");
+    }
+
+    public void enqueue(String paymentId, String action) {
+        if (paymentId == null || paymentId.isBlank() || paymentId.length() > 64) {
+            logger.warn("Ignoring Mercado Pago notification with invalid payment id: {}", paymentId);
+            return;
+        }
+        WebhookEvent event = repository.save(new WebhookEvent(paymentId, action));
+        enqueued.increment();
+        logger.debug("Queued Mercado Pago notification {} for payment {}.", event.getId(), paymentId);
+    }
+}
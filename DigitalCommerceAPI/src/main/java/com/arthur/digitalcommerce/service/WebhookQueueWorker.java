@@ -0,0 +1,176 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.config.AsyncConfig;
+import com.arthur.digitalcommerce.model.WebhookEvent;
+import com.arthur.digitalcommerce.repository.WebhookEventRepository;
+import com.arthur.digitalcommerce.repository.projection.WebhookQueueStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drena a fila 'webhook_events'.
+ * <p>
+ * A cada poll pega no máximo tantos eventos quantos workers estão livres ('config.webhook.queue.workers'),
+ * em uma transação curta com SKIP LOCKED, e os entrega ao {@code webhookExecutor}. Cada evento roda o
+ * {@link WebhookService} de sempre; se falhar volta para PENDING com backoff exponencial (com jitter) e, depois
+ * de 'max-attempts', fica FAILED para análise manual. Um worker que cair no meio deixa o evento PROCESSING
+ * até o lease vencer, e então outro o pega.
+ * <p>
+ * Métricas: webhook.queue.depth e webhook.queue.lag.seconds (gauges, atualizados a cada 'stats-interval-ms'),
+ * webhook.queue.wait (do recebimento ao início do processamento), webhook.queue.processing e
+ * webhook.queue.events por desfecho (done, retry, failed).
+ */
+@Component
+public class WebhookQueueWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookQueueWorker.class);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final WebhookEventRepository repository;
+    private final WebhookService webhookService;
+    private final Executor executor;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Semaphore freeWorkers;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Timer waitTimer;
+    private final Timer processingTimer;
+    private final Counter done;
+    private final Counter retried;
+    private final Counter failed;
+
+    public WebhookQueueWorker(WebhookEventRepository repository,
+                              WebhookService webhookService,
+                              @Qualifier(AsyncConfig.WEBHOOK_EXECUTOR) Executor executor,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${config.webhook.queue.workers:4}") int workers,
+                              @Value("${config.webhook.queue.max-attempts:8}") int maxAttempts,
+                              @Value("${config.webhook.queue.lease:2m}") Duration lease,
+                              @Value("${config.webhook.queue.initial-backoff:5s}") Duration initialBackoff,
+                              @Value("${config.webhook.queue.max-backoff:30m}") Duration maxBackoff,
+                              @Value("${config.webhook.queue.retention:7d}") Duration retention) {
+        this.repository = repository;
+        this.webhookService = webhookService;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.freeWorkers = new Semaphore(workers);
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+
+        meterRegistry.gauge("webhook.queue.depth", depth);
+        meterRegistry.gauge("webhook.queue.lag.seconds", lagSeconds);
+        this.waitTimer = meterRegistry.timer("webhook.queue.wait");
+        this.processingTimer = meterRegistry.timer("webhook.queue.processing");
+        this.done = meterRegistry.counter("webhook.queue.events", "outcome", "done");
+        this.retried = meterRegistry.counter("webhook.queue.events", "outcome", "retry");
+        this.failed = meterRegistry.counter("webhook.queue.events", "outcome", "failed");
+    }
+
+    @Scheduled(fixedDelayString = "${config.webhook.queue.poll-interval-ms:250}")
+    public void poll() {
+        int free = freeWorkers.availablePermits();
+        if (free == 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<WebhookEvent> claimed = transactionTemplate.execute(status -> repository.claimDue(now, now.plus(lease), free));
+        for (WebhookEvent event : claimed) {
+            // Só o poll adquire permissões, então as 'free' lidas acima continuam disponíveis.
+            freeWorkers.acquireUninterruptibly();
+            try {
+                executor.execute(() -> {
+                    try {
+                        process(event);
+                    } finally {
+                        freeWorkers.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // Executor recusou (desligando): o lease vence e o evento volta para a fila.
+                freeWorkers.release();
+                logger.warn("Could not hand webhook event {} to a worker: {}", event.getId(), e.getMessage());
+            }
+        }
+    }
+
+    void process(WebhookEvent event) {
+        waitTimer.record(Duration.between(event.getReceivedAt(), LocalDateTime.now()));
+        try {
+            processingTimer.record(() -> webhookService.processPaymentNotification(event.getPaymentId()));
+            transactionTemplate.executeWithoutResult(status -> repository.markDone(event.getId(), LocalDateTime.now()));
+            done.increment();
+        } catch (RuntimeException e) {
+            String error = truncate(e.getClass().getSimpleName() + ": " + e.getMessage());
+            if (event.getAttempts() >= maxAttempts) {
+                transactionTemplate.executeWithoutResult(status -> repository.markFailed(event.getId(), LocalDateTime.now(), error));
+                failed.increment();
+                logger.error("Webhook event {} for payment {} failed after {} attempts: {}",
+                        event.getId(), event.getPaymentId(), event.getAttempts(), error);
+            } else {
+                LocalDateTime next = LocalDateTime.now().plus(backoff(event.getAttempts()));
+                transactionTemplate.executeWithoutResult(status -> repository.reschedule(event.getId(), next, error));
+                retried.increment();
+                logger.warn("Webhook event {} for payment {} failed (attempt {}), retrying at {}: {}",
+                        event.getId(), event.getPaymentId(), event.getAttempts(), next, error);
+            }
+        }
+    }
+
+    // initialBackoff * 2^(tentativa-1), limitado a maxBackoff, com até 20% de jitter para espalhar as novas tentativas.
+    Duration backoff(int attempt) {
+        long base = initialBackoff.toMillis() << Math.min(attempt - 1, 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        long jitter = ThreadLocalRandom.current().nextLong(capped / 5 + 1);
+        return Duration.ofMillis(capped + jitter);
+    }
+
+    @Scheduled(fixedDelayString = "${config.webhook.queue.stats-interval-ms:5000}")
+    public void refreshStats() {
+        WebhookQueueStats stats = repository.queueStats();
+        depth.set(stats.depth());
+        lagSeconds.set(stats.oldestReceivedAt() == null ? 0
+                : Math.max(0, Duration.between(stats.oldestReceivedAt(), LocalDateTime.now()).toSeconds()));
+    }
+
+    @Scheduled(fixedDelayString = "${config.webhook.queue.purge-interval-ms:3600000}",
+            initialDelayString = "${config.webhook.queue.purge-interval-ms:3600000}")
+    public void purgeProcessed() {
+        Integer purged = transactionTemplate.execute(status -> repository.deleteDoneBefore(LocalDateTime.now().minus(retention)));
+        if (purged != null && purged > 0) {
+            logger.info("Purged {} processed webhook events.", purged);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -4,96 +4,218 @@ import com.arthur.digitalcommerce.model.Order;
 import com.arthur.digitalcommerce.model.Payment;
 import com.arthur.digitalcommerce.repository.OrderRepository;
 import com.arthur.digitalcommerce.repository.PaymentRepository;
-import com.mercadopago.MercadoPagoConfig;
-import com.mercadopago.client.payment.PaymentClient;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.exceptions.MPException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Processa as notificações de pagamento do Mercado Pago (chamado pelo {@link WebhookQueueWorker}).
+ * <p>
+ * O Mercado Pago manda payment.created e payment.updated do mesmo pagamento, várias vezes em poucos segundos.
+ * Para não repetir o trabalho:
+ * <ul>
+ *   <li>notificações simultâneas do mesmo pagamento dividem uma única consulta ao gateway (single-flight);</li>
+ *   <li>um cache limitado guarda o último status já aplicado de cada pagamento: o mesmo status não abre outra
+ *       transação e, se o status for final, nem a consulta ao gateway é feita;</li>
+ *   <li>'payments.pg_payment_id' é único (V17), então um pagamento nunca gera duas linhas.</li>
+ * </ul>
+ * A consulta ao gateway roda fora da transação; só a atualização do pedido segura uma conexão.
+ */
 @Service
 public class WebhookServiceImpl implements WebhookService {
 
     private static final Logger logger = LoggerFactory.getLogger(WebhookServiceImpl.class);
 
-    private final String mercadoPagoAccessToken;
+    // Status que o Mercado Pago não muda mais (um novo pagamento recebe outro id).
+    private static final Set<String> FINAL_STATUSES = Set.of("approved", "rejected", "cancelled", "refunded", "charged_back");
+
+    private final MercadoPagoService mercadoPagoService;
     private final OrderRepository orderRepository;
     private final PaymentRepository paymentRepository;
     private final CartService cartService;
+    private final StockReservationService stockReservationService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, CompletableFuture<com.mercadopago.resources.payment.Payment>> inFlightFetches = new ConcurrentHashMap<>();
+    private final Cache<Long, String> processedStatuses;
+
+    private final Counter fetches;
+    private final Counter coalesced;
+    private final Counter deduplicated;
 
     @Autowired
     public WebhookServiceImpl(
-            @Value("${config.integrations.mercadopago.access-token}") String mercadoPagoAccessToken,
+            MercadoPagoService mercadoPagoService,
             OrderRepository orderRepository,
             PaymentRepository paymentRepository,
-            CartService cartService
+            CartService cartService,
+            StockReservationService stockReservationService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${config.webhook.dedup.max-size:10000}") long dedupMaxSize,
+            @Value("${config.webhook.dedup.ttl:10m}") Duration dedupTtl
     ) {
-        this.mercadoPagoAccessToken = mercadoPagoAccessToken;
+        this.mercadoPagoService = mercadoPagoService;
         this.orderRepository = orderRepository;
         this.paymentRepository = paymentRepository;
         this.cartService = cartService;
+        this.stockReservationService = stockReservationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.processedStatuses = Caffeine.newBuilder()
+                .maximumSize(dedupMaxSize)
+                .expireAfterWrite(dedupTtl)
+                .build();
+        this.fetches = meterRegistry.counter("webhook.payment.fetches");
+        this.coalesced = meterRegistry.counter("webhook.payment.coalesced");
+        this.deduplicated = meterRegistry.counter("webhook.payment.deduplicated");
     }
 
     @Override
-    @Transactional
     public void processPaymentNotification(String paymentIdStr) {
+        Long paymentId;
         try {
-            Long paymentId = Long.parseLong(paymentIdStr);
-            MercadoPagoConfig.setAccessToken(mercadoPagoAccessToken);
+            paymentId = Long.parseLong(paymentIdStr);
+        } catch (NumberFormatException e) {
+            logger.error("Invalid payment ID received from webhook: {}", paymentIdStr);
+            return;
+        }
+
+        String processedStatus = processedStatuses.getIfPresent(paymentId);
+        if (processedStatus != null && FINAL_STATUSES.contains(processedStatus)) {
+            deduplicated.increment();
+            logger.debug("Payment {} already processed with final status {}.", paymentId, processedStatus);
+            return;
+        }
 
-            PaymentClient client = new PaymentClient();
-            com.mercadopago.resources.payment.Payment paymentInfo = client.get(paymentId);
+        com.mercadopago.resources.payment.Payment paymentInfo = fetchPayment(paymentId);
+        if (paymentInfo == null) {
+            logger.warn("Payment with ID {} not found in Mercado Pago.", paymentId);
+            return;
+        }
 
-            if (paymentInfo == null) {
-                logger.warn("Payment with ID {} not found in Mercado Pago.", paymentId);
-                return;
-            }
+        String status = String.valueOf(paymentInfo.getStatus());
+        if (status.equals(processedStatuses.getIfPresent(paymentId))) {
+            deduplicated.increment();
+            logger.debug("Payment {} already processed with status {}.", paymentId, status);
+            return;
+        }
 
-            Long orderId = Long.parseLong(paymentInfo.getExternalReference());
-            Order order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new RuntimeException("Order with ID " + orderId + " not found."));
+        transactionTemplate.executeWithoutResult(tx -> applyPayment(paymentInfo));
+        processedStatuses.put(paymentId, status);
+    }
 
-            if ("PAID".equals(order.getOrderStatus())) {
-                logger.info("Order {} is already PAID. No action needed.", orderId);
-                return;
+    /**
+     * Uma única consulta em andamento por pagamento: quem chega durante a consulta recebe o mesmo resultado.
+     * Se esse resultado ainda não é final, a notificação que pegou carona pode ser de uma mudança posterior,
+     * então ela consulta de novo.
+     */
+    private com.mercadopago.resources.payment.Payment fetchPayment(Long paymentId) {
+        CompletableFuture<com.mercadopago.resources.payment.Payment> mine = new CompletableFuture<>();
+        CompletableFuture<com.mercadopago.resources.payment.Payment> running = inFlightFetches.putIfAbsent(paymentId, mine);
+        if (running != null) {
+            coalesced.increment();
+            com.mercadopago.resources.payment.Payment shared = join(running);
+            if (shared == null || FINAL_STATUSES.contains(String.valueOf(shared.getStatus()))) {
+                return shared;
             }
+            return fetchPayment(paymentId);
+        }
+
+        try {
+            fetches.increment();
+            com.mercadopago.resources.payment.Payment payment = mercadoPagoService.getPayment(paymentId);
+            mine.complete(payment);
+            return payment;
+        } catch (MPException | MPApiException e) {
+            IllegalStateException failure = new IllegalStateException(
+                    "Could not fetch payment " + paymentId + " from Mercado Pago.", e);
+            mine.completeExceptionally(failure);
+            // Propaga para que o WebhookQueueWorker tente de novo com backoff.
+            throw failure;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightFetches.remove(paymentId, mine);
+        }
+    }
 
-            Payment paymentEntity = order.getPayment() != null ? order.getPayment() : new Payment();
-            paymentEntity.setPgPaymentId(paymentInfo.getId().toString());
-            paymentEntity.setPgStatus(paymentInfo.getStatus().toString());
-            paymentEntity.setPgStatusDetail(paymentInfo.getStatusDetail());
-            paymentEntity.setAmount(paymentInfo.getTransactionAmount());
-            paymentEntity.setOrder(order);
-            paymentEntity.setPaymentMethod(paymentInfo.getPaymentTypeId());
-            paymentEntity.setPgName("MercadoPago");
+    private static com.mercadopago.resources.payment.Payment join(
+            CompletableFuture<com.mercadopago.resources.payment.Payment> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
 
-            if ("approved".equals(paymentInfo.getStatus().toString())) {
-                order.setOrderStatus("PAID");
-                paymentEntity.setConfirmedAt(LocalDateTime.now());
-                logger.info("Order {} updated to PAID.", orderId);
+    private void applyPayment(com.mercadopago.resources.payment.Payment paymentInfo) {
+        Long orderId = Long.parseLong(paymentInfo.getExternalReference());
+        Order order = orderRepository.findByIdForUpdate(orderId)
+                .orElseThrow(() -> new RuntimeException("Order with ID " + orderId + " not found."));
 
-                cartService.clearCartByUserEmail(order.getEmail());
-                logger.info("Requested cart clearance for user {}.", order.getEmail());
+        if ("PAID".equals(order.getOrderStatus())) {
+            logger.info("Order {} is already PAID. No action needed.", orderId);
+            return;
+        }
 
+        String pgPaymentId = paymentInfo.getId().toString();
+        Payment paymentEntity = order.getPayment() != null ? order.getPayment()
+                : paymentRepository.findByPgPaymentId(pgPaymentId).orElseGet(Payment::new);
+        paymentEntity.setPgPaymentId(pgPaymentId);
+        paymentEntity.setPgStatus(paymentInfo.getStatus().toString());
+        paymentEntity.setPgStatusDetail(paymentInfo.getStatusDetail());
+        paymentEntity.setAmount(paymentInfo.getTransactionAmount());
+        paymentEntity.setOrder(order);
+        paymentEntity.setPaymentMethod(paymentInfo.getPaymentTypeId());
+        paymentEntity.setPgName("MercadoPago");
+
+        if ("approved".equals(paymentInfo.getStatus().toString())) {
+            paymentEntity.setConfirmedAt(LocalDateTime.now());
+            if (stockReservationService.confirm(order)) {
+                order.setOrderStatus("PAID");
+                logger.info("Order {} updated to PAID.", orderId);
             } else {
-                order.setOrderStatus("PAYMENT_FAILED");
-                logger.info("Payment for order {} failed with status: {}", orderId, paymentInfo.getStatus());
+                // Pago depois que a reserva expirou e o estoque acabou: precisa de estorno ou reposição manual.
+                order.setOrderStatus("PAID_OUT_OF_STOCK");
+                logger.warn("Order {} updated to PAID_OUT_OF_STOCK.", orderId);
             }
 
-            paymentRepository.save(paymentEntity);
-            order.setPayment(paymentEntity);
-            orderRepository.save(order);
+            cartService.clearCartByUserEmail(order.getEmail());
+            logger.info("Requested cart clearance for user {}.", order.getEmail());
 
-        } catch (MPException | MPApiException e) {
-            logger.error("Error processing Mercado Pago notification: ", e);
-        } catch (NumberFormatException e) {
-            logger.error("Invalid payment ID received from webhook: {}", paymentIdStr);
+        } else if (FINAL_STATUSES.contains(paymentInfo.getStatus().toString())) {
+            order.setOrderStatus("PAYMENT_FAILED");
+            stockReservationService.release(List.of(orderId));
+            logger.info("Payment for order {} failed with status: {}", orderId, paymentInfo.getStatus());
+
+        } else {
+            // pending, in_process, authorized: primeira notificação normal de PIX e boleto. O pedido continua em
+            // PENDING_PAYMENT e a reserva fica de pé até a aprovação (ou até expirar pelo TTL).
+            logger.info("Payment for order {} is still {}; keeping the stock reservation.", orderId, paymentInfo.getStatus());
         }
+
+        paymentRepository.save(paymentEntity);
+        order.setPayment(paymentEntity);
+        orderRepository.save(order);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,279 @@
+package com.arthur.digitalcommerce.stock;
+
+import com.arthur.digitalcommerce.events.ProductDeletedEvent;
+import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estoque em memória para os produtos mais disputados (flash sales).
+ * <p>
+ * A cada tick a taxa de tentativas de reserva de cada produto é medida; acima de
+ * 'config.stock.hot.threshold-per-second' o produto fica "quente" e recebe um {@link StripedStockCounter}.
+ * O contador é abastecido em segundo plano com um lote do estoque do banco (cerca de um segundo de demanda),
+ * tirado da linha de 'products' em uma transação curta e própria. Os checkouts consomem do contador sem
+ * tocar na linha; se ele estiver vazio, caem no UPDATE condicional de sempre.
+ * <p>
+ * O banco continua sendo a fonte da verdade: só sai para a memória o que foi descontado dele, então várias
+ * instâncias nunca vendem além do estoque. Sobras voltam para 'products' em lotes (produto esfriou, contador
+ * acima do necessário, desligamento). Se a instância cair, o lote em memória se perde (vende-se a menos, nunca
+ * a mais), limitado a 'config.stock.hot.max-lease' por produto.
+ * <p>
+ * Produto quente sem estoque no banco fica marcado como esgotado por 'sold-out-ttl-ms': novos checkouts
+ * são recusados sem ir ao banco.
+ */
+@Component
+public class HotStockCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotStockCounters.class);
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate givebackTransaction;
+
+    private final boolean enabled;
+    private final double thresholdPerSecond;
+    private final long tickMs;
+    private final int stripes;
+    private final int maxLease;
+    private final long soldOutTtlNanos;
+
+    private final Map<Long, LongAdder> attempts = new ConcurrentHashMap<>();
+    private final Map<Long, StripedStockCounter> hot = new ConcurrentHashMap<>();
+    private final Map<Long, Long> soldOutUntil = new ConcurrentHashMap<>();
+
+    private final Counter memoryTakes;
+    private final Counter admissionRejections;
+    private final Counter leasedUnits;
+    private final Counter returnedUnits;
+
+    public HotStockCounters(ProductRepository productRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${config.stock.hot.enabled:true}") boolean enabled,
+                            @Value("${config.stock.hot.threshold-per-second:20}") double thresholdPerSecond,
+                            @Value("${config.stock.hot.tick-ms:250}") long tickMs,
+                            @Value("${config.stock.hot.stripes:8}") int stripes,
+                            @Value("${config.stock.hot.max-lease:200}") int maxLease,
+                            @Value("${config.stock.hot.sold-out-ttl-ms:1000}") long soldOutTtlMs) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.givebackTransaction = new TransactionTemplate(transactionManager);
+        this.givebackTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.thresholdPerSecond = thresholdPerSecond;
+        this.tickMs = tickMs;
+        this.stripes = stripes;
+        this.maxLease = maxLease;
+        this.soldOutTtlNanos = TimeUnit.MILLISECONDS.toNanos(soldOutTtlMs);
+
+        this.memoryTakes = meterRegistry.counter("stock.hot.takes");
+        this.admissionRejections = meterRegistry.counter("stock.hot.rejected");
+        this.leasedUnits = meterRegistry.counter("stock.hot.leased");
+        this.returnedUnits = meterRegistry.counter("stock.hot.returned");
+        meterRegistry.gaugeMapSize("stock.hot.products", List.of(), hot);
+    }
+
+    /**
+     * Conta a tentativa de reserva (para a detecção) e aplica o caminho rápido de admissão.
+     *
+     * @return {@code false} se o produto está sabidamente esgotado
+     */
+    public boolean admit(Long productId) {
+        if (!enabled) {
+            return true;
+        }
+        attempts.computeIfAbsent(productId, id -> new LongAdder()).increment();
+        Long until = soldOutUntil.get(productId);
+        if (until != null && until - System.nanoTime() > 0) {
+            admissionRejections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tenta reservar do contador em memória. Se a transação do checkout for desfeita, as unidades
+     * voltam para o banco.
+     *
+     * @return {@code false} se o produto não está quente ou o contador não tem o suficiente (use o banco)
+     */
+    public boolean tryTake(Long productId, int quantity) {
+        StripedStockCounter counter = hot.get(productId);
+        if (counter == null || !counter.tryTake(quantity)) {
+            return false;
+        }
+        memoryTakes.increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restock(Map.of(productId, quantity), givebackTransaction);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    public boolean isHot(Long productId) {
+        return hot.containsKey(productId);
+    }
+
+    /**
+     * Unidades do produto que estão no contador em memória, já descontadas de 'products.quantity_in_stock'.
+     * Toda conferência de estoque soma este valor ao do banco.
+     */
+    public int leased(Long productId) {
+        StripedStockCounter counter = hot.get(productId);
+        return counter != null ? counter.available() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${config.stock.hot.tick-ms:250}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        double seconds = tickMs / 1000.0;
+        Map<Long, Integer> surplus = new ConcurrentHashMap<>();
+
+        for (Map.Entry<Long, LongAdder> entry : attempts.entrySet()) {
+            Long productId = entry.getKey();
+            long count = entry.getValue().sumThenReset();
+            double rate = count / seconds;
+
+            if (rate >= thresholdPerSecond && !hot.containsKey(productId)) {
+                hot.put(productId, new StripedStockCounter(stripes));
+                logger.info("Product {} is hot ({} reservations/s); serving its stock from memory.", productId, Math.round(rate));
+            }
+            StripedStockCounter counter = hot.get(productId);
+            if (counter == null) {
+                if (count == 0) {
+                    attempts.remove(productId, entry.getValue());
+                }
+            } else if (rate < thresholdPerSecond / 2) {
+                hot.remove(productId);
+                addSurplus(surplus, productId, counter.drain());
+                logger.info("Product {} cooled down; its stock is back in the database.", productId);
+            } else {
+                rebalance(productId, counter, (int) Math.min(maxLease, Math.max(1, Math.ceil(rate))), surplus);
+            }
+        }
+
+        restock(surplus, transactionTemplate);
+        long now = System.nanoTime();
+        soldOutUntil.values().removeIf(until -> until - now <= 0);
+    }
+
+    // Mantém no contador cerca de um segundo de demanda: abaixo da metade pede um lote ao banco,
+    // acima do dobro devolve a sobra.
+    private void rebalance(Long productId, StripedStockCounter counter, int target, Map<Long, Integer> surplus) {
+        int available = counter.available();
+        if (available > 2 * target) {
+            addSurplus(surplus, productId, counter.takeUpTo(available - target));
+            return;
+        }
+        if (available >= target / 2) {
+            return;
+        }
+        Integer leased = transactionTemplate.execute(status -> productRepository.leaseStock(productId, target - available));
+        if (leased == null) {
+            // Produto apagado.
+            hot.remove(productId);
+            attempts.remove(productId);
+            return;
+        }
+        if (leased > 0) {
+            counter.add(leased);
+            leasedUnits.increment(leased);
+        } else if (counter.available() == 0) {
+            soldOutUntil.put(productId, System.nanoTime() + soldOutTtlNanos);
+        }
+    }
+
+    private static void addSurplus(Map<Long, Integer> surplus, Long productId, int quantity) {
+        if (quantity > 0) {
+            surplus.merge(productId, quantity, Integer::sum);
+        }
+    }
+
+    // Devolve as unidades ao banco em um único UPDATE.
+    private void restock(Map<Long, Integer> quantities, TransactionTemplate template) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Long> productIds = new ArrayList<>(quantities.keySet());
+        Integer[] amounts = productIds.stream().map(quantities::get).toArray(Integer[]::new);
+        template.executeWithoutResult(status -> productRepository.restock(productIds.toArray(Long[]::new), amounts));
+        returnedUnits.increment(quantities.values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    /**
+     * Quando a edição grava um estoque absoluto (informado pelo vendedor), ele passa a ser a verdade: o lote em
+     * memória é descartado (não volta ao banco) e o produto deixa de ser considerado esgotado. Edições que não
+     * mexem no estoque (preço, descrição) não tocam no contador.
+     * <p>
+     * Roda dentro da transação da edição, depois do UPDATE do estoque: a linha está travada até o commit, então
+     * nenhum lote novo é tirado dela antes do descarte. Se a edição for desfeita, o lote volta para o banco.
+     */
+    @EventListener
+    public void onProductUpdated(ProductUpdatedEvent event) {
+        if (!event.isStockChanged()) {
+            return;
+        }
+        Long productId = event.getProduct().getProductId();
+        StripedStockCounter counter = hot.get(productId);
+        int discarded = counter != null ? counter.drain() : 0;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            soldOutUntil.remove(productId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    soldOutUntil.remove(productId);
+                } else if (discarded > 0) {
+                    restock(Map.of(productId, discarded), givebackTransaction);
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        hot.remove(event.getProductId());
+        attempts.remove(event.getProductId());
+        soldOutUntil.remove(event.getProductId());
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        Map<Long, Integer> remaining = new ConcurrentHashMap<>();
+        hot.forEach((productId, counter) -> addSurplus(remaining, productId, counter.drain()));
+        hot.clear();
+        restock(remaining, transactionTemplate);
+    }
+}
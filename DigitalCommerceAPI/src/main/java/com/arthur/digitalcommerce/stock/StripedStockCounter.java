@@ -0,0 +1,105 @@
+package com.arthur.digitalcommerce.stock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Estoque em memória de um produto, dividido em faixas de {@link AtomicInteger}.
+ * <p>
+ * Cada thread começa pela própria faixa e só passa para as outras se ela não tiver o suficiente,
+ * então checkouts simultâneos do mesmo produto raramente disputam o mesmo CAS. Quando nenhuma faixa sozinha
+ * tem a quantidade pedida, ela é juntada de várias faixas (sob o lock do contador) e devolvida se faltar.
+ * Nunca fica negativo.
+ */
+final class StripedStockCounter {
+
+    private final AtomicInteger[] stripes;
+
+    StripedStockCounter(int stripeCount) {
+        stripes = new AtomicInteger[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new AtomicInteger();
+        }
+    }
+
+    boolean tryTake(int quantity) {
+        int start = (int) (Thread.currentThread().threadId() % stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            AtomicInteger stripe = stripes[(start + i) % stripes.length];
+            int current;
+            while ((current = stripe.get()) >= quantity) {
+                if (stripe.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return takeAcrossStripes(quantity);
+    }
+
+    // Caminho lento: o lock impede que dois pedidos grandes fiquem cada um com uma parte e os dois desistam.
+    private synchronized boolean takeAcrossStripes(int quantity) {
+        int[] takenFrom = new int[stripes.length];
+        int taken = 0;
+        for (int i = 0; i < stripes.length && taken < quantity; i++) {
+            int current;
+            while (taken < quantity && (current = stripes[i].get()) > 0) {
+                int amount = Math.min(current, quantity - taken);
+                if (stripes[i].compareAndSet(current, current - amount)) {
+                    takenFrom[i] += amount;
+                    taken += amount;
+                }
+            }
+        }
+        if (taken == quantity) {
+            return true;
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            if (takenFrom[i] > 0) {
+                stripes[i].addAndGet(takenFrom[i]);
+            }
+        }
+        return false;
+    }
+
+    /** Distribui a quantidade igualmente entre as faixas. */
+    void add(int quantity) {
+        int share = quantity / stripes.length;
+        int remainder = quantity % stripes.length;
+        for (int i = 0; i < stripes.length; i++) {
+            int amount = share + (i < remainder ? 1 : 0);
+            if (amount > 0) {
+                stripes[i].addAndGet(amount);
+            }
+        }
+    }
+
+    /** Retira até {@code max} unidades (para devolver ao banco) e diz quantas conseguiu. */
+    int takeUpTo(int max) {
+        int taken = 0;
+        for (AtomicInteger stripe : stripes) {
+            int current;
+            while (taken < max && (current = stripe.get()) > 0) {
+                int amount = Math.min(current, max - taken);
+                if (stripe.compareAndSet(current, current - amount)) {
+                    taken += amount;
+                }
+            }
+        }
+        return taken;
+    }
+
+    int drain() {
+        int drained = 0;
+        for (AtomicInteger stripe : stripes) {
+            drained += stripe.getAndSet(0);
+        }
+        return drained;
+    }
+
+    int available() {
+        int available = 0;
+        for (AtomicInteger stripe : stripes) {
+            available += stripe.get();
+        }
+        return available;
+    }
+}
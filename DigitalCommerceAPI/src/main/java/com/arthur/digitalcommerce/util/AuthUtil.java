@@ -2,42 +2,83 @@ package com.arthur.digitalcommerce.util;
 
 import com.arthur.digitalcommerce.model.User;
 import com.arthur.digitalcommerce.repository.UserRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.arthur.digitalcommerce.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
 
+/**
+ * Acesso ao usuário logado.
+ * <p>
+ * Id e e-mail saem do principal montado pelo AuthTokenFilter a partir das claims do JWT, sem consulta.
+ * O banco só é consultado em {@link #loggedInUser()}, quando a entidade completa é necessária, e no
+ * máximo uma vez por requisição HTTP ({@link CurrentUserContext}). O contador {@value #LOOKUP_METRIC}
+ * separa as consultas feitas ('database') das evitadas ('principal' e 'memoized').
+ */
 @Component
 public class AuthUtil {
 
-    @Autowired
-    UserRepository userRepository;
+    public static final String LOOKUP_METRIC = "auth.user.lookups";
 
-    public String loggedInEmail(){
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByUserName(authentication.getName())
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + authentication.getName()));
+    private final UserRepository userRepository;
+    private final CurrentUserContext currentUserContext;
+
+    private final Counter databaseLookups;
+    private final Counter principalHits;
+    private final Counter memoizedHits;
 
-        return user.getEmail();
+    public AuthUtil(UserRepository userRepository, CurrentUserContext currentUserContext, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.currentUserContext = currentUserContext;
+        this.databaseLookups = meterRegistry.counter(LOOKUP_METRIC, "source", "database");
+        this.principalHits = meterRegistry.counter(LOOKUP_METRIC, "source", "principal");
+        this.memoizedHits = meterRegistry.counter(LOOKUP_METRIC, "source", "memoized");
     }
 
-    public Long loggedInUserId(){
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        User user = userRepository.findByUserName(authentication.getName())
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + authentication.getName()));
+    public String loggedInEmail(){
+        UserDetailsImpl principal = currentPrincipal();
+        if (principal != null && principal.getEmail() != null) {
+            principalHits.increment();
+            return principal.getEmail();
+        }
+        return loggedInUser().getEmail();
+    }
 
-        return user.getUserId();
+    public Long loggedInUserId(){
+        UserDetailsImpl principal = currentPrincipal();
+        if (principal != null && principal.getId() != null) {
+            principalHits.increment();
+            return principal.getId();
+        }
+        return loggedInUser().getUserId();
     }
 
     public User loggedInUser(){
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean inRequest = RequestContextHolder.getRequestAttributes() != null;
+        if (inRequest && currentUserContext.getUser() != null) {
+            memoizedHits.increment();
+            return currentUserContext.getUser();
+        }
 
-        User user = userRepository.findByUserName(authentication.getName())
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + authentication.getName()));
+        User user = loadLoggedInUser();
+        databaseLookups.increment();
+        if (inRequest) {
+            currentUserContext.setUser(user);
+        }
         return user;
+    }
 
+    /**
+     * Referência (proxy) ao usuário logado, sem SELECT. Serve para associar o usuário a outra
+     * entidade (ex.: um carrinho novo) quando nenhum campo dele precisa ser lido.
+     */
+    public User loggedInUserReference(){
+        return userRepository.getReferenceById(loggedInUserId());
     }
 
     public static String getJwtToken() {
@@ -51,5 +92,26 @@ public class AuthUtil {
         return null;
     }
 
+    private static Authentication currentAuthentication() {
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static UserDetailsImpl currentPrincipal() {
+        Authentication authentication = currentAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl principal) {
+            return principal;
+        }
+        return null;
+    }
 
-}
\ No newline at end of file
+    private User loadLoggedInUser() {
+        UserDetailsImpl principal = currentPrincipal();
+        if (principal != null && principal.getId() != null) {
+            return userRepository.findById(principal.getId())
+                    .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + principal.getUsername()));
+        }
+        String username = currentAuthentication().getName();
+        return userRepository.findByUserName(username)
+                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+    }
+}
@@ -0,0 +1,28 @@
+package com.arthur.digitalcommerce.util;
+
+import com.arthur.digitalcommerce.model.User;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Usuário logado já carregado na requisição HTTP atual, para que o {@link AuthUtil}
+ * o busque no banco no máximo uma vez por requisição.
+ * <p>
+ * Com open-in-view desligado a entidade guardada fica destacada assim que a consulta termina: serve
+ * para ler os campos simples (id, e-mail, nome, CPF, roles), mas associações lazy (endereços,
+ * carrinho, produtos) só podem ser percorridas por quem a carregou dentro da própria transação.
+ */
+@Component
+@RequestScope
+public class CurrentUserContext {
+
+    private User user;
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+}
@@ -0,0 +1,53 @@
+package com.arthur.digitalcommerce.util;
+
+import com.arthur.digitalcommerce.exceptions.APIException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor opaco da paginação por keyset: guarda a ordenação usada e a chave (valor do campo + id)
+ * do último item entregue. O cliente só repassa o valor de {@code nextCursor}.
+ *
+ * @param lastValue valor do campo de ordenação no último item, como texto; {@code null} quando o campo era nulo
+ *                  (os nulos vêm por último, em ordem de id)
+ */
+public record KeysetCursor(String sortBy, String sortOrder, String lastValue, Long lastId) {
+
+    private static final String SEPARATOR = "\n";
+
+    public KeysetCursor {
+        sortOrder = "desc".equalsIgnoreCase(sortOrder) ? "desc" : "asc";
+    }
+
+    public boolean ascending() {
+        return "asc".equals(sortOrder);
+    }
+
+    /** Garante que o cursor continua a mesma ordenação pedida na requisição. */
+    public void requireSort(String sortBy, String sortOrder) {
+        if (!this.sortBy.equals(sortBy) || !this.sortOrder.equalsIgnoreCase(sortOrder)) {
+            throw new APIException("Cursor was issued for sortBy=" + this.sortBy + " and sortOrder=" + this.sortOrder + ".");
+        }
+    }
+
+    public String encode() {
+        // O valor vai por último: nomes podem conter o separador e o split limitado os preserva.
+        // Valor nulo não tem a última parte (texto vazio continua sendo "" e não nulo).
+        String raw = sortBy + SEPARATOR + sortOrder + SEPARATOR + lastId + (lastValue != null ? SEPARATOR + lastValue : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            if (parts.length < 3) {
+                throw new APIException("Invalid cursor.");
+            }
+            return new KeysetCursor(parts[0], parts[1], parts.length == 4 ? parts[3] : null, Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new APIException("Invalid cursor.");
+        }
+    }
+}
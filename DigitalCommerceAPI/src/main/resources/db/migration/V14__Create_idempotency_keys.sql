@@ -0,0 +1,17 @@
+-- Chaves de idempotência (header Idempotency-Key) da criação de pedidos: guardam o hash da requisição
+-- e a resposta gerada, para que uma repetição do cliente devolva a mesma preferência sem criar outro pedido.
+CREATE TABLE idempotency_keys (
+    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_idempotency_user FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    CONSTRAINT uk_idempotency_user_key UNIQUE (user_id, idempotency_key)
+);
+
+-- Limpeza periódica das chaves expiradas.
+CREATE INDEX idx_idempotency_keys_expires ON idempotency_keys (expires_at);
@@ -0,0 +1,17 @@
+-- Fila durável das notificações do Mercado Pago: o webhook só grava a linha e responde;
+-- os workers processam em segundo plano, com novas tentativas e backoff.
+CREATE TABLE webhook_events (
+    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    payment_id VARCHAR(64) NOT NULL,
+    action VARCHAR(40),
+    status VARCHAR(20) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL,
+    locked_until TIMESTAMP,
+    last_error VARCHAR(500),
+    received_at TIMESTAMP NOT NULL,
+    processed_at TIMESTAMP
+);
+
+-- Os workers só olham o que ainda não terminou.
+CREATE INDEX idx_webhook_events_due ON webhook_events (next_attempt_at) WHERE status IN ('PENDING', 'PROCESSING');
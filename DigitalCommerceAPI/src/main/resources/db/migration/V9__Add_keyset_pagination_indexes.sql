@@ -0,0 +1,4 @@
+-- Índices compostos para a paginação por keyset do catálogo: (campo de ordenação, id).
+-- productId usa a PK; em categories, categoryId usa a PK e categoryName o índice único já existente.
+CREATE INDEX idx_products_price_product_id ON products (price, product_id);
+CREATE INDEX idx_products_product_name_product_id ON products (product_name, product_id);
@@ -0,0 +1,162 @@
+package com.arthur.digitalcommerce.cache;
+
+import com.arthur.digitalcommerce.cache.ProductCatalogCache.CatalogPageKey;
+import com.arthur.digitalcommerce.events.CategoryChangedEvent;
+import com.arthur.digitalcommerce.events.ProductCreatedEvent;
+import com.arthur.digitalcommerce.events.ProductDeletedEvent;
+import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.model.Category;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.payload.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductCatalogCache cache;
+    private AtomicInteger loads;
+
+    private final CatalogPageKey allPage = CatalogPageKey.all(0, 10, "productId", "asc");
+    private final CatalogPageKey electronicsPage = CatalogPageKey.category(1L, 0, 10, "productId", "asc");
+    private final CatalogPageKey booksPage = CatalogPageKey.category(2L, 0, 10, "productId", "asc");
+    private final CatalogPageKey searchPage = CatalogPageKey.search("phone", 0, 10, "productId", "asc");
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ProductCatalogCache(100, Duration.ofMinutes(5), meterRegistry);
+        loads = new AtomicInteger();
+        cache.get(allPage, this::load);
+        cache.get(electronicsPage, this::load);
+        cache.get(booksPage, this::load);
+        cache.get(searchPage, this::load);
+    }
+
+    private ProductResponse load() {
+        loads.incrementAndGet();
+        return new ProductResponse();
+    }
+
+    private Product productInCategory(Long categoryId) {
+        Category category = new Category();
+        category.setCategoryId(categoryId);
+        Product product = new Product();
+        product.setProductId(10L);
+        product.setCategory(category);
+        return product;
+    }
+
+    private boolean isCached(CatalogPageKey key) {
+        int before = loads.get();
+        cache.get(key, this::load);
+        return loads.get() == before;
+    }
+
+    @Test
+    void get_shouldCountHitsAndMisses() {
+        cache.get(allPage, this::load);
+
+        assertEquals(4, cache.stats().missCount());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", ProductCatalogCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void get_shouldNotCacheLoaderFailures() {
+        CatalogPageKey emptyCategory = CatalogPageKey.category(99L, 0, 10, "productId", "asc");
+
+        assertThrows(APIException.class, () -> cache.get(emptyCategory, () -> {
+            throw new APIException("empty");
+        }));
+        assertEquals(4, cache.size());
+    }
+
+    @Test
+    void productUpdated_shouldEvictOnlyAffectedCategoriesListingAndSearches() {
+        cache.onProductUpdated(new ProductUpdatedEvent(productInCategory(1L), 1L));
+
+        assertFalse(isCached(electronicsPage));
+        assertFalse(isCached(allPage));
+        assertFalse(isCached(searchPage));
+        assertTrue(isCached(booksPage));
+    }
+
+    @Test
+    void productUpdated_shouldEvictPreviousCategory_whenProductMoved() {
+        cache.onProductUpdated(new ProductUpdatedEvent(productInCategory(2L), 1L));
+
+        assertFalse(isCached(electronicsPage));
+        assertFalse(isCached(booksPage));
+    }
+
+    @Test
+    void productCreated_shouldKeepOtherCategories() {
+        cache.onProductCreated(new ProductCreatedEvent(productInCategory(2L)));
+
+        assertFalse(isCached(booksPage));
+        assertTrue(isCached(electronicsPage));
+    }
+
+    @Test
+    void productDeleted_withoutCategory_shouldEvictEverything() {
+        cache.onProductDeleted(new ProductDeletedEvent(10L));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void categoryChanged_shouldEvictThatCategory() {
+        cache.onCategoryChanged(new CategoryChangedEvent(2L));
+
+        assertFalse(isCached(booksPage));
+        assertTrue(isCached(electronicsPage));
+    }
+
+    @Test
+    void get_shouldNotKeepAPageWhoseLoadRacedAnEviction() throws Exception {
+        cache.invalidateAll();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch evicted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // A carga lê o banco antes do commit da edição; a invalidação pós-commit roda com ela em andamento.
+            Future<ProductResponse> inFlight = executor.submit(() -> cache.get(electronicsPage, () -> {
+                loading.countDown();
+                try {
+                    evicted.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return load();
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            cache.onProductUpdated(new ProductUpdatedEvent(productInCategory(1L), 1L));
+            evicted.countDown();
+            inFlight.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(isCached(electronicsPage));
+        assertTrue(isCached(electronicsPage));
+    }
+
+    @Test
+    void pageKey_shouldNormalizeSortOrderAndKeywordCase() {
+        assertEquals(CatalogPageKey.search("Phone", 0, 10, "productId", "ASC"), searchPage);
+    }
+}
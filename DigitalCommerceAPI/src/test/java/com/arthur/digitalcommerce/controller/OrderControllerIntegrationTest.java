@@ -0,0 +1,283 @@
+package com.arthur.digitalcommerce.controller;
+
+import com.arthur.digitalcommerce.model.*;
+import com.arthur.digitalcommerce.payload.CheckoutStatus;
+import com.arthur.digitalcommerce.repository.*;
+import com.arthur.digitalcommerce.security.services.UserDetailsImpl;
+import com.arthur.digitalcommerce.service.CheckoutNotifier;
+import com.arthur.digitalcommerce.service.IdempotencyService;
+import com.arthur.digitalcommerce.service.MercadoPagoService;
+import com.mercadopago.resources.preference.Preference;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checkout pela pilha HTTP inteira (filtros de segurança, interceptors do Spring MVC, controller), com banco real
+ * e o gateway simulado. Pega o que os testes de service não enxergam, como o open-in-view segurando a conexão
+ * até o fim da requisição.
+ */
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.hikari.maximum-pool-size=" + OrderControllerIntegrationTest.POOL_SIZE,
+        "spring.datasource.hikari.connection-timeout=2000",
+        "config.jwt.secret=b3JkZXItY29udHJvbGxlci1pbnRlZ3JhdGlvbi10ZXN0LXNlY3JldC1rZXktMDEyMzQ1Njc4OQ==",
+        "config.integrations.mercadopago.access-token=test-token",
+        "config.integrations.webhook.base-url=http://localhost:8080",
+        "config.webhook.queue.workers=1",
+        "config.webhook.queue.poll-interval-ms=60000",
+        "config.webhook.queue.stats-interval-ms=60000",
+        "config.stock.reservation.sweep-interval-ms=60000",
+        "config.stock.hot.enabled=false"
+})
+class OrderControllerIntegrationTest {
+
+    static final int POOL_SIZE = 3;
+    private static final int CHECKOUTS = 8;
+    private static final int STOCK = 100;
+
+    @Container
+    static final PostgreSQLContainer<?> postgresqlContainer =
+            new PostgreSQLContainer<>("postgres:15-alpine")
+                    .withDatabaseName("testdb")
+                    .withUsername("testuser")
+                    .withPassword("testpass");
+
+    @DynamicPropertySource
+    static void setDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgresqlContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgresqlContainer::getUsername);
+        registry.add("spring.datasource.password", postgresqlContainer::getPassword);
+
+        registry.add("spring.flyway.url", postgresqlContainer::getJdbcUrl);
+        registry.add("spring.flyway.user", postgresqlContainer::getUsername);
+        registry.add("spring.flyway.password", postgresqlContainer::getPassword);
+    }
+
+    @MockitoBean
+    private MercadoPagoService mercadoPagoService;
+
+    @MockitoSpyBean
+    private CheckoutNotifier checkoutNotifier;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User buyer;
+    private Long addressId;
+    private Long productId;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            buyer = userRepository.save(new User("httpbuyer", "http.buyer@email.com", "Str0ngP@ss123", "90000000031"));
+
+            Category category = new Category();
+            category.setCategoryName("Http Checkout");
+            category = categoryRepository.save(category);
+            categoryId = category.getCategoryId();
+
+            Product product = new Product();
+            product.setProductName("Http Checkout Product");
+            product.setDescription("Produto do teste de checkout pela pilha HTTP");
+            product.setQuantityInStock(STOCK);
+            product.setPrice(new BigDecimal("10.00"));
+            product.setCategory(category);
+            product = productRepository.save(product);
+            productId = product.getProductId();
+
+            Address address = new Address("Rua do Teste", "Numero 200", "Sao Paulo", "SP", "Brasil", "01000-000");
+            address.setUser(buyer);
+            addressId = addressRepository.save(address).getAddressId();
+
+            Cart cart = new Cart();
+            cart.setUser(buyer);
+            cart.setTotalPrice(new BigDecimal("10.00"));
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(1);
+            item.setDiscount(BigDecimal.ZERO);
+            cart.getCartItems().add(item);
+            cartRepository.save(cart);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM orders WHERE email = ?", buyer.getEmail());
+        jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", buyer.getUserId());
+        jdbcTemplate.update("DELETE FROM products WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM categories WHERE category_id = ?", categoryId);
+    }
+
+    private Preference preference(String id) {
+        Preference preference = mock(Preference.class);
+        when(preference.getId()).thenReturn(id);
+        when(preference.getInitPoint()).thenReturn("https://mp.test/checkout/" + id);
+        return preference;
+    }
+
+    @Test
+    void createPreference_shouldNotHoldAConnection_duringTheGatewayCall() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        // Mais requisições do que conexões, todas dentro do gateway ao mesmo tempo: se a requisição segurasse a
+        // conexão até o fim (open-in-view), só POOL_SIZE chegariam aqui e a barreira estouraria o timeout.
+        AtomicInteger activeConnectionsWithAllInsideGateway = new AtomicInteger(-1);
+        CyclicBarrier allInsideGateway = new CyclicBarrier(CHECKOUTS,
+                () -> activeConnectionsWithAllInsideGateway.set(pool.getHikariPoolMXBean().getActiveConnections()));
+        AtomicInteger preferenceIds = new AtomicInteger();
+
+        when(mercadoPagoService.createPaymentPreference(any())).thenAnswer(invocation -> {
+            allInsideGateway.await(10, TimeUnit.SECONDS);
+            return preference("pref-" + preferenceIds.incrementAndGet());
+        });
+
+        UserDetailsImpl principal = UserDetailsImpl.build(buyer);
+        ExecutorService executor = Executors.newFixedThreadPool(CHECKOUTS);
+        try {
+            List<Future<MvcResult>> futures = new ArrayList<>();
+            for (int i = 0; i < CHECKOUTS; i++) {
+                futures.add(executor.submit(() -> mockMvc.perform(post("/api/orders/create-preference/{addressId}", addressId)
+                        .with(user(principal))).andReturn()));
+            }
+            for (Future<MvcResult> future : futures) {
+                MvcResult result = future.get(30, TimeUnit.SECONDS);
+                assertThat(result.getResponse().getStatus()).isEqualTo(200);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(activeConnectionsWithAllInsideGateway).hasValue(0);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE email = ? AND preference_id IS NOT NULL", Integer.class,
+                buyer.getEmail())).isEqualTo(CHECKOUTS);
+    }
+
+    @Test
+    void streamCheckoutStatus_shouldSendTheResult_whenThePreferenceArrivesBetweenTheReadAndTheSubscription()
+            throws Exception {
+        Long orderId = new TransactionTemplate(transactionManager).execute(status -> {
+            Order order = new Order();
+            order.setEmail(buyer.getEmail());
+            order.setOrderDate(LocalDate.now());
+            order.setOrderStatus("PENDING_PAYMENT");
+            order.setTotalAmount(new BigDecimal("10.00"));
+            order.setAddress(addressRepository.getReferenceById(addressId));
+            return orderRepository.save(order).getOrderId();
+        });
+
+        // O checkout termina depois da primeira leitura (ainda PREFERENCE_PENDING) e antes do stream ser registrado:
+        // o publish do worker não encontra ninguém, então o evento só chega se a releitura enxergar o banco.
+        doAnswer(invocation -> {
+            jdbcTemplate.update("UPDATE orders SET preference_id = ?, payment_init_point = ? WHERE order_id = ?",
+                    "pref-late", "https://mp.test/checkout/pref-late", orderId);
+            return invocation.callRealMethod();
+        }).when(checkoutNotifier).subscribe(orderId);
+
+        MvcResult result = mockMvc.perform(get("/api/orders/{orderId}/status/stream", orderId)
+                        .with(user(UserDetailsImpl.build(buyer))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = result.getResponse().getContentAsString();
+        assertThat(body).contains("event:" + CheckoutStatus.PREFERENCE_READY.name());
+        assertThat(body).contains("pref-late");
+    }
+
+    @Test
+    void startCheckout_shouldPointToTheStatus_alsoWhenTheIdempotencyKeyIsReplayed() throws Exception {
+        Preference preference = preference("pref-idem");
+        when(mercadoPagoService.createPaymentPreference(any())).thenReturn(preference);
+        UserDetailsImpl principal = UserDetailsImpl.build(buyer);
+        String body = "{\"addressId\": " + addressId + "}";
+
+        mockMvc.perform(post("/api/orders").with(user(principal))
+                        .header(IdempotencyService.HEADER, "checkout-location-key")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "false"));
+        Long orderId = jdbcTemplate.queryForObject("SELECT order_id FROM orders WHERE email = ?", Long.class,
+                buyer.getEmail());
+
+        mockMvc.perform(post("/api/orders").with(user(principal))
+                        .header(IdempotencyService.HEADER, "checkout-location-key")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andExpect(header().string("Location", "/api/orders/" + orderId + "/status"));
+    }
+}
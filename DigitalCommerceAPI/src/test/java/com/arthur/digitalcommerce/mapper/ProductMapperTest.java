@@ -0,0 +1,72 @@
+package com.arthur.digitalcommerce.mapper;
+
+import com.arthur.digitalcommerce.model.Category;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.payload.ProductDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductMapperTest {
+
+    private final ProductMapper productMapper = new ProductMapper();
+
+    private Product existingProduct() {
+        Category category = new Category();
+        category.setCategoryId(7L);
+
+        Product product = new Product();
+        product.setProductId(1L);
+        product.setProductName("Notebook");
+        product.setDescription("Notebook 16GB");
+        product.setImage("notebook.png");
+        product.setQuantityInStock(5);
+        product.setPrice(new BigDecimal("3500.00"));
+        product.setSpecialPrice(new BigDecimal("3200.00"));
+        product.setSpecialPriceActive(true);
+        product.setCategory(category);
+        return product;
+    }
+
+    @Test
+    void toDTO_shouldCopyFieldsAndCategoryId() {
+        ProductDTO dto = productMapper.toDTO(existingProduct());
+
+        assertEquals(1L, dto.getProductId());
+        assertEquals("Notebook", dto.getProductName());
+        assertEquals(new BigDecimal("3200.00"), dto.getSpecialPrice());
+        assertTrue(dto.isSpecialPriceActive());
+        assertEquals(7L, dto.getCategoryId());
+        assertNull(dto.getCartQuantity());
+    }
+
+    @Test
+    void toDTO_shouldLeaveCategoryIdNull_whenProductHasNoCategory() {
+        Product product = existingProduct();
+        product.setCategory(null);
+
+        assertNull(productMapper.toDTO(product).getCategoryId());
+    }
+
+    @Test
+    void updateEntity_shouldSkipNullFields_andKeepIdAndCategory() {
+        Product product = existingProduct();
+        ProductDTO patch = new ProductDTO();
+        patch.setProductId(99L);
+        patch.setPrice(new BigDecimal("3400.00"));
+        patch.setCategoryId(8L);
+        patch.setSpecialPriceActive(true);
+
+        productMapper.updateEntity(patch, product);
+
+        assertEquals(1L, product.getProductId());
+        assertEquals(new BigDecimal("3400.00"), product.getPrice());
+        assertEquals("Notebook", product.getProductName());
+        assertEquals("Notebook 16GB", product.getDescription());
+        assertEquals(5, product.getQuantityInStock());
+        assertEquals(new BigDecimal("3200.00"), product.getSpecialPrice());
+        assertEquals(7L, product.getCategory().getCategoryId());
+    }
+}
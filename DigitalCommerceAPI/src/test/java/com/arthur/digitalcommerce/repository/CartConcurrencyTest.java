@@ -0,0 +1,160 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.*;
+import com.arthur.digitalcommerce.service.CartMutationRetrier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sem a transação do teste: cada thread precisa commitar de verdade para disputar a versão do carrinho.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartConcurrencyTest extends BaseRepositoryTest {
+
+    private static final int THREADS = 8;
+    private static final BigDecimal PRICE = new BigDecimal("10.00");
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+    private Long cartId;
+    private Long cartItemId;
+    private Long productId;
+    private Long categoryId;
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            User seller = userRepository.save(new User("concurrency_seller", "concurrency.seller@email.com", "Str0ngP@ss123", "90000000001"));
+            User customer = userRepository.save(new User("concurrency_buyer", "concurrency.buyer@email.com", "Str0ngP@ss123", "90000000002"));
+            Category category = new Category();
+            category.setCategoryName("Concurrency");
+            category = categoryRepository.save(category);
+
+            Product product = new Product();
+            product.setProductName("Concurrency Product");
+            product.setDescription("Produto disputado por várias threads");
+            product.setQuantityInStock(100);
+            product.setPrice(PRICE);
+            product.setUser(seller);
+            product.setCategory(category);
+            product = productRepository.save(product);
+
+            Cart cart = new Cart();
+            cart.setUser(customer);
+            cart.setTotalPrice(PRICE);
+            CartItem item = new CartItem();
+            item.setProduct(product);
+            item.setQuantity(1);
+            item.setCart(cart);
+            cart.getCartItems().add(item);
+            cart = cartRepository.save(cart);
+
+            cartId = cart.getCartId();
+            cartItemId = cart.getCartItems().get(0).getCartItemId();
+            productId = product.getProductId();
+            categoryId = category.getCategoryId();
+            userIds = List.of(customer.getUserId(), seller.getUserId());
+        });
+    }
+
+    // Os dados foram commitados: apaga direto no banco para não vazar para os outros testes de repositório.
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM carts WHERE cart_id = ?", cartId);
+        jdbcTemplate.update("DELETE FROM products WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM categories WHERE category_id = ?", categoryId);
+        userIds.forEach(userId -> jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", userId));
+    }
+
+    @Test
+    void concurrentIncrements_ShouldNotLoseUpdates_WhenConflictsAreRetried() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CartMutationRetrier retrier = new CartMutationRetrier(meterRegistry, THREADS + 1, 5);
+        // Na primeira tentativa todas as threads leem a mesma versão antes de gravar: conflito garantido.
+        CyclicBarrier everyoneHasRead = new CyclicBarrier(THREADS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    boolean[] firstAttempt = {true};
+                    return retrier.execute("add", () -> transactionTemplate.execute(status -> {
+                        Cart cart = cartRepository.findById(cartId).orElseThrow();
+                        CartItem item = cartItemRepository.findById(cartItemId).orElseThrow();
+                        if (firstAttempt[0]) {
+                            firstAttempt[0] = false;
+                            await(everyoneHasRead);
+                        }
+                        item.setQuantity(item.getQuantity() + 1);
+                        cart.setTotalPrice(cart.getTotalPrice().add(PRICE));
+                        return null;
+                    }));
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Cart cart = cartRepository.findById(cartId).orElseThrow();
+            CartItem item = cartItemRepository.findById(cartItemId).orElseThrow();
+            assertThat(item.getQuantity()).isEqualTo(1 + THREADS);
+            assertThat(cart.getTotalPrice()).isEqualByComparingTo(PRICE.multiply(BigDecimal.valueOf(1 + THREADS)));
+            assertThat(cart.getVersion()).isEqualTo(THREADS);
+        });
+        assertThat(meterRegistry.counter("cart.optimistic_lock.conflicts", "operation", "add").count())
+                .isGreaterThanOrEqualTo(THREADS - 1);
+        assertThat(meterRegistry.counter("cart.optimistic_lock.exhausted", "operation", "add").count()).isZero();
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.arthur.digitalcommerce.repository;
 
 import com.arthur.digitalcommerce.model.*;
+import com.arthur.digitalcommerce.repository.projection.CartTotalMismatch;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -162,4 +166,139 @@ class CartRepositoryTest extends BaseRepositoryTest {
         assertThat(cartRepository.findById(cartId)).isNotPresent();
         assertThat(cartItemRepository.findAll()).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindWithItemsByUserEmail_ShouldUseSameNumberOfStatements_RegardlessOfCartSize() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        createCartWithItems("small", 70_000, 1);
+        createCartWithItems("large", 80_000, 8);
+        entityManager.clear();
+
+        statistics.clear();
+        Cart small = cartRepository.findWithItemsByUserEmail("small@email.com").orElseThrow();
+        touchCartForDisplay(small);
+        long smallCartStatements = statistics.getPrepareStatementCount();
+
+        entityManager.clear();
+        statistics.clear();
+        Cart large = cartRepository.findWithItemsByUserEmail("large@email.com").orElseThrow();
+        touchCartForDisplay(large);
+        long largeCartStatements = statistics.getPrepareStatementCount();
+
+        statistics.setStatisticsEnabled(false);
+
+        assertThat(small.getCartItems()).hasSize(1);
+        assertThat(large.getCartItems()).hasSize(8);
+        assertThat(largeCartStatements).isEqualTo(smallCartStatements);
+        assertThat(largeCartStatements).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void testFindTotalMismatches_ShouldReportOnlyCartsWithStaleTotals() {
+        Product product = createFullCartSetup(); // 2 x 99.90
+        Cart cart = cartRepository.findByUserEmail("customer@email.com").orElseThrow();
+        cart.setTotalPrice(new BigDecimal("199.80"));
+        entityManager.persistAndFlush(cart);
+
+        User other = createValidUser("other@email.com", "99988877766", "othercustomer");
+        Cart staleCart = createValidCart(other);
+        CartItem staleItem = new CartItem();
+        staleItem.setProduct(product);
+        staleItem.setQuantity(1);
+        staleItem.setCart(staleCart);
+        staleCart.getCartItems().add(staleItem);
+        entityManager.persistAndFlush(staleItem);
+
+        List<CartTotalMismatch> mismatches = cartRepository.findTotalMismatches();
+
+        assertThat(mismatches).hasSize(1);
+        assertThat(mismatches.get(0).cartId()).isEqualTo(staleCart.getCartId());
+        assertThat(mismatches.get(0).storedTotal()).isEqualByComparingTo("0");
+        assertThat(mismatches.get(0).expectedTotal()).isEqualByComparingTo("99.90");
+
+        cartRepository.updateTotalPrice(staleCart.getCartId(), mismatches.get(0).expectedTotal());
+        entityManager.clear();
+
+        assertThat(cartRepository.findTotalMismatches()).isEmpty();
+    }
+
+    @Test
+    void testRecalculateTotals_ShouldRepriceOnlyTheGivenCarts() {
+        Product product = createFullCartSetup(); // 2 x 99.90
+        Cart cart = cartRepository.findByUserEmail("customer@email.com").orElseThrow();
+
+        List<Long> cartIds = cartRepository.findCartIdsByProductIdAfter(product.getProductId(), 0L, PageRequest.of(0, 10));
+        assertThat(cartIds).containsExactly(cart.getCartId());
+        assertThat(cartRepository.findCartIdsByProductIdAfter(product.getProductId(), cart.getCartId(), PageRequest.of(0, 10)))
+                .isEmpty();
+
+        product.setSpecialPrice(new BigDecimal("80.00"));
+        product.setSpecialPriceActive(true);
+        entityManager.persistAndFlush(product);
+
+        int updated = cartRepository.recalculateTotals(cartIds);
+        entityManager.clear();
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(cartRepository.findById(cart.getCartId()).orElseThrow().getTotalPrice()).isEqualByComparingTo("160.00");
+    }
+
+    @Test
+    void testRemoveProductFromAllCarts_ShouldDeleteItemsAndRepriceAffectedCarts() {
+        Product product = createFullCartSetup(); // 2 x 99.90
+        Cart cart = cartRepository.findByUserEmail("customer@email.com").orElseThrow();
+
+        Product otherProduct = createValidProduct(product.getUser(), product.getCategory());
+        CartItem otherItem = new CartItem();
+        otherItem.setProduct(otherProduct);
+        otherItem.setQuantity(1);
+        otherItem.setCart(cart);
+        cart.getCartItems().add(otherItem);
+        entityManager.persistAndFlush(otherItem);
+        cartRepository.updateTotalPrice(cart.getCartId(), new BigDecimal("299.70"));
+
+        User other = createValidUser("other@email.com", "99988877766", "othercustomer");
+        Cart untouchedCart = createValidCart(other);
+        cartRepository.updateTotalPrice(untouchedCart.getCartId(), new BigDecimal("10.00"));
+
+        int affected = cartRepository.removeProductFromAllCarts(product.getProductId());
+        entityManager.clear();
+
+        assertThat(affected).isEqualTo(1);
+        Cart repriced = cartRepository.findWithItemsByUserEmail("customer@email.com").orElseThrow();
+        assertThat(repriced.getCartItems()).extracting(item -> item.getProduct().getProductId())
+                .containsExactly(otherProduct.getProductId());
+        assertThat(repriced.getTotalPrice()).isEqualByComparingTo("99.90");
+        assertThat(cartRepository.findById(untouchedCart.getCartId()).orElseThrow().getTotalPrice())
+                .isEqualByComparingTo("10.00");
+    }
+
+    // Lê tudo o que o CartMapper lê ao montar o CartDTO.
+    private void touchCartForDisplay(Cart cart) {
+        for (CartItem item : cart.getCartItems()) {
+            assertThat(item.getProduct().getProductName()).isNotNull();
+            assertThat(item.getProduct().getCategory().getCategoryName()).isNotNull();
+        }
+    }
+
+    // Cada item com produto, categoria e vendedor próprios, para que nada seja reaproveitado do cache.
+    private void createCartWithItems(String prefix, int cpfBase, int items) {
+        User customer = createValidUser(prefix + "@email.com", String.format("%011d", cpfBase), prefix);
+        Cart cart = createValidCart(customer);
+        for (int i = 0; i < items; i++) {
+            User seller = createValidUser(prefix + ".seller" + i + "@email.com",
+                    String.format("%011d", cpfBase + 1 + i), prefix + "seller" + i);
+            Product product = createValidProduct(seller, createValidCategory(prefix + " category " + i));
+
+            CartItem cartItem = new CartItem();
+            cartItem.setProduct(product);
+            cartItem.setQuantity(1);
+            cartItem.setCart(cart);
+            cart.getCartItems().add(cartItem);
+            entityManager.persistAndFlush(cartItem);
+        }
+    }
+}
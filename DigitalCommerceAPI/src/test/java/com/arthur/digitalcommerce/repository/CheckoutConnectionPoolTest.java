@@ -0,0 +1,284 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.*;
+import com.arthur.digitalcommerce.payload.CheckoutStatus;
+import com.arthur.digitalcommerce.payload.CheckoutStatusDTO;
+import com.arthur.digitalcommerce.service.CheckoutNotifier;
+import com.arthur.digitalcommerce.service.CheckoutStockValidator;
+import com.arthur.digitalcommerce.service.MercadoPagoService;
+import com.arthur.digitalcommerce.service.OrderServiceImpl;
+import com.arthur.digitalcommerce.service.StockReservationService;
+import com.arthur.digitalcommerce.stock.HotStockCounters;
+import com.arthur.digitalcommerce.util.AuthUtil;
+import com.mercadopago.exceptions.MPException;
+import com.mercadopago.resources.preference.Preference;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Carga no checkout com um gateway lento: mais checkouts simultâneos do que conexões no pool.
+ * Todos precisam conseguir estar dentro da chamada ao gateway ao mesmo tempo, sem segurar conexão.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderServiceImpl.class, CheckoutStockValidator.class, StockReservationService.class, HotStockCounters.class,
+        CheckoutNotifier.class, CheckoutConnectionPoolTest.TestBeans.class})
+@TestPropertySource(properties = {
+        "spring.datasource.hikari.maximum-pool-size=" + CheckoutConnectionPoolTest.POOL_SIZE,
+        "spring.datasource.hikari.connection-timeout=2000",
+        "config.integrations.webhook.base-url=http://localhost:8080"
+})
+class CheckoutConnectionPoolTest extends BaseRepositoryTest {
+
+    static final int POOL_SIZE = 4;
+    private static final int CHECKOUTS = 12;
+    private static final int STOCK = 100;
+    private static final long GATEWAY_LATENCY_MS = 300;
+
+    @TestConfiguration
+    static class TestBeans {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean(destroyMethod = "close")
+        ExecutorService checkoutExecutor() {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+    }
+
+    @MockitoBean
+    private AuthUtil authUtil;
+
+    @MockitoBean
+    private MercadoPagoService mercadoPagoService;
+
+    @Autowired
+    private OrderServiceImpl orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User buyer;
+    private Long addressId;
+    private Long productId;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            buyer = userRepository.save(new User("poolbuyer", "pool.buyer@email.com", "Str0ngP@ss123", "90000000021"));
+
+            Category category = new Category();
+            category.setCategoryName("Gateway Latency");
+            category = categoryRepository.save(category);
+            categoryId = category.getCategoryId();
+
+            Product product = new Product();
+            product.setProductName("Latency Product");
+            product.setDescription("Produto do teste de carga do checkout");
+            product.setQuantityInStock(STOCK);
+            product.setPrice(new BigDecimal("10.00"));
+            product.setCategory(category);
+            product = productRepository.save(product);
+            productId = product.getProductId();
+
+            Address address = new Address("Rua do Teste", "Numero 100", "Sao Paulo", "SP", "Brasil", "01000-000");
+            address.setUser(buyer);
+            addressId = addressRepository.save(address).getAddressId();
+
+            Cart cart = new Cart();
+            cart.setUser(buyer);
+            cart.setTotalPrice(new BigDecimal("10.00"));
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(1);
+            item.setDiscount(BigDecimal.ZERO);
+            cart.getCartItems().add(item);
+            cartRepository.save(cart);
+        });
+        when(authUtil.loggedInUser()).thenReturn(buyer);
+        when(authUtil.loggedInEmail()).thenReturn(buyer.getEmail());
+    }
+
+    private Preference preference(String id) {
+        Preference preference = mock(Preference.class);
+        when(preference.getId()).thenReturn(id);
+        when(preference.getInitPoint()).thenReturn("https://mp.test/checkout/" + id);
+        return preference;
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM orders WHERE email = ?", buyer.getEmail());
+        jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", buyer.getUserId());
+        jdbcTemplate.update("DELETE FROM products WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM categories WHERE category_id = ?", categoryId);
+    }
+
+    @Test
+    void slowGateway_shouldNotHoldPoolConnections() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        // Só abre quando os 12 checkouts estão dentro do gateway ao mesmo tempo: com a chamada dentro da
+        // transação, no máximo POOL_SIZE chegariam até aqui e a barreira estouraria o timeout.
+        CyclicBarrier allInsideGateway = new CyclicBarrier(CHECKOUTS);
+        List<Integer> activeConnectionsDuringGatewayCalls = new ArrayList<>();
+        AtomicInteger transactionsOpenDuringGatewayCalls = new AtomicInteger();
+        AtomicInteger preferenceIds = new AtomicInteger();
+
+        when(mercadoPagoService.createPaymentPreference(any())).thenAnswer(invocation -> {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                transactionsOpenDuringGatewayCalls.incrementAndGet();
+            }
+            allInsideGateway.await(10, TimeUnit.SECONDS);
+            synchronized (activeConnectionsDuringGatewayCalls) {
+                activeConnectionsDuringGatewayCalls.add(pool.getHikariPoolMXBean().getActiveConnections());
+            }
+            Thread.sleep(GATEWAY_LATENCY_MS);
+            return preference("pref-" + preferenceIds.incrementAndGet());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(CHECKOUTS);
+        try {
+            List<Future<Preference>> futures = new ArrayList<>();
+            for (int i = 0; i < CHECKOUTS; i++) {
+                futures.add(executor.submit(() -> orderService.createPaymentPreference(addressId)));
+            }
+            for (Future<Preference> future : futures) {
+                assertThat(future.get(30, TimeUnit.SECONDS).getId()).startsWith("pref-");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(transactionsOpenDuringGatewayCalls).hasValue(0);
+        assertThat(activeConnectionsDuringGatewayCalls).hasSize(CHECKOUTS).allMatch(active -> active == 0);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE email = ? AND preference_id IS NOT NULL AND payment_init_point IS NOT NULL",
+                Integer.class, buyer.getEmail())).isEqualTo(CHECKOUTS);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT quantity_in_stock FROM products WHERE product_id = ?", Integer.class, productId))
+                .isEqualTo(STOCK - CHECKOUTS);
+    }
+
+    @Test
+    void asyncCheckout_shouldAnswerBeforeTheGateway_andExposeThePreferenceOnTheStatus() throws Exception {
+        CyclicBarrier gatewayReleased = new CyclicBarrier(CHECKOUTS + 1);
+        AtomicInteger preferenceIds = new AtomicInteger();
+        when(mercadoPagoService.createPaymentPreference(any())).thenAnswer(invocation -> {
+            gatewayReleased.await(10, TimeUnit.SECONDS);
+            return preference("pref-" + preferenceIds.incrementAndGet());
+        });
+
+        // Nenhum checkout recebe a preferência antes de todos terem respondido: o gateway segue bloqueado.
+        List<CheckoutStatusDTO> accepted = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            accepted.add(orderService.startCheckout(addressId));
+        }
+        assertThat(accepted).allMatch(status -> status.getStatus() == CheckoutStatus.PREFERENCE_PENDING);
+        assertThat(orderService.getCheckoutStatus(accepted.get(0).getOrderId()).getStatus())
+                .isEqualTo(CheckoutStatus.PREFERENCE_PENDING);
+
+        gatewayReleased.await(10, TimeUnit.SECONDS);
+
+        for (CheckoutStatusDTO status : accepted) {
+            CheckoutStatusDTO current = awaitTerminal(status.getOrderId());
+            assertThat(current.getStatus()).isEqualTo(CheckoutStatus.PREFERENCE_READY);
+            assertThat(current.getInitPoint()).startsWith("https://mp.test/checkout/pref-");
+        }
+    }
+
+    @Test
+    void asyncCheckout_shouldReportGatewayFailures() throws Exception {
+        when(mercadoPagoService.createPaymentPreference(any())).thenThrow(new MPException("gateway timeout"));
+
+        CheckoutStatusDTO accepted = orderService.startCheckout(addressId);
+
+        CheckoutStatusDTO current = awaitTerminal(accepted.getOrderId());
+        assertThat(current.getStatus()).isEqualTo(CheckoutStatus.FAILED);
+        assertThat(current.getOrderStatus()).isEqualTo("CHECKOUT_FAILED");
+    }
+
+    private CheckoutStatusDTO awaitTerminal(Long orderId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        CheckoutStatusDTO status = orderService.getCheckoutStatus(orderId);
+        while (!status.isTerminal() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = orderService.getCheckoutStatus(orderId);
+        }
+        return status;
+    }
+
+    @Test
+    void gatewayFailure_shouldFailTheOrderAndReturnItsStock() throws Exception {
+        when(mercadoPagoService.createPaymentPreference(any())).thenThrow(new MPException("gateway timeout"));
+
+        assertThatThrownBy(() -> orderService.createPaymentPreference(addressId))
+                .hasMessageContaining("Failed to communicate with Mercado Pago");
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT order_status FROM orders WHERE email = ?", String.class, buyer.getEmail()))
+                .isEqualTo("CHECKOUT_FAILED");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT r.status FROM stock_reservations r JOIN orders o ON o.order_id = r.order_id WHERE o.email = ?",
+                String.class, buyer.getEmail())).isEqualTo("RELEASED");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT quantity_in_stock FROM products WHERE product_id = ?", Integer.class, productId))
+                .isEqualTo(STOCK);
+    }
+}
@@ -0,0 +1,86 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.IdempotencyRecord;
+import com.arthur.digitalcommerce.model.IdempotencyStatus;
+import com.arthur.digitalcommerce.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyKeyRepositoryTest extends BaseRepositoryTest {
+
+    private static final String KEY = "order-key-1";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private IdempotencyKeyRepository repository;
+
+    private Long userId;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        User user = entityManager.persistAndFlush(new User("idempotentbuyer", "idempotent.buyer@email.com", "Str0ngP@ss123", "30000000002"));
+        userId = user.getUserId();
+        now = LocalDateTime.now();
+    }
+
+    private int claim(String hash, LocalDateTime at) {
+        return repository.claim(userId, KEY, hash, at, at.plusHours(24), at.minusMinutes(2));
+    }
+
+    private IdempotencyRecord stored() {
+        entityManager.clear();
+        return repository.findByUserIdAndIdempotencyKey(userId, KEY).orElseThrow();
+    }
+
+    @Test
+    void claim_shouldOnlySucceedOnce_untilTheKeyIsReleased() {
+        assertThat(claim("hash-1", now)).isEqualTo(1);
+        assertThat(claim("hash-1", now)).isZero();
+
+        assertThat(repository.release(userId, KEY)).isEqualTo(1);
+        assertThat(claim("hash-1", now)).isEqualTo(1);
+    }
+
+    @Test
+    void complete_shouldStoreTheResponse_andKeepTheKeyClaimed() {
+        claim("hash-1", now);
+
+        assertThat(repository.complete(userId, KEY, "{\"id\":\"pref-1\"}")).isEqualTo(1);
+
+        IdempotencyRecord record = stored();
+        assertThat(record.getStatus()).isEqualTo(IdempotencyStatus.COMPLETED);
+        assertThat(record.getResponseBody()).isEqualTo("{\"id\":\"pref-1\"}");
+        assertThat(repository.release(userId, KEY)).isZero();
+        assertThat(claim("hash-2", now)).isZero();
+    }
+
+    @Test
+    void claim_shouldTakeOverExpiredKeys_andAbandonedInProgressKeys() {
+        claim("hash-1", now.minusDays(2));
+        repository.complete(userId, KEY, "{}");
+        assertThat(claim("hash-2", now)).isEqualTo(1);
+        assertThat(stored().getRequestHash()).isEqualTo("hash-2");
+
+        // Ainda IN_PROGRESS desde 'now': só outra requisição bem depois do timeout consegue a chave.
+        assertThat(claim("hash-3", now.plusMinutes(1))).isZero();
+        assertThat(claim("hash-3", now.plusMinutes(5))).isEqualTo(1);
+        assertThat(stored().getStatus()).isEqualTo(IdempotencyStatus.IN_PROGRESS);
+    }
+
+    @Test
+    void deleteExpired_shouldOnlyRemoveExpiredKeys() {
+        claim("hash-1", now.minusDays(2));
+
+        assertThat(repository.deleteExpired(now.minusDays(3))).isZero();
+        assertThat(repository.deleteExpired(now)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,116 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * V17 (pg_payment_id único) aplicada sobre um banco em V16 que já tem pagamentos duplicados.
+ * Roda em um banco separado, migrado até V16 só para este teste, porque o banco dos outros testes já está em V17.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentDeduplicationMigrationTest extends BaseRepositoryTest {
+
+    private static final String DATABASE = "v17_migration_test";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private DriverManagerDataSource migrationDataSource;
+    private JdbcTemplate migrationJdbc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        jdbcTemplate.execute("DROP DATABASE IF EXISTS " + DATABASE);
+        jdbcTemplate.execute("CREATE DATABASE " + DATABASE);
+
+        String url = pool.getJdbcUrl().replaceFirst("/[^/?]+(\\?|$)", "/" + DATABASE + "$1");
+        migrationDataSource = new DriverManagerDataSource(url, pool.getUsername(), pool.getPassword());
+        migrationJdbc = new JdbcTemplate(migrationDataSource);
+        migrateTo("16");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP DATABASE IF EXISTS " + DATABASE);
+    }
+
+    private void migrateTo(String version) {
+        Flyway.configure()
+                .dataSource(migrationDataSource)
+                .locations("classpath:db/migration")
+                .target(version)
+                .load()
+                .migrate();
+    }
+
+    private void payment(long paymentId, String pgPaymentId, String pgStatus) {
+        migrationJdbc.update("INSERT INTO payments (payment_id, payment_method, pg_payment_id, pg_status, pg_name) " +
+                "VALUES (?, 'credit_card', ?, ?, 'MercadoPago')", paymentId, pgPaymentId, pgStatus);
+    }
+
+    private void order(long orderId, Long paymentId) {
+        migrationJdbc.update("INSERT INTO orders (order_id, email, order_status, payment_id) VALUES (?, ?, 'PAID', ?)",
+                orderId, "order" + orderId + "@email.com", paymentId);
+    }
+
+    private Long paymentOf(long orderId) {
+        return migrationJdbc.queryForObject("SELECT payment_id FROM orders WHERE order_id = ?", Long.class, orderId);
+    }
+
+    @Test
+    void v17_shouldKeepThePaymentTheOrderReferences_elseTheNewest() {
+        // mp-1: o pedido aponta para a linha nova (o webhook gravou de novo e trocou o vínculo).
+        payment(1, "mp-1", "pending");
+        payment(2, "mp-1", "approved");
+        order(1, 2L);
+        // mp-2: o pedido aponta para a linha mais antiga; ela fica, mesmo não sendo a mais nova.
+        payment(3, "mp-2", "approved");
+        payment(4, "mp-2", "pending");
+        order(2, 3L);
+        // mp-3: nenhum pedido aponta para as duplicatas; fica a mais nova.
+        payment(5, "mp-3", "pending");
+        payment(6, "mp-3", "rejected");
+        // mp-4: sem duplicata, não muda.
+        payment(7, "mp-4", "approved");
+        order(3, 7L);
+        // mp-5: dois pedidos apontam para linhas diferentes do mesmo pagamento. Fica a mais nova, com o seu
+        // pedido; o outro pedido perde o vínculo (orders.payment_id é único) em vez de apontar para uma linha apagada.
+        payment(8, "mp-5", "approved");
+        payment(9, "mp-5", "approved");
+        order(4, 8L);
+        order(5, 9L);
+
+        migrateTo("17");
+
+        assertThat(migrationJdbc.queryForList("SELECT payment_id FROM payments ORDER BY payment_id", Long.class))
+                .isEqualTo(List.of(2L, 3L, 6L, 7L, 9L));
+        assertThat(paymentOf(1)).isEqualTo(2L);
+        assertThat(paymentOf(2)).isEqualTo(3L);
+        assertThat(paymentOf(3)).isEqualTo(7L);
+        assertThat(paymentOf(4)).isNull();
+        assertThat(paymentOf(5)).isEqualTo(9L);
+        assertThat(migrationJdbc.queryForObject("SELECT COUNT(*) FROM orders", Integer.class)).isEqualTo(5);
+        assertThat(migrationJdbc.queryForObject("SELECT pg_status FROM payments WHERE pg_payment_id = 'mp-1'",
+                String.class)).isEqualTo("approved");
+        assertThat(migrationJdbc.queryForObject(
+                "SELECT COUNT(*) FROM pg_constraint WHERE conname = 'uk_payments_pg_payment_id'", Integer.class))
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,312 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.*;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import com.arthur.digitalcommerce.repository.projection.ProductStockView;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ProductRepositoryTest extends BaseRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Category category;
+    private User seller;
+
+    private User createValidUser(String email, String cpf, String username) {
+        User user = new User(username, email, "Str0ngP@ss123", cpf);
+        return entityManager.persistAndFlush(user);
+    }
+
+    private Product createValidProduct(String name, User seller, Category category) {
+        Product product = new Product();
+        product.setProductName(name);
+        product.setDescription("Catalog product description");
+        product.setQuantityInStock(100);
+        product.setPrice(new BigDecimal("49.90"));
+        product.setUser(seller);
+        product.setCategory(category);
+        return entityManager.persistAndFlush(product);
+    }
+
+    /**
+     * Monta 5 produtos, cada um referenciado por 3 carrinhos diferentes.
+     * Com o mapeamento EAGER de Product.products, carregar as entidades puxaria essas 15 linhas de cart_items.
+     */
+    @BeforeEach
+    void setUp() {
+        seller = createValidUser("seller.catalog@email.com", "10000000001", "catalogseller");
+        category = new Category();
+        category.setCategoryName("Catalog");
+        category = entityManager.persistAndFlush(category);
+
+        for (int i = 0; i < 5; i++) {
+            Product product = createValidProduct("Catalog Product " + i, seller, category);
+            for (int j = 0; j < 3; j++) {
+                User customer = createValidUser("customer" + i + j + "@email.com", "2000000" + i + j + "00", "customer" + i + j);
+                Cart cart = new Cart();
+                cart.setUser(customer);
+                cart.setTotalPrice(BigDecimal.ZERO);
+                entityManager.persistAndFlush(cart);
+
+                CartItem cartItem = new CartItem();
+                cartItem.setCart(cart);
+                cartItem.setProduct(product);
+                cartItem.setQuantity(1);
+                entityManager.persistAndFlush(cartItem);
+            }
+        }
+        entityManager.clear();
+    }
+
+    private Statistics resetStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    @Test
+    void flush_shouldNotOverwriteStockReservedAfterTheProductWasLoaded() {
+        Long productId = productRepository.findAll().getFirst().getProductId();
+        entityManager.clear();
+
+        Product product = productRepository.findById(productId).orElseThrow();
+        product.setPrice(new BigDecimal("59.90"));
+        // Reserva gravada depois da leitura, direto no banco (como o decrementStock de outra transação).
+        jdbcTemplate.update("UPDATE products SET quantity_in_stock = quantity_in_stock - 3 WHERE product_id = ?", productId);
+        entityManager.flush();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity_in_stock FROM products WHERE product_id = ?",
+                Integer.class, productId)).isEqualTo(97);
+        assertThat(jdbcTemplate.queryForObject("SELECT price FROM products WHERE product_id = ?",
+                BigDecimal.class, productId)).isEqualByComparingTo("59.90");
+    }
+
+    @Test
+    void replaceStock_shouldOnlyWrite_whenTheStockIsStillTheOneThatWasRead() {
+        Long productId = productRepository.findAll().getFirst().getProductId();
+
+        assertThat(productRepository.replaceStock(productId, 99, 150)).isZero();
+        assertThat(productRepository.replaceStock(productId, 100, 150)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT quantity_in_stock FROM products WHERE product_id = ?",
+                Integer.class, productId)).isEqualTo(150);
+    }
+
+    @Test
+    void findCatalogPage_shouldUseOneSelectPlusCount_regardlessOfCartItems() {
+        Statistics statistics = resetStatistics();
+
+        Page<ProductCatalogView> page = productRepository.findCatalogPage(
+                PageRequest.of(0, 2, Sort.by("productId").ascending()));
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent().get(0).categoryId()).isEqualTo(category.getCategoryId());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findStockByProductIdIn_shouldReadAllRequestedProductsInOneStatement() {
+        List<Long> productIds = productRepository.findAll().stream().map(Product::getProductId).limit(3).toList();
+        Statistics statistics = resetStatistics();
+
+        List<ProductStockView> stock = productRepository.findStockByProductIdIn(productIds);
+
+        assertThat(stock).extracting(ProductStockView::productId).containsExactlyInAnyOrderElementsOf(productIds);
+        assertThat(stock).allSatisfy(view -> assertThat(view.quantityInStock()).isEqualTo(100));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findCatalogPageByCategoryId_shouldUseOneSelectPlusCount() {
+        Statistics statistics = resetStatistics();
+
+        Page<ProductCatalogView> page = productRepository.findCatalogPageByCategoryId(
+                category.getCategoryId(), PageRequest.of(0, 2, Sort.by("productId").ascending()));
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findCatalogSlice_shouldSkipTheCount_onAMiddlePage() {
+        Statistics statistics = resetStatistics();
+
+        Slice<ProductCatalogView> slice = productRepository.findCatalogSlice(PageRequest.of(1, 2, Sort.by("productId").ascending()));
+
+        assertThat(slice.getContent()).hasSize(2);
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findCatalogPageByKeyword_shouldMatchIgnoringCase_withSingleStatementOnLastPage() {
+        Statistics statistics = resetStatistics();
+
+        Page<ProductCatalogView> page = productRepository.findCatalogPageByKeyword(
+                "%catalog product 3%", PageRequest.of(0, 10, Sort.by("productId").ascending()));
+
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getContent().get(0).productName()).isEqualTo("Catalog Product 3");
+        // Página única e incompleta: o Spring Data dispensa o COUNT.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findCatalogAfter_shouldWalkAllProductsByPrice_withoutOffset() {
+        Product cheap = createProduct("Catalog Cheap", "Catalog product description");
+        cheap.setPrice(new BigDecimal("9.90"));
+        entityManager.persistAndFlush(cheap);
+
+        List<Long> visited = new ArrayList<>();
+        String lastValue = null;
+        Long lastId = null;
+        List<ProductCatalogView> slice;
+        do {
+            slice = productRepository.findCatalogAfter("price", false, lastValue, lastId, 2);
+            for (ProductCatalogView view : slice) {
+                visited.add(view.productId());
+                lastValue = view.price().toPlainString();
+                lastId = view.productId();
+            }
+        } while (slice.size() == 2);
+
+        // Os 5 produtos empatados em 49.90 saem por id decrescente, e o mais barato por último.
+        assertThat(visited).hasSize(6).doesNotHaveDuplicates().endsWith(cheap.getProductId());
+        assertThat(visited.subList(0, 5)).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    // price é NOT NULL hoje; o teste relaxa a coluna (DDL transacional, desfeito no rollback do teste) para
+    // cobrir a ordem com nulos por último que o keyset e a página com OFFSET compartilham.
+    private List<Long> withNullPrices() {
+        jdbcTemplate.execute("ALTER TABLE products ALTER COLUMN price DROP NOT NULL");
+        List<Long> nullPriced = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Product product = createProduct("Catalog Unpriced " + i, "Catalog product description");
+            nullPriced.add(product.getProductId());
+        }
+        jdbcTemplate.update("UPDATE products SET price = NULL WHERE product_id IN (?, ?, ?)", nullPriced.toArray());
+        entityManager.clear();
+        return nullPriced;
+    }
+
+    @Test
+    void findCatalogAfter_shouldPutNullValuesLast_andWalkThroughThem() {
+        List<Long> nullPriced = withNullPrices();
+
+        for (boolean ascending : List.of(true, false)) {
+            List<ProductCatalogView> visited = new ArrayList<>();
+            String lastValue = null;
+            Long lastId = null;
+            List<ProductCatalogView> slice;
+            do {
+                slice = productRepository.findCatalogAfter("price", ascending, lastValue, lastId, 2);
+                for (ProductCatalogView view : slice) {
+                    visited.add(view);
+                    lastValue = view.price() != null ? view.price().toPlainString() : null;
+                    lastId = view.productId();
+                }
+            } while (slice.size() == 2);
+
+            List<Long> ids = visited.stream().map(ProductCatalogView::productId).toList();
+            assertThat(ids).hasSize(8).doesNotHaveDuplicates().endsWith(ascending
+                    ? nullPriced.toArray(Long[]::new) : nullPriced.reversed().toArray(Long[]::new));
+            assertThat(visited.subList(0, 5)).allMatch(view -> view.price() != null);
+        }
+    }
+
+    @Test
+    void findCatalogPage_shouldPutNullValuesLast_whenSortedDescending() {
+        List<Long> nullPriced = withNullPrices();
+
+        Page<ProductCatalogView> page = productRepository.findCatalogPage(PageRequest.of(0, 10,
+                Sort.by(Sort.Order.desc("price").nullsLast(), Sort.Order.desc("productId"))));
+
+        assertThat(page.getContent()).map(ProductCatalogView::productId)
+                .hasSize(8).endsWith(nullPriced.reversed().toArray(Long[]::new));
+    }
+
+    private Product createProduct(String name, String description) {
+        Product product = createValidProduct(name, seller, category);
+        product.setDescription(description);
+        return entityManager.persistAndFlush(product);
+    }
+
+    private static PageRequest byRelevance() {
+        return PageRequest.of(0, 10, Sort.by(Sort.Order.desc("rank"), Sort.Order.asc("productId")));
+    }
+
+    @Test
+    void searchCatalogByFullText_shouldIgnoreAccents_andRankNameAboveDescription() {
+        Product inDescription = createProduct("Kit de Panelas", "Ideal para usar no fogão a gás");
+        Product inName = createProduct("Fogão Inox 4 Bocas", "Acendimento automático");
+
+        Page<ProductCatalogView> page = productRepository.searchCatalogByFullText("fogao", byRelevance());
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).extracting(ProductCatalogView::productId)
+                .containsExactly(inName.getProductId(), inDescription.getProductId());
+    }
+
+    @Test
+    void searchCatalogByFullText_shouldSortByCatalogAlias() {
+        Product cheap = createProduct("Cafeteira Elétrica", "Cafeteira simples");
+        cheap.setPrice(new BigDecimal("99.90"));
+        entityManager.persistAndFlush(cheap);
+        Product expensive = createProduct("Cafeteira Expresso", "Cafeteira com moedor");
+        expensive.setPrice(new BigDecimal("899.90"));
+        entityManager.persistAndFlush(expensive);
+
+        Page<ProductCatalogView> page = productRepository.searchCatalogByFullText("cafeteira",
+                PageRequest.of(0, 10, Sort.by("price").descending()));
+
+        assertThat(page.getContent()).extracting(ProductCatalogView::productId)
+                .containsExactly(expensive.getProductId(), cheap.getProductId());
+    }
+
+    @Test
+    void searchCatalogBySimilarity_shouldTolerateTypos() {
+        Product product = createProduct("Refrigerador Frost Free", "Duas portas, 400 litros");
+
+        assertThat(productRepository.searchCatalogByFullText("refrigerdor", byRelevance()).getTotalElements()).isZero();
+
+        Page<ProductCatalogView> page = productRepository.searchCatalogBySimilarity("refrigerdor", byRelevance());
+
+        assertThat(page.getContent()).extracting(ProductCatalogView::productId)
+                .containsExactly(product.getProductId());
+    }
+}
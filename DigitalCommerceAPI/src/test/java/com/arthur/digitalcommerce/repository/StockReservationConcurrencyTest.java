@@ -0,0 +1,112 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.Category;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Sem a transação do teste: cada checkout commita de verdade e disputa a mesma linha de 'products'.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockReservationConcurrencyTest extends BaseRepositoryTest {
+
+    private static final int STOCK = 50;
+    private static final int CHECKOUTS = 300;
+    private static final int THREADS = 24;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+    private Long productId;
+    private Long categoryId;
+    private Long sellerId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            User seller = userRepository.save(new User("flashsale_seller", "flashsale.seller@email.com", "Str0ngP@ss123", "90000000011"));
+            Category category = new Category();
+            category.setCategoryName("Flash Sale");
+            category = categoryRepository.save(category);
+
+            Product product = new Product();
+            product.setProductName("Flash Sale Product");
+            product.setDescription("Produto disputado por centenas de checkouts");
+            product.setQuantityInStock(STOCK);
+            product.setPrice(new BigDecimal("10.00"));
+            product.setUser(seller);
+            product.setCategory(category);
+
+            productId = productRepository.save(product).getProductId();
+            categoryId = category.getCategoryId();
+            sellerId = seller.getUserId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM products WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM categories WHERE category_id = ?", categoryId);
+        jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", sellerId);
+    }
+
+    @Test
+    void concurrentCheckouts_ShouldNeverReserveMoreThanTheStock() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < CHECKOUTS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status -> productRepository.decrementStock(productId, 1));
+                }));
+            }
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<Integer> future : futures) {
+                reserved += future.get(60, TimeUnit.SECONDS);
+            }
+            assertThat(reserved).isEqualTo(STOCK);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Integer stockLeft = jdbcTemplate.queryForObject(
+                "SELECT quantity_in_stock FROM products WHERE product_id = ?", Integer.class, productId);
+        assertThat(stockLeft).isZero();
+    }
+}
@@ -0,0 +1,110 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockReservationRepositoryTest extends BaseRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        User seller = entityManager.persistAndFlush(new User("reservationseller", "reservation.seller@email.com", "Str0ngP@ss123", "30000000001"));
+        Category category = new Category();
+        category.setCategoryName("Reservations");
+        category = entityManager.persistAndFlush(category);
+
+        product = new Product();
+        product.setProductName("Reserved Product");
+        product.setDescription("Product with limited stock");
+        product.setQuantityInStock(5);
+        product.setPrice(new BigDecimal("10.00"));
+        product.setUser(seller);
+        product.setCategory(category);
+        product = entityManager.persistAndFlush(product);
+    }
+
+    private Order createOrder(String status) {
+        Order order = new Order();
+        order.setEmail("buyer@email.com");
+        order.setOrderDate(LocalDate.now());
+        order.setOrderStatus(status);
+        order.setTotalAmount(BigDecimal.TEN);
+        return entityManager.persistAndFlush(order);
+    }
+
+    private int stockOf(Product product) {
+        entityManager.clear();
+        return productRepository.findById(product.getProductId()).orElseThrow().getQuantityInStock();
+    }
+
+    @Test
+    void decrementStock_shouldOnlySucceedWhileThereIsEnoughStock() {
+        assertThat(productRepository.decrementStock(product.getProductId(), 3)).isEqualTo(1);
+        assertThat(productRepository.decrementStock(product.getProductId(), 3)).isZero();
+        assertThat(productRepository.decrementStock(product.getProductId(), 2)).isEqualTo(1);
+
+        assertThat(stockOf(product)).isZero();
+    }
+
+    @Test
+    void leaseStock_shouldTakeAtMostWhatIsLeft_andRestockShouldGiveItBackInOneStatement() {
+        assertThat(productRepository.leaseStock(product.getProductId(), 3)).isEqualTo(3);
+        assertThat(productRepository.leaseStock(product.getProductId(), 3)).isEqualTo(2);
+        assertThat(productRepository.leaseStock(product.getProductId(), 3)).isZero();
+        assertThat(productRepository.leaseStock(-1L, 3)).isNull();
+
+        int updated = productRepository.restock(new Long[]{product.getProductId(), -1L}, new Integer[]{4, 7});
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(stockOf(product)).isEqualTo(4);
+    }
+
+    @Test
+    void releaseHolds_shouldRestockOnlyExpiredOrFailedOrders() {
+        Order expired = createOrder("PENDING_PAYMENT");
+        Order failed = createOrder("PAYMENT_FAILED");
+        Order active = createOrder("PENDING_PAYMENT");
+        LocalDateTime now = LocalDateTime.now();
+        entityManager.persist(new StockReservation(expired, product, 2, now.minusMinutes(1)));
+        entityManager.persist(new StockReservation(failed, product, 1, now.plusMinutes(10)));
+        entityManager.persist(new StockReservation(active, product, 1, now.plusMinutes(10)));
+        productRepository.decrementStock(product.getProductId(), 4);
+        entityManager.flush();
+
+        List<Long> claimed = reservationRepository.claimOrdersWithReleasableHolds(now, 10);
+        assertThat(claimed).containsExactly(expired.getOrderId(), failed.getOrderId());
+
+        assertThat(reservationRepository.releaseHolds(claimed)).isEqualTo(2);
+        assertThat(orderRepository.markExpired(claimed)).isEqualTo(1);
+        // Liberar de novo não devolve estoque duas vezes.
+        assertThat(reservationRepository.releaseHolds(claimed)).isZero();
+
+        assertThat(stockOf(product)).isEqualTo(4);
+        assertThat(orderRepository.findById(expired.getOrderId()).orElseThrow().getOrderStatus()).isEqualTo("EXPIRED");
+        assertThat(reservationRepository.existsByOrderOrderIdAndStatus(active.getOrderId(), ReservationStatus.HELD)).isTrue();
+        assertThat(reservationRepository.claimOrdersWithReleasableHolds(now, 10)).isEmpty();
+    }
+}
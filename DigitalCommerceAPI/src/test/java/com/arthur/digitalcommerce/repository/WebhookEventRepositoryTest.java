@@ -0,0 +1,100 @@
+package com.arthur.digitalcommerce.repository;
+
+import com.arthur.digitalcommerce.model.WebhookEvent;
+import com.arthur.digitalcommerce.model.WebhookEventStatus;
+import com.arthur.digitalcommerce.repository.projection.WebhookQueueStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookEventRepositoryTest extends BaseRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private WebhookEventRepository repository;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        now = LocalDateTime.now();
+    }
+
+    private WebhookEvent enqueue(String paymentId, LocalDateTime receivedAt) {
+        WebhookEvent event = new WebhookEvent(paymentId, "payment.updated");
+        event.setReceivedAt(receivedAt);
+        event.setNextAttemptAt(receivedAt);
+        return entityManager.persistAndFlush(event);
+    }
+
+    private WebhookEvent reload(WebhookEvent event) {
+        entityManager.clear();
+        return repository.findById(event.getId()).orElseThrow();
+    }
+
+    @Test
+    void claimDue_shouldTakeDueEventsOldestFirst_andLeaseThem() {
+        WebhookEvent older = enqueue("1001", now.minusSeconds(10));
+        WebhookEvent newer = enqueue("1002", now.minusSeconds(5));
+        enqueue("1003", now.plusMinutes(1)); // backoff ainda não venceu
+
+        List<WebhookEvent> first = repository.claimDue(now, now.plusMinutes(2), 1);
+        List<WebhookEvent> rest = repository.claimDue(now, now.plusMinutes(2), 10);
+
+        assertThat(first).extracting(WebhookEvent::getId).containsExactly(older.getId());
+        assertThat(rest).extracting(WebhookEvent::getId).containsExactly(newer.getId());
+        WebhookEvent leased = reload(older);
+        assertThat(leased.getStatus()).isEqualTo(WebhookEventStatus.PROCESSING);
+        assertThat(leased.getAttempts()).isEqualTo(1);
+        assertThat(repository.claimDue(now, now.plusMinutes(2), 10)).isEmpty();
+    }
+
+    @Test
+    void claimDue_shouldReclaimEventsWhoseLeaseExpired() {
+        WebhookEvent event = enqueue("2001", now.minusMinutes(5));
+        repository.claimDue(now.minusMinutes(5), now.minusMinutes(3), 10);
+
+        List<WebhookEvent> reclaimed = repository.claimDue(now, now.plusMinutes(2), 10);
+
+        assertThat(reclaimed).extracting(WebhookEvent::getId).containsExactly(event.getId());
+        assertThat(reload(event).getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void rescheduleAndMarkDone_shouldMoveTheEventThroughItsLifecycle() {
+        WebhookEvent event = enqueue("3001", now.minusSeconds(1));
+        repository.claimDue(now, now.plusMinutes(2), 10);
+
+        repository.reschedule(event.getId(), now.plusSeconds(30), "IllegalStateException: gateway down");
+        WebhookEvent retry = reload(event);
+        assertThat(retry.getStatus()).isEqualTo(WebhookEventStatus.PENDING);
+        assertThat(retry.getLastError()).contains("gateway down");
+        assertThat(repository.claimDue(now, now.plusMinutes(2), 10)).isEmpty();
+
+        repository.claimDue(now.plusSeconds(31), now.plusMinutes(3), 10);
+        repository.markDone(event.getId(), now.plusSeconds(32));
+        assertThat(reload(event).getStatus()).isEqualTo(WebhookEventStatus.DONE);
+        assertThat(repository.deleteDoneBefore(now.plusMinutes(1))).isEqualTo(1);
+    }
+
+    @Test
+    void queueStats_shouldCountUnfinishedEvents_andReportTheOldest() {
+        WebhookEvent oldest = enqueue("4001", now.minusMinutes(3));
+        enqueue("4002", now.minusMinutes(1));
+        WebhookEvent finished = enqueue("4003", now.minusMinutes(10));
+        repository.markDone(finished.getId(), now);
+
+        WebhookQueueStats stats = repository.queueStats();
+
+        assertThat(stats.depth()).isEqualTo(2);
+        assertThat(stats.oldestReceivedAt()).isEqualTo(reload(oldest).getReceivedAt());
+    }
+}
@@ -0,0 +1,73 @@
+package com.arthur.digitalcommerce.search;
+
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import com.arthur.digitalcommerce.repository.projection.ProductStockView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryProductSearchEngineTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JpqlProductSearchEngine fallback;
+
+    private InMemoryProductSearchEngine engine;
+
+    private static ProductCatalogView product(long id, String name, int stock) {
+        return new ProductCatalogView(id, name, null, "Produto " + name, stock, new BigDecimal("10.00"), null, false, 1L);
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Estoque no momento da carga do índice.
+        when(productRepository.findCatalogBatchAfter(anyLong(), any())).thenReturn(List.of(
+                product(1, "Notebook Gamer", 10), product(2, "Notebook Office", 10), product(3, "Mouse", 10)));
+        engine = new InMemoryProductSearchEngine(productRepository, fallback);
+        engine.loadIndex();
+    }
+
+    @Test
+    void search_shouldServeCurrentStock_notTheIndexedOne() {
+        // Reservas e o webhook mudaram o estoque sem eventos de produto.
+        when(productRepository.findStockByProductIdIn(List.of(1L, 2L))).thenReturn(List.of(
+                new ProductStockView(1L, "Notebook Gamer", 0), new ProductStockView(2L, "Notebook Office", 7)));
+
+        Page<ProductCatalogView> page = engine.search("notebook", 0, 10, "productId", "asc");
+
+        assertEquals(List.of(0, 7), page.getContent().stream().map(ProductCatalogView::quantityInStock).toList());
+        verify(productRepository, times(1)).findStockByProductIdIn(any());
+    }
+
+    @Test
+    void search_shouldSortByStockInTheDatabase() {
+        Page<ProductCatalogView> live = new PageImpl<>(List.of(product(2, "Notebook Office", 7)));
+        when(fallback.search("notebook", 0, 10, "quantityInStock", "desc")).thenReturn(live);
+
+        assertSame(live, engine.search("notebook", 0, 10, "quantityInStock", "desc"));
+        verify(productRepository, never()).findStockByProductIdIn(any());
+    }
+
+    @Test
+    void search_shouldNotQueryStock_forAnEmptyPage() {
+        assertTrue(engine.search("geladeira", 0, 10, "productId", "asc").isEmpty());
+
+        verify(productRepository, never()).findStockByProductIdIn(any());
+    }
+}
@@ -0,0 +1,121 @@
+package com.arthur.digitalcommerce.search;
+
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import com.arthur.digitalcommerce.search.ProductSearchIndex.SearchHits;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    private static ProductCatalogView product(long id, String name, String description, String price) {
+        return new ProductCatalogView(id, name, null, description, 10, new BigDecimal(price), null, false, 1L);
+    }
+
+    private static List<Long> ids(SearchHits hits) {
+        return hits.content().stream().map(ProductCatalogView::productId).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.upsert(product(1, "Fogão 4 bocas Brastemp", "Fogão a gás com acendimento automático", "1200.00"));
+        index.upsert(product(2, "Geladeira Frost Free", "Geladeira duplex que combina com seu fogão", "3500.00"));
+        index.upsert(product(3, "Notebook Gamer", "Notebook com placa de vídeo dedicada", "5000.00"));
+        index.upsert(product(4, "Mouse sem fio", "Mouse para notebook e computador", "80.00"));
+    }
+
+    @Test
+    void analyzer_shouldFoldAccentsDropStopwordsAndPlurals() {
+        assertEquals(List.of("fogao", "bocao", "eletrico"), SearchTextAnalyzer.analyze("Fogões de Bocões ELÉTRICOS"));
+    }
+
+    @Test
+    void search_shouldMatchIgnoringAccentsAndCase() {
+        assertEquals(List.of(1L, 2L), ids(index.search("FOGAO", null, 0, 10)));
+    }
+
+    @Test
+    void search_shouldRankNameMatchesAboveDescriptionMatches() {
+        SearchHits hits = index.search("notebook", null, 0, 10);
+
+        assertEquals(List.of(3L, 4L), ids(hits));
+        assertEquals(2, hits.totalElements());
+    }
+
+    @Test
+    void search_shouldRequireAllTerms() {
+        assertEquals(List.of(4L), ids(index.search("mouse notebook", null, 0, 10)));
+        assertTrue(index.search("mouse geladeira", null, 0, 10).content().isEmpty());
+    }
+
+    @Test
+    void search_shouldExpandPrefixes() {
+        assertEquals(List.of(2L), ids(index.search("gelad", null, 0, 10)));
+    }
+
+    @Test
+    void search_shouldSortAndPageByRequestedField() {
+        SearchHits firstPage = index.search("fogao", Comparator.comparing(ProductCatalogView::price).reversed(), 0, 1);
+        SearchHits secondPage = index.search("fogao", Comparator.comparing(ProductCatalogView::price).reversed(), 1, 1);
+
+        assertEquals(List.of(2L), ids(firstPage));
+        assertEquals(List.of(1L), ids(secondPage));
+        assertEquals(2, secondPage.totalElements());
+    }
+
+    @Test
+    void upsert_shouldReplacePreviousVersion() {
+        index.upsert(product(3, "Ultrabook", "Leve e fino", "4000.00"));
+
+        assertEquals(List.of(4L), ids(index.search("notebook", null, 0, 10)));
+        assertEquals(List.of(3L), ids(index.search("ultrabook", null, 0, 10)));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void upsert_shouldReclaimDeadDocs_whenTheSameProductIsEditedRepeatedly() {
+        for (int i = 0; i < 5_000; i++) {
+            index.upsert(product(1, "Fogão 4 bocas Brastemp", "Edição " + i, "1200.00"));
+        }
+
+        // Sem renumerar na compactação, seriam 5.004 docIds alocados.
+        assertTrue(index.allocatedDocs() <= 4 + 1_000, "allocated: " + index.allocatedDocs());
+        assertEquals(4, index.size());
+        assertEquals(List.of(1L, 2L), ids(index.search("fogao", null, 0, 10)));
+        assertEquals(List.of(3L, 4L), ids(index.search("notebook", null, 0, 10)));
+    }
+
+    @Test
+    void compact_shouldKeepRankingAndPostingsConsistent() {
+        index.upsert(product(2, "Geladeira Inverse", "Geladeira que combina com seu fogão", "3600.00"));
+        index.remove(4L);
+
+        index.compact();
+
+        assertEquals(3, index.allocatedDocs());
+        assertEquals(List.of(1L, 2L), ids(index.search("fogao", null, 0, 10)));
+        assertEquals(List.of(3L), ids(index.search("notebook", null, 0, 10)));
+        assertEquals(List.of(2L), ids(index.search("inverse", null, 0, 10)));
+    }
+
+    @Test
+    void remove_shouldHideProduct() {
+        index.remove(1L);
+
+        assertEquals(List.of(2L), ids(index.search("fogao", null, 0, 10)));
+    }
+
+    @Test
+    void addIfAbsent_shouldNotOverrideIndexedVersion() {
+        assertFalse(index.addIfAbsent(product(3, "Ultrabook", "Leve e fino", "4000.00")));
+        assertTrue(index.search("ultrabook", null, 0, 10).content().isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package com.arthur.digitalcommerce.security.jwt;
+
+import com.arthur.digitalcommerce.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = "c2VncmVkby1kby1iZW5jaG1hcmstY29tLTMyLWJ5dGVzISE=";
+    private static final String OTHER_SECRET = "b3V0cm8tc2VncmVkby1jb20tbWFpcy1kZS0zMi1ieXRlcyEh";
+
+    private final JwtUtils jwtUtils = new JwtUtils(SECRET, 60_000);
+
+    private static UserDetailsImpl userDetails() {
+        return new UserDetailsImpl(7L, "user1", "user1@example.com", "hash",
+                List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_SELLER")));
+    }
+
+    @Test
+    void parseValidatedClaims_shouldReturnSubject_forValidToken() {
+        String token = jwtUtils.generateTokenFromUserDetails(userDetails());
+
+        Claims claims = jwtUtils.parseValidatedClaims(token);
+
+        assertNotNull(claims);
+        assertEquals("user1", claims.getSubject());
+        assertTrue(jwtUtils.validateJwtToken(token));
+        assertEquals("user1", jwtUtils.getUserNameFromJwtToken(token));
+    }
+
+    @Test
+    void getUserDetailsFromClaims_shouldRebuildPrincipalWithoutPassword() {
+        String token = jwtUtils.generateTokenFromUserDetails(userDetails());
+
+        UserDetailsImpl principal = jwtUtils.getUserDetailsFromClaims(jwtUtils.parseValidatedClaims(token));
+
+        assertNotNull(principal);
+        assertEquals(7L, principal.getId());
+        assertEquals("user1", principal.getUsername());
+        assertEquals("user1@example.com", principal.getEmail());
+        assertNull(principal.getPassword());
+        assertEquals(List.of("ROLE_USER", "ROLE_SELLER"),
+                principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    @Test
+    void getUserDetailsFromClaims_shouldReturnNull_forTokenWithoutUserClaims() {
+        String legacyToken = Jwts.builder()
+                .subject("user1")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+
+        Claims claims = jwtUtils.parseValidatedClaims(legacyToken);
+
+        assertNotNull(claims);
+        assertNull(jwtUtils.getUserDetailsFromClaims(claims));
+    }
+
+    @Test
+    void parseValidatedClaims_shouldReturnNull_whenSignedWithAnotherKey() {
+        String foreignToken = new JwtUtils(OTHER_SECRET, 60_000).generateTokenFromUserDetails(userDetails());
+
+        assertNull(jwtUtils.parseValidatedClaims(foreignToken));
+        assertFalse(jwtUtils.validateJwtToken(foreignToken));
+    }
+
+    @Test
+    void parseValidatedClaims_shouldReturnNull_forExpiredOrMalformedToken() {
+        String expired = new JwtUtils(SECRET, -1_000).generateTokenFromUserDetails(userDetails());
+
+        assertNull(jwtUtils.parseValidatedClaims(expired));
+        assertNull(jwtUtils.parseValidatedClaims("not-a-jwt"));
+        assertNull(jwtUtils.parseValidatedClaims(""));
+    }
+}
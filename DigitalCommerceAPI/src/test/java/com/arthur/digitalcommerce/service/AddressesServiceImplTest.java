@@ -2,6 +2,7 @@ package com.arthur.digitalcommerce.service;
 
 import com.arthur.digitalcommerce.exceptions.APIException;
 import com.arthur.digitalcommerce.exceptions.ResourceNotFoundException;
+import com.arthur.digitalcommerce.mapper.AddressMapper;
 import com.arthur.digitalcommerce.model.Address;
 import com.arthur.digitalcommerce.model.User;
 import com.arthur.digitalcommerce.payload.AddressDTO;
@@ -14,8 +15,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -35,8 +36,8 @@ class AddressesServiceImplTest {
     private UserRepository userRepository;
     @Mock
     private AuthUtil authUtil;
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private AddressMapper addressMapper = new AddressMapper();
 
     @InjectMocks
     private AddressesServiceImpl addressesService;
@@ -67,9 +68,7 @@ class AddressesServiceImplTest {
     @Test
     void createAddress_shouldReturnSavedAddressDTO_whenUserIsLoggedIn() {
         when(authUtil.loggedInUser()).thenReturn(user);
-        when(modelMapper.map(any(AddressDTO.class), eq(Address.class))).thenReturn(address);
         when(addressRepository.save(any(Address.class))).thenReturn(address);
-        when(modelMapper.map(any(Address.class), eq(AddressDTO.class))).thenReturn(addressDTO);
 
         AddressDTO result = addressesService.createAddress(addressDTO);
 
@@ -82,7 +81,6 @@ class AddressesServiceImplTest {
     void getAllAddress_shouldReturnListOfAddressDTOs() {
         List<Address> addresses = Collections.singletonList(address);
         when(addressRepository.findAll()).thenReturn(addresses);
-        when(modelMapper.map(any(Address.class), eq(AddressDTO.class))).thenReturn(addressDTO);
 
         List<AddressDTO> result = addressesService.getAllAddress();
 
@@ -93,7 +91,6 @@ class AddressesServiceImplTest {
     @Test
     void getByIdAddress_shouldReturnAddressDTO_whenAddressExists() {
         when(addressRepository.findById(addressId)).thenReturn(Optional.of(address));
-        when(modelMapper.map(any(Address.class), eq(AddressDTO.class))).thenReturn(addressDTO);
 
         AddressDTO result = addressesService.getByIdAddress(addressId);
 
@@ -111,7 +108,6 @@ class AddressesServiceImplTest {
     void getAllAddressesByUser_shouldReturnUserAddresses_whenUserIsLoggedIn() {
         when(authUtil.loggedInEmail()).thenReturn(userEmail);
         when(addressRepository.findByUserEmail(userEmail)).thenReturn(Collections.singletonList(address));
-        when(modelMapper.map(any(Address.class), eq(AddressDTO.class))).thenReturn(addressDTO);
 
         List<AddressDTO> result = addressesService.getAllAddressesByUser();
 
@@ -127,7 +123,6 @@ class AddressesServiceImplTest {
         when(addressRepository.findById(addressId)).thenReturn(Optional.of(address));
         when(addressRepository.save(any(Address.class))).thenReturn(address);
         when(userRepository.save(any(User.class))).thenReturn(user);
-        when(modelMapper.map(any(Address.class), eq(AddressDTO.class))).thenReturn(addressDTO);
 
         addressesService.updateAddress(addressId, updateDTO);
 
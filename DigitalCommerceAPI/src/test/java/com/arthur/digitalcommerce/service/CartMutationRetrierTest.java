@@ -0,0 +1,58 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.exceptions.ConcurrentUpdateException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartMutationRetrierTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CartMutationRetrier retrier = new CartMutationRetrier(meterRegistry, 3, 0);
+
+    @Test
+    void execute_shouldRetryConflictsUntilTheMutationSucceeds() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retrier.execute("add", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Cart", 1L);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, meterRegistry.counter("cart.optimistic_lock.conflicts", "operation", "add").count());
+        assertEquals(2, meterRegistry.counter("cart.optimistic_lock.retries", "operation", "add").count());
+    }
+
+    @Test
+    void execute_shouldThrowConflict_whenAttemptsAreExhausted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ConcurrentUpdateException.class, () -> retrier.execute("remove", () -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Cart", 1L);
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(1, meterRegistry.counter("cart.optimistic_lock.exhausted", "operation", "remove").count());
+    }
+
+    @Test
+    void execute_shouldNotRetryOtherFailures() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> retrier.execute("add", () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,87 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.events.ProductDeletedEvent;
+import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.repository.CartRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CartRepricingServiceTest {
+
+    @Mock
+    private CartRepository cartRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CartRepricingService repricingService;
+
+    @BeforeEach
+    void setUp() {
+        repricingService = new CartRepricingService(cartRepository, transactionManager, meterRegistry, 2);
+    }
+
+    private static Product product(Long productId) {
+        Product product = new Product();
+        product.setProductId(productId);
+        return product;
+    }
+
+    @Test
+    void repriceCartsContaining_shouldUpdateInKeysetBatches() {
+        when(cartRepository.findCartIdsByProductIdAfter(1L, 0L, PageRequest.of(0, 2))).thenReturn(List.of(10L, 11L));
+        when(cartRepository.findCartIdsByProductIdAfter(1L, 11L, PageRequest.of(0, 2))).thenReturn(List.of(15L));
+
+        int repriced = repricingService.repriceCartsContaining(1L);
+
+        assertEquals(3, repriced);
+        verify(cartRepository).recalculateTotals(List.of(10L, 11L));
+        verify(cartRepository).recalculateTotals(List.of(15L));
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(3, meterRegistry.counter("cart.repricing.carts").count());
+        assertEquals(0, meterRegistry.get("cart.repricing.active").gauge().value());
+    }
+
+    @Test
+    void onProductUpdated_shouldIgnoreUpdatesWithoutPriceChange() {
+        repricingService.onProductUpdated(new ProductUpdatedEvent(product(1L), null, false));
+
+        verifyNoInteractions(cartRepository);
+    }
+
+    @Test
+    void onProductUpdated_shouldRepriceWhenPriceChanged() {
+        when(cartRepository.findCartIdsByProductIdAfter(eq(1L), eq(0L), any())).thenReturn(List.of());
+
+        repricingService.onProductUpdated(new ProductUpdatedEvent(product(1L), null, true));
+
+        verify(cartRepository, never()).recalculateTotals(any());
+        assertEquals(1, meterRegistry.timer("cart.repricing.duration", "outcome", "success").count());
+    }
+
+    @Test
+    void onProductDeleted_shouldRemoveProductFromAllCartsInOneStatement() {
+        when(cartRepository.removeProductFromAllCarts(1L)).thenReturn(4);
+
+        repricingService.onProductDeleted(new ProductDeletedEvent(1L));
+
+        verify(cartRepository).removeProductFromAllCarts(1L);
+        verify(cartRepository, never()).findCartIdsByProductIdAfter(any(), any(), any());
+        assertEquals(4, meterRegistry.counter("cart.product_removal.carts").count());
+    }
+}
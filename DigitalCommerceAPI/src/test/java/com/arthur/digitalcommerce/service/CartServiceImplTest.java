@@ -1,18 +1,20 @@
 package com.arthur.digitalcommerce.service;
 
-import com.arthur.digitalcommerce.events.ProductDeletedEvent;
-import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
 import com.arthur.digitalcommerce.exceptions.APIException;
 import com.arthur.digitalcommerce.exceptions.ResourceNotFoundException;
+import com.arthur.digitalcommerce.mapper.CartMapper;
+import com.arthur.digitalcommerce.mapper.ProductMapper;
 import com.arthur.digitalcommerce.model.Cart;
 import com.arthur.digitalcommerce.model.CartItem;
 import com.arthur.digitalcommerce.model.Product;
 import com.arthur.digitalcommerce.model.User;
 import com.arthur.digitalcommerce.payload.CartDTO;
+import com.arthur.digitalcommerce.payload.CartItemQuantityDTO;
 import com.arthur.digitalcommerce.payload.ProductDTO;
 import com.arthur.digitalcommerce.repository.CartItemRepository;
 import com.arthur.digitalcommerce.repository.CartRepository;
 import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.stock.HotStockCounters;
 import com.arthur.digitalcommerce.util.AuthUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,12 +22,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Collections;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import java.util.List;
@@ -45,10 +46,12 @@ class CartServiceImplTest {
     private ProductRepository productRepository;
     @Mock
     private CartItemRepository cartItemRepository;
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private CartMapper cartMapper = new CartMapper(new ProductMapper());
     @Mock
     private AuthUtil authUtil;
+    @Mock
+    private HotStockCounters hotStockCounters;
 
     @InjectMocks
     private CartServiceImpl cartService;
@@ -86,9 +89,7 @@ class CartServiceImplTest {
         cartItem.setQuantity(1);
 
         when(authUtil.loggedInEmail()).thenReturn(userEmail);
-        when(authUtil.loggedInUser()).thenReturn(user); // 'lenient()' removido
-        when(modelMapper.map(any(Cart.class), eq(CartDTO.class))).thenReturn(new CartDTO()); // 'lenient()' removido
-        when(modelMapper.map(any(Product.class), eq(ProductDTO.class))).thenReturn(productDTO); // 'lenient()' removido
+        when(authUtil.loggedInUserReference()).thenReturn(user); // 'lenient()' removido
 
         productDTO = new ProductDTO();
         productDTO.setProductId(productId);
@@ -96,14 +97,38 @@ class CartServiceImplTest {
         productDTO.setQuantityInStock(10);
 
         when(authUtil.loggedInEmail()).thenReturn(userEmail);
-        lenient().when(authUtil.loggedInUser()).thenReturn(user);
-        lenient().when(modelMapper.map(any(Cart.class), eq(CartDTO.class))).thenReturn(new CartDTO());
+        lenient().when(authUtil.loggedInUserReference()).thenReturn(user);
 
-        lenient().when(modelMapper.map(any(Product.class), eq(ProductDTO.class))).thenReturn(productDTO);
 
 
 
 
+    }
+
+    @Test
+    void getCartForCurrentUser_shouldReadWithoutSaving() {
+        cart.getCartItems().add(cartItem);
+        // Total gravado diferente da soma das linhas: a leitura devolve o gravado, sem recalcular nem corrigir.
+        cart.setTotalPrice(new BigDecimal("7.50"));
+        when(cartRepository.findWithItemsByUserEmail(userEmail)).thenReturn(Optional.of(cart));
+
+        CartDTO result = cartService.getCartForCurrentUser();
+
+        assertEquals(1, result.getProducts().size());
+        assertEquals(7.5, result.getTotalPrice());
+        assertEquals(new BigDecimal("7.50"), cart.getTotalPrice());
+        verify(cartRepository, never()).save(any());
+    }
+
+    @Test
+    void getCartForCurrentUser_shouldReturnEmptyCart_withoutCreatingOne() {
+        when(cartRepository.findWithItemsByUserEmail(userEmail)).thenReturn(Optional.empty());
+
+        CartDTO result = cartService.getCartForCurrentUser();
+
+        assertNull(result.getCartId());
+        assertTrue(result.getProducts().isEmpty());
+        verify(cartRepository, never()).save(any());
     }
 
     @Test
@@ -147,6 +172,21 @@ class CartServiceImplTest {
         assertThrows(APIException.class, () -> cartService.addProductToCart(productId, 20));
     }
 
+    @Test
+    void addProductToCart_shouldCountUnitsLeasedToTheHotCounter() {
+        // 10 no banco + 15 no contador em memória
+        when(hotStockCounters.leased(productId)).thenReturn(15);
+        when(cartRepository.findByUserEmail(userEmail)).thenReturn(Optional.of(cart));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
+        when(cartRepository.save(any(Cart.class))).thenReturn(cart);
+
+        cartService.addProductToCart(productId, 20);
+        APIException exception = assertThrows(APIException.class, () -> cartService.addProductToCart(productId, 6));
+
+        assertEquals(20, cart.getCartItems().get(0).getQuantity());
+        assertTrue(exception.getMessage().contains("Available: 25"));
+    }
+
     @Test
     void addProductToCart_shouldThrowException_whenProductNotFound() {
         when(cartRepository.findByUserEmail(userEmail)).thenReturn(Optional.of(cart));
@@ -245,26 +285,93 @@ class CartServiceImplTest {
     }
 
     @Test
-    void handleProductUpdate_shouldRecalculateCartTotal() {
-        ProductUpdatedEvent event = new ProductUpdatedEvent(product);
-        when(cartRepository.findCartsByProductId(productId)).thenReturn(Collections.singletonList(cart));
+    void addProductToCart_shouldApplyOnlyTheLineDeltaToTheStoredTotal() {
+        cartItem.setDiscount(BigDecimal.ZERO);
+        cart.getCartItems().add(cartItem);
+        // Total gravado propositalmente diferente do recálculo completo (10): só a diferença da linha é somada.
+        cart.setTotalPrice(new BigDecimal("15"));
+        when(cartRepository.findByUserEmail(userEmail)).thenReturn(Optional.of(cart));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
 
-        cartService.handleProductUpdate(event);
+        cartService.addProductToCart(productId, 2);
 
-        verify(cartRepository, times(1)).save(cart);
+        assertEquals(0, new BigDecimal("35").compareTo(cart.getTotalPrice()));
     }
 
     @Test
-    void handleProductDelete_shouldRemoveItemFromCarts() {
-        ProductDeletedEvent event = new ProductDeletedEvent(productId);
+    void updateProductQuantityInCart_shouldApplyLineDelta() {
+        cartItem.setQuantity(3);
         cart.getCartItems().add(cartItem);
-
-        when(cartRepository.findCartsByProductId(productId)).thenReturn(Collections.singletonList(cart));
+        cart.setTotalPrice(new BigDecimal("30"));
+        when(cartRepository.findByUserEmail(userEmail)).thenReturn(Optional.of(cart));
+        when(productRepository.findById(productId)).thenReturn(Optional.of(product));
         when(cartItemRepository.findCartItemByProductIdAndCartId(cartId, productId)).thenReturn(Optional.of(cartItem));
-        lenient().when(cartRepository.save(any(Cart.class))).thenReturn(cart);
 
-        cartService.handleProductDelete(event);
+        cartService.updateProductQuantityInCart(productId, 1);
 
-        verify(cartItemRepository, times(1)).delete(cartItem);
+        assertEquals(0, BigDecimal.TEN.compareTo(cart.getTotalPrice()));
+    }
+
+    @Test
+    void updateCartItems_shouldAddUpdateAndRemoveInOneSave() {
+        Product other = new Product();
+        other.setProductId(2L);
+        other.setProductName("Other Product");
+        other.setQuantityInStock(5);
+        other.setPrice(new BigDecimal("3.50"));
+        Product removed = new Product();
+        removed.setProductId(3L);
+        removed.setProductName("Removed Product");
+        removed.setQuantityInStock(5);
+        removed.setPrice(new BigDecimal("7"));
+
+        CartItem removedItem = new CartItem(null, cart, removed, 1, BigDecimal.ZERO, null);
+        cartItem.setDiscount(BigDecimal.ZERO);
+        cart.getCartItems().add(cartItem);
+        cart.getCartItems().add(removedItem);
+        cart.setTotalPrice(new BigDecimal("17"));
+        when(cartRepository.findWithItemsByUserEmail(userEmail)).thenReturn(Optional.of(cart));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product, other, removed));
+
+        CartDTO result = cartService.updateCartItems(List.of(
+                new CartItemQuantityDTO(productId, 4),
+                new CartItemQuantityDTO(2L, 2),
+                new CartItemQuantityDTO(3L, 0)));
+
+        verify(productRepository, times(1)).findAllById(any());
+        verify(productRepository, never()).findById(any());
+        verify(cartRepository, times(1)).save(cart);
+        assertEquals(2, cart.getCartItems().size());
+        assertEquals(0, new BigDecimal("47").compareTo(cart.getTotalPrice()));
+        assertEquals(47.0, result.getTotalPrice());
+    }
+
+    @Test
+    void updateCartItems_shouldReportAllStockProblems_beforeChangingAnything() {
+        Product other = new Product();
+        other.setProductId(2L);
+        other.setProductName("Other Product");
+        other.setQuantityInStock(1);
+        other.setPrice(BigDecimal.ONE);
+        when(productRepository.findAllById(any())).thenReturn(List.of(product, other));
+
+        APIException exception = assertThrows(APIException.class, () -> cartService.updateCartItems(List.of(
+                new CartItemQuantityDTO(productId, 50),
+                new CartItemQuantityDTO(2L, 2))));
+
+        assertTrue(exception.getMessage().contains("Test Product"));
+        assertTrue(exception.getMessage().contains("Other Product"));
+        verify(cartRepository, never()).save(any());
+    }
+
+    @Test
+    void updateCartItems_shouldRejectUnknownOrDuplicatedProducts() {
+        when(productRepository.findAllById(any())).thenReturn(List.of());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> cartService.updateCartItems(List.of(new CartItemQuantityDTO(99L, 1))));
+        assertThrows(APIException.class, () -> cartService.updateCartItems(List.of(
+                new CartItemQuantityDTO(productId, 1), new CartItemQuantityDTO(productId, 2))));
+        verify(cartRepository, never()).save(any());
     }
-}
\ No newline at end of file
+}
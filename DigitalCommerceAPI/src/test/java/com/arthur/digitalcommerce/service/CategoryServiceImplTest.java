@@ -1,24 +1,31 @@
 package com.arthur.digitalcommerce.service;
 
+import com.arthur.digitalcommerce.events.CategoryChangedEvent;
 import com.arthur.digitalcommerce.exceptions.APIException;
 import com.arthur.digitalcommerce.exceptions.ResourceNotFoundException;
+import com.arthur.digitalcommerce.mapper.CategoryMapper;
 import com.arthur.digitalcommerce.model.Category;
 import com.arthur.digitalcommerce.payload.CategoryDTO;
 import com.arthur.digitalcommerce.payload.CategoryResponse;
 import com.arthur.digitalcommerce.repository.CategoryRepository;
+import com.arthur.digitalcommerce.util.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,8 +38,11 @@ class CategoryServiceImplTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Spy
+    private CategoryMapper categoryMapper = new CategoryMapper();
+
     @Mock
-    private ModelMapper modelMapper;
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private CategoryServiceImpl categoryService;
@@ -56,7 +66,6 @@ class CategoryServiceImplTest {
     void getAllCategories_shouldReturnCategoryResponse_whenCategoriesExist() {
         Page<Category> categoryPage = new PageImpl<>(Collections.singletonList(category));
         when(categoryRepository.findAll(any(Pageable.class))).thenReturn(categoryPage);
-        when(modelMapper.map(any(Category.class), eq(CategoryDTO.class))).thenReturn(categoryDTO);
 
         CategoryResponse result = categoryService.getAllCategories(0, 5, "categoryId", "asc");
 
@@ -65,6 +74,36 @@ class CategoryServiceImplTest {
         assertEquals(1, result.getTotalElements());
     }
 
+    @Test
+    void getAllCategoriesByCursor_shouldReturnNextCursor_withoutCount() {
+        Category second = new Category();
+        second.setCategoryId(2L);
+        second.setCategoryName("Furniture");
+        when(categoryRepository.findAfter("categoryName", true, null, null, 2)).thenReturn(List.of(category, second));
+
+        CategoryResponse result = categoryService.getAllCategoriesByCursor(null, 1, "categoryName", "asc", false);
+
+        assertEquals(1, result.getContent().size());
+        assertNull(result.getTotalElements());
+        assertEquals(new KeysetCursor("categoryName", "asc", "Electronics", categoryId), KeysetCursor.decode(result.getNextCursor()));
+        verify(categoryRepository, never()).count();
+    }
+
+    @Test
+    void getAllCategoriesWithoutTotal_shouldKeepThePageNumber_andSkipCount() {
+        when(categoryRepository.findSliceBy(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(category), PageRequest.of(2, 1), true));
+
+        CategoryResponse result = categoryService.getAllCategoriesWithoutTotal(2, 1, "categoryName", "asc");
+
+        assertEquals(2, result.getPageNumber());
+        assertNull(result.getTotalElements());
+        assertFalse(result.isLastPage());
+        assertEquals(new KeysetCursor("categoryName", "asc", "Electronics", categoryId), KeysetCursor.decode(result.getNextCursor()));
+        verify(categoryRepository, never()).findAll(any(Pageable.class));
+        verify(categoryRepository, never()).count();
+    }
+
     @Test
     void getAllCategories_shouldThrowException_whenNoCategoriesExist() {
         Page<Category> emptyPage = new PageImpl<>(Collections.emptyList());
@@ -75,10 +114,8 @@ class CategoryServiceImplTest {
 
     @Test
     void createCategory_shouldReturnSavedCategoryDTO_whenCategoryNameIsUnique() {
-        when(modelMapper.map(any(CategoryDTO.class), eq(Category.class))).thenReturn(category);
         when(categoryRepository.findByCategoryName(anyString())).thenReturn(null);
         when(categoryRepository.save(any(Category.class))).thenReturn(category);
-        when(modelMapper.map(any(Category.class), eq(CategoryDTO.class))).thenReturn(categoryDTO);
 
         CategoryDTO result = categoryService.createCategory(categoryDTO);
 
@@ -89,7 +126,6 @@ class CategoryServiceImplTest {
 
     @Test
     void createCategory_shouldThrowException_whenCategoryNameAlreadyExists() {
-        when(modelMapper.map(any(CategoryDTO.class), eq(Category.class))).thenReturn(category);
         when(categoryRepository.findByCategoryName(anyString())).thenReturn(category);
 
         assertThrows(APIException.class, () -> categoryService.createCategory(categoryDTO));
@@ -100,12 +136,12 @@ class CategoryServiceImplTest {
     void deleteCategory_shouldSucceed_whenCategoryExists() {
         when(categoryRepository.findById(categoryId)).thenReturn(Optional.of(category));
         doNothing().when(categoryRepository).delete(any(Category.class));
-        when(modelMapper.map(any(Category.class), eq(CategoryDTO.class))).thenReturn(categoryDTO);
 
         CategoryDTO result = categoryService.deleteCategory(categoryId);
 
         assertNotNull(result);
         verify(categoryRepository, times(1)).delete(category);
+        verify(eventPublisher, times(1)).publishEvent(any(CategoryChangedEvent.class));
     }
 
     @Test
@@ -124,7 +160,6 @@ class CategoryServiceImplTest {
         when(categoryRepository.findById(categoryId)).thenReturn(Optional.of(category));
         when(categoryRepository.save(any(Category.class))).thenReturn(category);
 
-        lenient().when(modelMapper.map(any(Category.class), eq(CategoryDTO.class))).thenReturn(updateDTO);
 
         categoryService.updateCategory(updateDTO, categoryId);
 
@@ -133,6 +168,7 @@ class CategoryServiceImplTest {
         Category capturedCategory = categoryCaptor.getValue();
 
         assertEquals(categoryId, capturedCategory.getCategoryId());
+        assertEquals("New Electronics", capturedCategory.getCategoryName());
     }
 
     @Test
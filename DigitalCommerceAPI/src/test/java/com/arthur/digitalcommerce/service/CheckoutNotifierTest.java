@@ -0,0 +1,39 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.payload.CheckoutStatus;
+import com.arthur.digitalcommerce.payload.CheckoutStatusDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutNotifierTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CheckoutNotifier notifier = new CheckoutNotifier(60_000, meterRegistry);
+
+    private static CheckoutStatusDTO ready(Long orderId) {
+        return new CheckoutStatusDTO(orderId, CheckoutStatus.PREFERENCE_READY, "pref-" + orderId,
+                "https://mp.test/checkout/pref-" + orderId, "PENDING_PAYMENT");
+    }
+
+    @Test
+    void publish_shouldCloseEveryStreamOfTheOrder_andLeaveOtherOrdersAlone() {
+        notifier.subscribe(1L);
+        notifier.subscribe(1L);
+        notifier.subscribe(2L);
+        assertEquals(2, meterRegistry.get("checkout.sse.orders").gauge().value());
+
+        notifier.publish(ready(1L));
+
+        assertEquals(0, notifier.subscriberCount(1L));
+        assertEquals(1, notifier.subscriberCount(2L));
+        assertEquals(1, meterRegistry.get("checkout.sse.orders").gauge().value());
+    }
+
+    @Test
+    void publish_shouldIgnoreOrdersWithoutStreams() {
+        assertDoesNotThrow(() -> notifier.publish(ready(3L)));
+        assertEquals(0, notifier.subscriberCount(3L));
+    }
+}
@@ -0,0 +1,101 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.model.Cart;
+import com.arthur.digitalcommerce.model.CartItem;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.projection.ProductStockView;
+import com.arthur.digitalcommerce.stock.HotStockCounters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckoutStockValidatorTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private HotStockCounters hotStockCounters;
+
+    @InjectMocks
+    private CheckoutStockValidator validator;
+
+    private static CartItem item(Cart cart, Long productId, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(productId);
+        product.setProductName(name);
+        CartItem item = new CartItem();
+        item.setCart(cart);
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        cart.getCartItems().add(item);
+        return item;
+    }
+
+    @Test
+    void validate_shouldLoadAllProductsInOneQuery() {
+        Cart cart = new Cart();
+        item(cart, 1L, "Mouse", 2);
+        item(cart, 2L, "Keyboard", 1);
+        when(productRepository.findStockByProductIdIn(List.of(1L, 2L))).thenReturn(List.of(
+                new ProductStockView(1L, "Mouse", 5), new ProductStockView(2L, "Keyboard", 1)));
+
+        assertDoesNotThrow(() -> validator.validate(cart));
+
+        verify(productRepository, times(1)).findStockByProductIdIn(any());
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void validate_shouldReportEveryProblemAtOnce() {
+        Cart cart = new Cart();
+        item(cart, 1L, "Mouse", 3);
+        item(cart, 2L, "Keyboard", 1);
+        item(cart, 3L, "Monitor", 1);
+        item(cart, 4L, "Cable", 1);
+        when(productRepository.findStockByProductIdIn(any())).thenReturn(List.of(
+                new ProductStockView(1L, "Mouse", 2), new ProductStockView(2L, "Keyboard", 0),
+                new ProductStockView(4L, "Cable", 10)));
+
+        APIException exception = assertThrows(APIException.class, () -> validator.validate(cart));
+
+        assertTrue(exception.getMessage().contains("'Mouse' has insufficient stock (available: 2, in your cart: 3)"));
+        assertTrue(exception.getMessage().contains("'Keyboard' is out of stock"));
+        assertTrue(exception.getMessage().contains("'Monitor' is no longer available"));
+        assertFalse(exception.getMessage().contains("Cable"));
+    }
+
+    @Test
+    void validate_shouldCountUnitsLeasedToTheHotCounter() {
+        Cart cart = new Cart();
+        item(cart, 1L, "Console", 3);
+        item(cart, 2L, "Controller", 5);
+        // O lote em memória já saiu da linha de 'products': o banco mostra 0 e 2.
+        when(productRepository.findStockByProductIdIn(any())).thenReturn(List.of(
+                new ProductStockView(1L, "Console", 0), new ProductStockView(2L, "Controller", 2)));
+        when(hotStockCounters.leased(1L)).thenReturn(4);
+        when(hotStockCounters.leased(2L)).thenReturn(1);
+
+        APIException exception = assertThrows(APIException.class, () -> validator.validate(cart));
+
+        assertFalse(exception.getMessage().contains("Console"));
+        assertTrue(exception.getMessage().contains("'Controller' has insufficient stock (available: 3, in your cart: 5)"));
+    }
+
+    @Test
+    void validate_shouldRejectEmptyCart() {
+        assertThrows(APIException.class, () -> validator.validate(new Cart()));
+        verifyNoInteractions(productRepository);
+    }
+}
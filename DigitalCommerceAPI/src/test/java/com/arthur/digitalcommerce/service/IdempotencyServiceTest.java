@@ -0,0 +1,177 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.exceptions.ConcurrentUpdateException;
+import com.arthur.digitalcommerce.exceptions.IdempotencyKeyReuseException;
+import com.arthur.digitalcommerce.model.IdempotencyRecord;
+import com.arthur.digitalcommerce.model.IdempotencyStatus;
+import com.arthur.digitalcommerce.repository.IdempotencyKeyRepository;
+import com.arthur.digitalcommerce.service.IdempotencyService.IdempotentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final Long USER_ID = 7L;
+    private static final String KEY = "3f1c9a2e-checkout";
+    private static final String REQUEST = "POST /api/orders/create-preference/1";
+
+    @Mock
+    private IdempotencyKeyRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        idempotencyService = new IdempotencyService(repository, transactionManager, new ObjectMapper(), meterRegistry,
+                Duration.ofHours(24), Duration.ofMinutes(2), 100);
+    }
+
+    private void claimSucceeds() {
+        when(repository.claim(eq(USER_ID), eq(KEY), anyString(), any(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void execute_shouldRunOnce_andReplayTheStoredResponseFromMemory() {
+        claimSucceeds();
+        AtomicInteger calls = new AtomicInteger();
+
+        IdempotentResponse first = idempotencyService.execute(USER_ID, KEY, REQUEST,
+                () -> Map.of("id", "pref-" + calls.incrementAndGet()));
+        IdempotentResponse second = idempotencyService.execute(USER_ID, KEY, REQUEST,
+                () -> Map.of("id", "pref-" + calls.incrementAndGet()));
+
+        assertEquals("{\"id\":\"pref-1\"}", first.body());
+        assertFalse(first.replayed());
+        assertEquals(first.body(), second.body());
+        assertTrue(second.replayed());
+        assertEquals(1, calls.get());
+        verify(repository).complete(USER_ID, KEY, "{\"id\":\"pref-1\"}");
+        verify(repository, times(1)).claim(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void execute_shouldReplayFromTheDatabase_whenAnotherInstanceCompletedTheKey() {
+        when(repository.claim(eq(USER_ID), eq(KEY), anyString(), any(), any(), any())).thenReturn(0);
+        IdempotencyRecord stored = new IdempotencyRecord();
+        stored.setStatus(IdempotencyStatus.COMPLETED);
+        stored.setRequestHash(sha256Of(REQUEST));
+        stored.setResponseBody("{\"id\":\"pref-1\"}");
+        when(repository.findByUserIdAndIdempotencyKey(USER_ID, KEY)).thenReturn(Optional.of(stored));
+
+        IdempotentResponse response = idempotencyService.execute(USER_ID, KEY, REQUEST, () -> fail("should not run"));
+
+        assertTrue(response.replayed());
+        assertEquals("{\"id\":\"pref-1\"}", response.body());
+    }
+
+    @Test
+    void execute_shouldReturnConflict_whileTheKeyIsInProgressElsewhere() {
+        when(repository.claim(eq(USER_ID), eq(KEY), anyString(), any(), any(), any())).thenReturn(0);
+        IdempotencyRecord running = new IdempotencyRecord();
+        running.setStatus(IdempotencyStatus.IN_PROGRESS);
+        running.setRequestHash(sha256Of(REQUEST));
+        when(repository.findByUserIdAndIdempotencyKey(USER_ID, KEY)).thenReturn(Optional.of(running));
+
+        assertThrows(ConcurrentUpdateException.class,
+                () -> idempotencyService.execute(USER_ID, KEY, REQUEST, () -> fail("should not run")));
+    }
+
+    @Test
+    void execute_shouldRejectTheSameKeyForADifferentRequest() {
+        claimSucceeds();
+        idempotencyService.execute(USER_ID, KEY, REQUEST, () -> Map.of("id", "pref-1"));
+
+        assertThrows(IdempotencyKeyReuseException.class, () -> idempotencyService.execute(USER_ID, KEY,
+                "POST /api/orders/create-preference/2", () -> fail("should not run")));
+    }
+
+    @Test
+    void execute_shouldReleaseTheKey_whenTheOperationFails() {
+        claimSucceeds();
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(USER_ID, KEY, REQUEST, () -> {
+            throw new IllegalStateException("gateway down");
+        }));
+
+        verify(repository).release(USER_ID, KEY);
+        verify(repository, never()).complete(any(), any(), any());
+        // A chave liberada pode ser usada de novo.
+        IdempotentResponse retry = idempotencyService.execute(USER_ID, KEY, REQUEST, () -> Map.of("id", "pref-2"));
+        assertFalse(retry.replayed());
+    }
+
+    @Test
+    void execute_shouldCoalesceConcurrentDuplicates_intoASingleExecution() throws Exception {
+        claimSucceeds();
+        int duplicates = 16;
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<IdempotentResponse>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(duplicates)) {
+            for (int i = 0; i < duplicates; i++) {
+                futures.add(executor.submit(() -> idempotencyService.execute(USER_ID, KEY, REQUEST, () -> {
+                    calls.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return Map.of("id", "pref-1");
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            int replayed = 0;
+            for (Future<IdempotentResponse> future : futures) {
+                IdempotentResponse response = future.get(5, TimeUnit.SECONDS);
+                assertEquals("{\"id\":\"pref-1\"}", response.body());
+                replayed += response.replayed() ? 1 : 0;
+            }
+            assertEquals(duplicates - 1, replayed);
+        }
+
+        assertEquals(1, calls.get());
+        verify(repository, times(1)).claim(any(), any(), any(), any(), any(), any());
+    }
+
+    private static String sha256Of(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
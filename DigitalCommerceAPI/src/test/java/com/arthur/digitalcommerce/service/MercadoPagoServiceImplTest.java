@@ -0,0 +1,201 @@
+package com.arthur.digitalcommerce.service;
+
+import com.mercadopago.client.payment.PaymentClient;
+import com.mercadopago.client.preference.PreferenceClient;
+import com.mercadopago.client.preference.PreferenceRequest;
+import com.mercadopago.core.MPRequestOptions;
+import com.mercadopago.exceptions.MPException;
+import com.mercadopago.resources.payment.Payment;
+import com.mercadopago.resources.preference.Preference;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MercadoPagoServiceImplTest {
+
+    @Mock
+    private PreferenceClient preferenceClient;
+
+    @Mock
+    private PaymentClient paymentClient;
+
+    @Mock
+    private CloseableHttpClient httpClient;
+
+    private final MPRequestOptions requestOptions = MPRequestOptions.builder().accessToken("token").build();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MercadoPagoServiceImpl mercadoPagoService;
+
+    // "Gateway" local para o pool de verdade: segura cada resposta até o teste liberar.
+    private HttpServer gateway;
+    private CloseableHttpClient pooledHttpClient;
+    private final CountDownLatch gatewayEntered = new CountDownLatch(1);
+    private final CountDownLatch gatewayRelease = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+    @BeforeEach
+    void setUp() {
+        mercadoPagoService = new MercadoPagoServiceImpl(preferenceClient, paymentClient, requestOptions,
+                meterRegistry, httpClient, 20, 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        gatewayRelease.countDown();
+        callers.shutdownNow();
+        if (pooledHttpClient != null) {
+            pooledHttpClient.close();
+        }
+        if (gateway != null) {
+            gateway.stop(0);
+        }
+    }
+
+    private URI startSlowGateway() throws IOException {
+        gateway = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        gateway.setExecutor(Executors.newCachedThreadPool());
+        gateway.createContext("/", exchange -> {
+            gatewayEntered.countDown();
+            try {
+                gatewayRelease.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        gateway.start();
+        return URI.create("http://localhost:" + gateway.getAddress().getPort() + "/v1/payments/9001");
+    }
+
+    // Serviço sobre o pool de verdade (1 conexão); o "SDK" faz a chamada HTTP ao gateway local por esse pool.
+    private MercadoPagoServiceImpl serviceOverASingleConnection(int connectTimeoutMs, int poolTimeoutMs) throws Exception {
+        URI uri = startSlowGateway();
+        pooledHttpClient = MercadoPagoServiceImpl.pooledHttpClient(connectTimeoutMs, 5000, 1, poolTimeoutMs);
+        Payment payment = mock(Payment.class);
+        when(paymentClient.get(anyLong(), same(requestOptions))).thenAnswer(invocation -> {
+            try (CloseableHttpResponse response = pooledHttpClient.execute(new HttpGet(uri))) {
+                EntityUtils.consume(response.getEntity());
+            }
+            return payment;
+        });
+        return new MercadoPagoServiceImpl(preferenceClient, paymentClient, requestOptions, meterRegistry,
+                pooledHttpClient, 1, poolTimeoutMs);
+    }
+
+    @Test
+    void getPayment_shouldQueueABurstOfVirtualThreads_beyondTheConnectTimeout() throws Exception {
+        int connectTimeoutMs = 200;
+        MercadoPagoServiceImpl service = serviceOverASingleConnection(connectTimeoutMs, 5000);
+
+        Future<Payment> holder = callers.submit(() -> service.getPayment(1L));
+        assertTrue(gatewayEntered.await(5, TimeUnit.SECONDS));
+        // Mais chamadas esperando do que carriers das virtual threads.
+        int burstSize = Runtime.getRuntime().availableProcessors() + 1;
+        List<Future<Payment>> burst = new ArrayList<>();
+        for (int i = 0; i < burstSize; i++) {
+            long paymentId = i + 2;
+            burst.add(callers.submit(() -> service.getPayment(paymentId)));
+        }
+
+        // O pool está ocupado: o pico espera a vez além do connect timeout, sem falhar e sem travar as carriers
+        // (a chamada que tem a conexão consegue terminar).
+        Thread.sleep(3L * connectTimeoutMs);
+        assertTrue(burst.stream().noneMatch(Future::isDone));
+
+        gatewayRelease.countDown();
+        assertNotNull(holder.get(5, TimeUnit.SECONDS));
+        for (Future<Payment> call : burst) {
+            assertNotNull(call.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(burstSize + 1, meterRegistry.get(MercadoPagoServiceImpl.METRIC)
+                .tags("operation", "get_payment", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void getPayment_shouldGiveUp_afterThePoolTimeout() throws Exception {
+        MercadoPagoServiceImpl service = serviceOverASingleConnection(2000, 100);
+
+        Future<Payment> holder = callers.submit(() -> service.getPayment(1L));
+        assertTrue(gatewayEntered.await(5, TimeUnit.SECONDS));
+        Future<Payment> waiter = callers.submit(() -> service.getPayment(2L));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(MPException.class, failure.getCause());
+        assertEquals(1, meterRegistry.get(MercadoPagoServiceImpl.METRIC)
+                .tags("operation", "get_payment", "outcome", "pool_timeout").timer().count());
+
+        gatewayRelease.countDown();
+        assertNotNull(holder.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void createPaymentPreference_shouldReuseTheClientAndOptions_andRecordLatency() throws Exception {
+        Preference preference = mock(Preference.class);
+        PreferenceRequest request = mock(PreferenceRequest.class);
+        when(preferenceClient.create(request, requestOptions)).thenReturn(preference);
+
+        assertSame(preference, mercadoPagoService.createPaymentPreference(request));
+        assertSame(preference, mercadoPagoService.createPaymentPreference(request));
+
+        verify(preferenceClient, times(2)).create(request, requestOptions);
+        assertEquals(2, meterRegistry.get(MercadoPagoServiceImpl.METRIC)
+                .tags("operation", "create_preference", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void getPayment_shouldRecordTheFailure_andRethrow() throws Exception {
+        when(paymentClient.get(eq(9001L), same(requestOptions))).thenThrow(new MPException("timeout"));
+
+        assertThrows(MPException.class, () -> mercadoPagoService.getPayment(9001L));
+
+        assertEquals(1, meterRegistry.get(MercadoPagoServiceImpl.METRIC)
+                .tags("operation", "get_payment", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void getPayment_shouldPassTheRequestOptions() throws Exception {
+        Payment payment = mock(Payment.class);
+        when(paymentClient.get(9001L, requestOptions)).thenReturn(payment);
+
+        assertSame(payment, mercadoPagoService.getPayment(9001L));
+    }
+
+    @Test
+    void destroy_shouldCloseThePooledHttpClient() throws Exception {
+        mercadoPagoService.destroy();
+
+        verify(httpClient).close();
+    }
+}
@@ -1,32 +1,44 @@
 package com.arthur.digitalcommerce.service;
 
+import com.arthur.digitalcommerce.cache.ProductCatalogCache;
 import com.arthur.digitalcommerce.events.ProductDeletedEvent;
 import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
 import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.exceptions.ConcurrentUpdateException;
 import com.arthur.digitalcommerce.exceptions.ResourceNotFoundException;
+import com.arthur.digitalcommerce.mapper.ProductMapper;
 import com.arthur.digitalcommerce.model.Category;
 import com.arthur.digitalcommerce.model.Product;
 import com.arthur.digitalcommerce.payload.ProductDTO;
 import com.arthur.digitalcommerce.payload.ProductResponse;
 import com.arthur.digitalcommerce.repository.CategoryRepository;
 import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.projection.ProductCatalogView;
+import com.arthur.digitalcommerce.search.ProductSearchEngine;
+import com.arthur.digitalcommerce.util.KeysetCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.mock.web.MockMultipartFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -40,12 +52,16 @@ class ProductServiceImplTest {
     private CategoryRepository categoryRepository;
     @Mock
     private ProductRepository productRepository;
-    @Mock
-    private ModelMapper modelMapper;
+    @Spy
+    private ProductMapper productMapper = new ProductMapper();
     @Mock
     private FileService fileService;
     @Mock
     private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ProductSearchEngine productSearchEngine;
+    @Spy
+    private ProductCatalogCache catalogCache = new ProductCatalogCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
 
     @InjectMocks
     private ProductServiceImpl productService;
@@ -53,6 +69,7 @@ class ProductServiceImplTest {
     private Category category;
     private Product product;
     private ProductDTO productDTO;
+    private ProductCatalogView catalogView;
     private MockMultipartFile mockImage;
 
     @BeforeEach
@@ -73,6 +90,9 @@ class ProductServiceImplTest {
         productDTO.setCategoryId(1L);
         productDTO.setPrice(BigDecimal.valueOf(100));
 
+        catalogView = new ProductCatalogView(1L, "Test Product", "test.jpg", "Test description",
+                10, BigDecimal.valueOf(100), null, false, 1L);
+
         mockImage = new MockMultipartFile("image", "test.jpg", "image/jpeg", "test image content".getBytes());
     }
 
@@ -80,9 +100,7 @@ class ProductServiceImplTest {
     void addProduct_shouldSucceed() throws IOException {
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(category));
         when(fileService.uploadImage(any(), any())).thenReturn("test.jpg");
-        when(modelMapper.map(any(ProductDTO.class), eq(Product.class))).thenReturn(product);
         when(productRepository.save(any(Product.class))).thenReturn(product);
-        when(modelMapper.map(any(Product.class), eq(ProductDTO.class))).thenReturn(productDTO);
 
         ProductDTO result = productService.addProduct(productDTO, mockImage);
 
@@ -113,7 +131,6 @@ class ProductServiceImplTest {
 
     @Test
     void updateProduct_shouldSucceed() throws IOException {
-        lenient().when(modelMapper.map(any(Product.class), eq(ProductDTO.class))).thenReturn(productDTO);
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(category));
         when(productRepository.save(any(Product.class))).thenReturn(product);
@@ -126,6 +143,70 @@ class ProductServiceImplTest {
         verify(eventPublisher, times(1)).publishEvent(any(ProductUpdatedEvent.class));
     }
 
+    @Test
+    void updateProduct_shouldFlagPriceChange_onlyWhenEffectivePriceChanges() throws IOException {
+        product.setPrice(new BigDecimal("100.00"));
+        product.setSpecialPrice(null);
+        product.setSpecialPriceActive(false);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.save(any(Product.class))).thenReturn(product);
+        ArgumentCaptor<ProductUpdatedEvent> eventCaptor = ArgumentCaptor.forClass(ProductUpdatedEvent.class);
+
+        ProductDTO descriptionOnly = new ProductDTO();
+        descriptionOnly.setDescription("Nova descrição do produto");
+        productService.updateProduct(1L, descriptionOnly, null);
+
+        ProductDTO samePriceOtherScale = new ProductDTO();
+        samePriceOtherScale.setPrice(new BigDecimal("100"));
+        productService.updateProduct(1L, samePriceOtherScale, null);
+
+        ProductDTO newPrice = new ProductDTO();
+        newPrice.setPrice(new BigDecimal("89.90"));
+        productService.updateProduct(1L, newPrice, null);
+
+        verify(eventPublisher, times(3)).publishEvent(eventCaptor.capture());
+        List<ProductUpdatedEvent> events = eventCaptor.getAllValues();
+        assertTrue(events.stream().noneMatch(ProductUpdatedEvent::isStockChanged));
+        assertFalse(events.get(0).isPriceChanged());
+        assertFalse(events.get(1).isPriceChanged());
+        assertTrue(events.get(2).isPriceChanged());
+    }
+
+    @Test
+    void updateProduct_shouldWriteStockWithConditionalUpdate_insteadOfTheEntity() throws IOException {
+        product.setQuantityInStock(10);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> {
+            // A entidade é gravada com o estoque lido, não com o pedido.
+            assertEquals(10, invocation.<Product>getArgument(0).getQuantityInStock());
+            return invocation.getArgument(0);
+        });
+        when(productRepository.replaceStock(1L, 10, 25)).thenReturn(1);
+        ProductDTO stockUpdate = new ProductDTO();
+        stockUpdate.setQuantityInStock(25);
+
+        ProductDTO result = productService.updateProduct(1L, stockUpdate, null);
+
+        verify(productRepository).replaceStock(1L, 10, 25);
+        assertEquals(25, result.getQuantityInStock());
+        ArgumentCaptor<ProductUpdatedEvent> eventCaptor = ArgumentCaptor.forClass(ProductUpdatedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertTrue(eventCaptor.getValue().isStockChanged());
+    }
+
+    @Test
+    void updateProduct_shouldRejectStockChange_whenStockChangedSinceItWasRead() {
+        product.setQuantityInStock(10);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.save(any(Product.class))).thenReturn(product);
+        when(productRepository.replaceStock(1L, 10, 25)).thenReturn(0);
+        ProductDTO stockUpdate = new ProductDTO();
+        stockUpdate.setQuantityInStock(25);
+
+        assertThrows(ConcurrentUpdateException.class, () -> productService.updateProduct(1L, stockUpdate, null));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     void updateProduct_shouldThrowException_whenProductNotFound() {
         when(productRepository.findById(1L)).thenReturn(Optional.empty());
@@ -173,23 +254,132 @@ class ProductServiceImplTest {
 
     @Test
     void getAllProducts_shouldReturnProductResponse() {
-        Page<Product> productPage = new PageImpl<>(Collections.singletonList(product));
-        when(productRepository.findAll(any(Pageable.class))).thenReturn(productPage);
-        when(modelMapper.map(any(Product.class), eq(ProductDTO.class))).thenReturn(productDTO);
+        Page<ProductCatalogView> productPage = new PageImpl<>(Collections.singletonList(catalogView));
+        when(productRepository.findCatalogPage(any(Pageable.class))).thenReturn(productPage);
 
         ProductResponse result = productService.getAllProducts(0, 10, "productId", "asc");
 
         assertNotNull(result);
         assertEquals(1, result.getContent().size());
         assertEquals(1, result.getTotalElements());
+        assertEquals(1L, result.getContent().get(0).getCategoryId());
+        verify(productRepository, never()).findAll(any(Pageable.class));
+    }
+
+    @Test
+    void getAllProducts_shouldServeRepeatedPageFromCache() {
+        Page<ProductCatalogView> productPage = new PageImpl<>(Collections.singletonList(catalogView));
+        when(productRepository.findCatalogPage(any(Pageable.class))).thenReturn(productPage);
+
+        ProductResponse first = productService.getAllProducts(0, 10, "productId", "asc");
+        ProductResponse second = productService.getAllProducts(0, 10, "productId", "ASC");
+
+        assertSame(first, second);
+        verify(productRepository, times(1)).findCatalogPage(any(Pageable.class));
+    }
+
+    @Test
+    void getAllProductsWithoutTotal_shouldKeepThePageNumber_andSkipCount() {
+        when(productRepository.findCatalogSlice(any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(catalogView), PageRequest.of(3, 1), true));
+
+        ProductResponse result = productService.getAllProductsWithoutTotal(3, 1, "price", "asc");
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(productRepository).findCatalogSlice(pageable.capture());
+        assertEquals(3, pageable.getValue().getPageNumber());
+        assertEquals(3, result.getPageNumber());
+        assertNull(result.getTotalElements());
+        assertFalse(result.isLastPage());
+        assertEquals(new KeysetCursor("price", "asc", "100", 1L), KeysetCursor.decode(result.getNextCursor()));
+        verify(productRepository, never()).findCatalogPage(any(Pageable.class));
+        verify(productRepository, never()).findCatalogAfter(any(), anyBoolean(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getAllProductsByCursor_shouldFetchOneExtraRow_andSkipCount_whenTotalNotRequested() {
+        ProductCatalogView second = new ProductCatalogView(2L, "Second Product", "test.jpg", "Test description",
+                5, BigDecimal.valueOf(150), null, false, 1L);
+        when(productRepository.findCatalogAfter("price", true, null, null, 2))
+                .thenReturn(List.of(catalogView, second));
+
+        ProductResponse result = productService.getAllProductsByCursor(null, 1, "price", "asc", false);
+
+        assertEquals(1, result.getContent().size());
+        assertFalse(result.isLastPage());
+        assertNull(result.getTotalElements());
+        assertEquals(new KeysetCursor("price", "asc", "100", 1L), KeysetCursor.decode(result.getNextCursor()));
+        verify(productRepository, never()).count();
+    }
+
+    @Test
+    void getAllProductsByCursor_shouldSeekAfterCursor_andCountWhenRequested() {
+        String cursor = new KeysetCursor("price", "asc", "100", 1L).encode();
+        when(productRepository.findCatalogAfter("price", true, "100", 1L, 11)).thenReturn(List.of(catalogView));
+        when(productRepository.count()).thenReturn(11L);
+
+        ProductResponse result = productService.getAllProductsByCursor(cursor, 10, "price", "asc", true);
+
+        assertTrue(result.isLastPage());
+        assertNull(result.getNextCursor());
+        assertEquals(11L, result.getTotalElements());
+        assertEquals(2, result.getTotalPages());
+    }
+
+    @Test
+    void getAllProductsByCursor_shouldRejectCursorFromAnotherSort() {
+        String cursor = new KeysetCursor("price", "asc", "100", 1L).encode();
+
+        assertThrows(APIException.class, () -> productService.getAllProductsByCursor(cursor, 10, "productName", "asc", true));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void getAllProducts_shouldReturnNextCursor_whenMorePagesExist() {
+        Page<ProductCatalogView> productPage = new PageImpl<>(List.of(catalogView), PageRequest.of(0, 1), 3);
+        when(productRepository.findCatalogPage(any(Pageable.class))).thenReturn(productPage);
+
+        ProductResponse result = productService.getAllProducts(0, 1, "productId", "asc");
+
+        assertEquals(new KeysetCursor("productId", "asc", "1", 1L), KeysetCursor.decode(result.getNextCursor()));
+    }
+
+    @Test
+    void getAllProductsByCursor_shouldEncodeNullSortValue_andContinueFromIt() {
+        ProductCatalogView noPrice = new ProductCatalogView(7L, "No Price", null, "Test description",
+                5, null, null, false, 1L);
+        ProductCatalogView nextNoPrice = new ProductCatalogView(9L, "Next No Price", null, "Test description",
+                5, null, null, false, 1L);
+        when(productRepository.findCatalogAfter("price", true, null, null, 2)).thenReturn(List.of(noPrice, nextNoPrice));
+
+        ProductResponse first = productService.getAllProductsByCursor(null, 1, "price", "asc", false);
+
+        assertEquals(new KeysetCursor("price", "asc", null, 7L), KeysetCursor.decode(first.getNextCursor()));
+        when(productRepository.findCatalogAfter("price", true, null, 7L, 2)).thenReturn(List.of(nextNoPrice));
+
+        ProductResponse second = productService.getAllProductsByCursor(first.getNextCursor(), 1, "price", "asc", false);
+
+        assertEquals(9L, second.getContent().get(0).getProductId());
+        assertTrue(second.isLastPage());
+    }
+
+    @Test
+    void getAllProducts_shouldSortNullsLastWithProductIdTieBreak_forKeysetFields() {
+        Page<ProductCatalogView> productPage = new PageImpl<>(List.of(catalogView), PageRequest.of(0, 1), 3);
+        when(productRepository.findCatalogPage(any(Pageable.class))).thenReturn(productPage);
+
+        productService.getAllProducts(0, 1, "price", "desc");
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(productRepository).findCatalogPage(pageable.capture());
+        assertEquals(Sort.by(Sort.Order.desc("price").nullsLast(), Sort.Order.desc("productId")), pageable.getValue().getSort());
     }
 
     @Test
     void getProductByCategoryId_shouldReturnProductResponse() {
-        Page<Product> productPage = new PageImpl<>(Collections.singletonList(product));
+        Page<ProductCatalogView> productPage = new PageImpl<>(Collections.singletonList(catalogView));
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(category));
-        when(productRepository.findByCategoryOrderByPriceAsc(any(Category.class), any(Pageable.class))).thenReturn(productPage);
-        when(modelMapper.map(any(Product.class), eq(ProductDTO.class))).thenReturn(productDTO);
+        when(productRepository.findCatalogPageByCategoryId(eq(1L), any(Pageable.class))).thenReturn(productPage);
 
         ProductResponse result = productService.getProductByCategoryId(1L, 0, 10, "price", "asc");
 
@@ -205,19 +395,18 @@ class ProductServiceImplTest {
 
     @Test
     void getProductByCategoryId_shouldThrowException_whenNoProductsFound() {
-        Page<Product> emptyPage = new PageImpl<>(Collections.emptyList());
+        Page<ProductCatalogView> emptyPage = new PageImpl<>(Collections.emptyList());
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(category));
-        when(productRepository.findByCategoryOrderByPriceAsc(any(Category.class), any(Pageable.class))).thenReturn(emptyPage);
+        when(productRepository.findCatalogPageByCategoryId(eq(1L), any(Pageable.class))).thenReturn(emptyPage);
         assertThrows(APIException.class, () -> productService.getProductByCategoryId(1L, 0, 10, "price", "asc"));
     }
 
     @Test
     void searchProductByKeyword_shouldReturnProductResponse() {
-        Page<Product> productPage = new PageImpl<>(Collections.singletonList(product));
-        when(productRepository.findByProductNameLikeIgnoreCase(anyString(), any(Pageable.class))).thenReturn(productPage);
-        when(modelMapper.map(any(Product.class), eq(ProductDTO.class))).thenReturn(productDTO);
+        Page<ProductCatalogView> productPage = new PageImpl<>(Collections.singletonList(catalogView));
+        when(productSearchEngine.search("Test", 0, 10, "relevance", "asc")).thenReturn(productPage);
 
-        ProductResponse result = productService.searchProductByKeyword("Test", 0, 10, "productName", "asc");
+        ProductResponse result = productService.searchProductByKeyword("Test", 0, 10, "relevance", "asc");
 
         assertNotNull(result);
         assertFalse(result.getContent().isEmpty());
@@ -225,8 +414,8 @@ class ProductServiceImplTest {
 
     @Test
     void searchProductByKeyword_shouldThrowException_whenNoProductsFound() {
-        Page<Product> emptyPage = new PageImpl<>(Collections.emptyList());
-        when(productRepository.findByProductNameLikeIgnoreCase(anyString(), any(Pageable.class))).thenReturn(emptyPage);
+        Page<ProductCatalogView> emptyPage = new PageImpl<>(Collections.emptyList());
+        when(productSearchEngine.search(anyString(), anyInt(), anyInt(), anyString(), anyString())).thenReturn(emptyPage);
         assertThrows(APIException.class, () -> productService.searchProductByKeyword("Unknown", 0, 10, "productName", "asc"));
     }
 
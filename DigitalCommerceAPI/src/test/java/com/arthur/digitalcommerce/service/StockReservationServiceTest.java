@@ -0,0 +1,212 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.exceptions.APIException;
+import com.arthur.digitalcommerce.model.Cart;
+import com.arthur.digitalcommerce.model.CartItem;
+import com.arthur.digitalcommerce.model.Order;
+import com.arthur.digitalcommerce.model.OrderItem;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.model.ReservationStatus;
+import com.arthur.digitalcommerce.model.StockReservation;
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import com.arthur.digitalcommerce.repository.StockReservationRepository;
+import com.arthur.digitalcommerce.stock.HotStockCounters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    @Mock
+    private StockReservationRepository reservationRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private HotStockCounters hotStockCounters;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StockReservationService reservationService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        reservationService = new StockReservationService(reservationRepository, productRepository, hotStockCounters,
+                meterRegistry, Duration.ofMinutes(15));
+        lenient().when(hotStockCounters.admit(anyLong())).thenReturn(true);
+        order = new Order();
+        order.setOrderId(100L);
+        addItem(2L, "Keyboard", 1);
+        addItem(1L, "Mouse", 2);
+        addItem(2L, "Keyboard", 2);
+    }
+
+    private void addItem(Long productId, String name, int quantity) {
+        Product product = new Product();
+        product.setProductId(productId);
+        product.setProductName(name);
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        item.setOrder(order);
+        order.getOrderItems().add(item);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reserve_shouldDecrementInProductIdOrderAndHoldEachProductOnce() {
+        when(productRepository.decrementStock(anyLong(), anyInt())).thenReturn(1);
+
+        reservationService.reserve(order);
+
+        InOrder inOrder = inOrder(productRepository);
+        inOrder.verify(productRepository).decrementStock(1L, 2);
+        inOrder.verify(productRepository).decrementStock(2L, 3);
+        ArgumentCaptor<List<StockReservation>> saved = ArgumentCaptor.forClass(List.class);
+        verify(reservationRepository).saveAll(saved.capture());
+        assertEquals(2, saved.getValue().size());
+        assertTrue(saved.getValue().stream().allMatch(r -> r.getStatus() == ReservationStatus.HELD && r.getExpiresAt() != null));
+        assertEquals(2, meterRegistry.counter("stock.reservations", "outcome", "held").count());
+    }
+
+    @Test
+    void reserve_shouldListEveryProductWithoutStock() {
+        when(productRepository.decrementStock(anyLong(), anyInt())).thenReturn(0);
+
+        APIException exception = assertThrows(APIException.class, () -> reservationService.reserve(order));
+
+        assertTrue(exception.getMessage().contains("'Mouse'"));
+        assertTrue(exception.getMessage().contains("'Keyboard'"));
+        verify(reservationRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void reserve_shouldServeHotProductsFromMemory() {
+        when(hotStockCounters.tryTake(anyLong(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0).equals(2L));
+        when(productRepository.decrementStock(1L, 2)).thenReturn(1);
+
+        reservationService.reserve(order);
+
+        verify(productRepository, never()).decrementStock(eq(2L), anyInt());
+    }
+
+    @Test
+    void admit_shouldRejectKnownSoldOutProductsWithoutTouchingStock() {
+        when(hotStockCounters.admit(2L)).thenReturn(false);
+
+        APIException exception = assertThrows(APIException.class, () -> reservationService.admit(cart()));
+
+        assertTrue(exception.getMessage().contains("'Keyboard'"));
+        assertFalse(exception.getMessage().contains("'Mouse'"));
+        assertEquals(1, meterRegistry.counter("stock.reservations", "outcome", "rejected").count());
+        verifyNoInteractions(productRepository, reservationRepository);
+    }
+
+    @Test
+    void admit_shouldCountOneAttemptPerProduct() {
+        reservationService.admit(cart());
+
+        verify(hotStockCounters).admit(1L);
+        verify(hotStockCounters).admit(2L);
+        verifyNoMoreInteractions(hotStockCounters);
+    }
+
+    @Test
+    void reserve_shouldNotCountTheAttemptAgain() {
+        when(productRepository.decrementStock(anyLong(), anyInt())).thenReturn(1);
+
+        reservationService.reserve(order);
+
+        verify(hotStockCounters, never()).admit(anyLong());
+    }
+
+    // Carrinho com os mesmos itens do pedido.
+    private Cart cart() {
+        Cart cart = new Cart();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(orderItem.getProduct());
+            item.setQuantity(orderItem.getQuantity());
+            cart.getCartItems().add(item);
+        }
+        return cart;
+    }
+
+    @Test
+    void confirm_shouldConfirmHeldReservations() {
+        when(reservationRepository.updateStatus(100L, ReservationStatus.HELD, ReservationStatus.CONFIRMED)).thenReturn(2);
+
+        assertTrue(reservationService.confirm(order));
+
+        verify(productRepository, never()).decrementStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void confirm_shouldReserveAgain_whenHoldsHadExpired() {
+        when(reservationRepository.updateStatus(100L, ReservationStatus.HELD, ReservationStatus.CONFIRMED)).thenReturn(0);
+        when(reservationRepository.existsByOrderOrderIdAndStatus(100L, ReservationStatus.CONFIRMED)).thenReturn(false);
+        when(productRepository.decrementStock(anyLong(), anyInt())).thenReturn(1);
+
+        assertTrue(reservationService.confirm(order));
+
+        verify(reservationRepository).updateStatus(100L, ReservationStatus.RELEASED, ReservationStatus.CONFIRMED);
+    }
+
+    @Test
+    void confirm_shouldGiveBackPartialStock_whenExpiredHoldsCannotBeRetaken() {
+        when(reservationRepository.updateStatus(100L, ReservationStatus.HELD, ReservationStatus.CONFIRMED)).thenReturn(0);
+        when(reservationRepository.existsByOrderOrderIdAndStatus(100L, ReservationStatus.CONFIRMED)).thenReturn(false);
+        when(productRepository.decrementStock(1L, 2)).thenReturn(1);
+        when(productRepository.decrementStock(2L, 3)).thenReturn(0);
+
+        assertFalse(reservationService.confirm(order));
+
+        verify(productRepository).incrementStock(1L, 2);
+        verify(reservationRepository, never()).updateStatus(eq(100L), eq(ReservationStatus.RELEASED), any());
+    }
+
+    @Test
+    void confirm_shouldReserveAgainFromTheHotCounter_whenHoldsHadExpired() {
+        when(reservationRepository.updateStatus(100L, ReservationStatus.HELD, ReservationStatus.CONFIRMED)).thenReturn(0);
+        when(reservationRepository.existsByOrderOrderIdAndStatus(100L, ReservationStatus.CONFIRMED)).thenReturn(false);
+        // O banco não tem mais o Keyboard: as unidades estão no contador em memória.
+        when(hotStockCounters.tryTake(anyLong(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0).equals(2L));
+        when(productRepository.decrementStock(1L, 2)).thenReturn(1);
+
+        assertTrue(reservationService.confirm(order));
+
+        verify(productRepository, never()).decrementStock(eq(2L), anyInt());
+        verify(reservationRepository).updateStatus(100L, ReservationStatus.RELEASED, ReservationStatus.CONFIRMED);
+    }
+
+    @Test
+    void confirm_shouldGiveHotCounterUnitsBackToTheDatabase_whenExpiredHoldsCannotBeRetaken() {
+        when(reservationRepository.updateStatus(100L, ReservationStatus.HELD, ReservationStatus.CONFIRMED)).thenReturn(0);
+        when(reservationRepository.existsByOrderOrderIdAndStatus(100L, ReservationStatus.CONFIRMED)).thenReturn(false);
+        when(hotStockCounters.tryTake(anyLong(), anyInt())).thenAnswer(invocation -> invocation.getArgument(0).equals(1L));
+        when(productRepository.decrementStock(2L, 3)).thenReturn(0);
+
+        assertFalse(reservationService.confirm(order));
+
+        verify(productRepository).incrementStock(1L, 2);
+    }
+}
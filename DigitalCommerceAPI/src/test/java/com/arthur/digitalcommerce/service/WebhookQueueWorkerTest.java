@@ -0,0 +1,133 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.model.WebhookEvent;
+import com.arthur.digitalcommerce.repository.WebhookEventRepository;
+import com.arthur.digitalcommerce.repository.projection.WebhookQueueStats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookQueueWorkerTest {
+
+    private static final int WORKERS = 2;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private WebhookEventRepository repository;
+
+    @Mock
+    private WebhookService webhookService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+
+    private WebhookQueueWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        worker = new WebhookQueueWorker(repository, webhookService, executor, transactionManager, meterRegistry,
+                WORKERS, MAX_ATTEMPTS, Duration.ofMinutes(2), Duration.ofSeconds(5), Duration.ofMinutes(1), Duration.ofDays(7));
+    }
+
+    private static WebhookEvent event(long id, int attempts) {
+        WebhookEvent event = new WebhookEvent("9001" + id, "payment.updated");
+        event.setId(id);
+        event.setAttempts(attempts);
+        return event;
+    }
+
+    @Test
+    void process_shouldMarkTheEventDone_whenTheNotificationIsProcessed() {
+        worker.process(event(1L, 1));
+
+        verify(webhookService).processPaymentNotification("90011");
+        verify(repository).markDone(eq(1L), any());
+        assertEquals(1, meterRegistry.counter("webhook.queue.events", "outcome", "done").count());
+    }
+
+    @Test
+    void process_shouldRescheduleWithBackoff_whileAttemptsRemain() {
+        doThrow(new IllegalStateException("gateway down")).when(webhookService).processPaymentNotification("90012");
+        LocalDateTime before = LocalDateTime.now();
+
+        worker.process(event(2L, 2));
+
+        verify(repository).reschedule(eq(2L),
+                argThat(next -> !next.isBefore(before.plusSeconds(10)) && next.isBefore(before.plusSeconds(13))),
+                contains("gateway down"));
+        verify(repository, never()).markDone(any(), any());
+    }
+
+    @Test
+    void process_shouldGiveUp_afterTheLastAttempt() {
+        doThrow(new IllegalStateException("order not found")).when(webhookService).processPaymentNotification("90013");
+
+        worker.process(event(3L, MAX_ATTEMPTS));
+
+        verify(repository).markFailed(eq(3L), any(), contains("order not found"));
+        verify(repository, never()).reschedule(any(), any(), any());
+        assertEquals(1, meterRegistry.counter("webhook.queue.events", "outcome", "failed").count());
+    }
+
+    @Test
+    void backoff_shouldGrowExponentially_upToTheLimit() {
+        assertTrue(worker.backoff(1).toMillis() >= 5_000 && worker.backoff(1).toMillis() <= 6_000);
+        assertTrue(worker.backoff(3).toMillis() >= 20_000 && worker.backoff(3).toMillis() <= 24_000);
+        assertTrue(worker.backoff(30).toMillis() >= 60_000 && worker.backoff(30).toMillis() <= 72_000);
+    }
+
+    @Test
+    void poll_shouldNeverClaimMoreEventsThanFreeWorkers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        doAnswer(invocation -> {
+            running.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(webhookService).processPaymentNotification(anyString());
+        when(repository.claimDue(any(), any(), eq(WORKERS))).thenReturn(List.of(event(4L, 1), event(5L, 1)));
+
+        worker.poll();
+        worker.poll(); // os dois workers estão ocupados: nem consulta o banco
+
+        verify(repository, times(1)).claimDue(any(), any(), anyInt());
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, running.get());
+        verify(repository, times(2)).markDone(anyLong(), any());
+    }
+
+    @Test
+    void refreshStats_shouldPublishDepthAndLag() {
+        when(repository.queueStats()).thenReturn(new WebhookQueueStats(42, LocalDateTime.now().minusSeconds(30)));
+
+        worker.refreshStats();
+
+        assertEquals(42, meterRegistry.get("webhook.queue.depth").gauge().value());
+        assertTrue(meterRegistry.get("webhook.queue.lag.seconds").gauge().value() >= 30);
+    }
+}
@@ -0,0 +1,198 @@
+package com.arthur.digitalcommerce.service;
+
+import com.arthur.digitalcommerce.model.Order;
+import com.arthur.digitalcommerce.repository.OrderRepository;
+import com.arthur.digitalcommerce.repository.PaymentRepository;
+import com.mercadopago.resources.payment.Payment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookServiceImplTest {
+
+    private static final long PAYMENT_ID = 9001L;
+    private static final long ORDER_ID = 42L;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private MercadoPagoService mercadoPagoService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Status devolvido pelo "gateway" e quantas vezes ele foi consultado.
+    private final AtomicReference<String> gatewayStatus = new AtomicReference<>("approved");
+    private final AtomicInteger gatewayCalls = new AtomicInteger();
+    private CountDownLatch gatewayEntered = new CountDownLatch(0);
+    private CountDownLatch gatewayRelease = new CountDownLatch(0);
+
+    private WebhookServiceImpl webhookService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(orderRepository.findByIdForUpdate(ORDER_ID)).thenAnswer(invocation -> {
+            Order order = new Order();
+            order.setOrderId(ORDER_ID);
+            order.setEmail("user@test.com");
+            order.setOrderStatus("PENDING");
+            return Optional.of(order);
+        });
+        lenient().when(paymentRepository.findByPgPaymentId(anyString())).thenReturn(Optional.empty());
+        lenient().when(stockReservationService.confirm(any())).thenReturn(true);
+
+        lenient().when(mercadoPagoService.getPayment(anyLong())).thenAnswer(invocation -> {
+            gatewayCalls.incrementAndGet();
+            gatewayEntered.countDown();
+            gatewayRelease.await(5, TimeUnit.SECONDS);
+            return payment(invocation.getArgument(0), gatewayStatus.get());
+        });
+
+        webhookService = new WebhookServiceImpl(mercadoPagoService, orderRepository, paymentRepository, cartService,
+                stockReservationService, transactionManager, meterRegistry, 100, Duration.ofMinutes(10));
+    }
+
+    private static Payment payment(Long paymentId, String status) {
+        Payment payment = mock(Payment.class);
+        lenient().when(payment.getId()).thenReturn(paymentId);
+        lenient().when(payment.getExternalReference()).thenReturn(String.valueOf(ORDER_ID));
+        lenient().when(payment.getStatus()).thenReturn(status);
+        lenient().when(payment.getTransactionAmount()).thenReturn(BigDecimal.TEN);
+        lenient().when(payment.getPaymentTypeId()).thenReturn("credit_card");
+        return payment;
+    }
+
+    @Test
+    void processPaymentNotification_shouldSkipTheGateway_whenAFinalStatusWasAlreadyApplied() {
+        webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID));
+        webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID));
+
+        assertEquals(1, gatewayCalls.get());
+        verify(orderRepository, times(1)).findByIdForUpdate(ORDER_ID);
+        verify(paymentRepository, times(1)).save(any());
+        assertEquals(1, meterRegistry.counter("webhook.payment.deduplicated").count());
+    }
+
+    @Test
+    void processPaymentNotification_shouldFetchButNotReapply_whenTheStatusIsUnchanged() {
+        gatewayStatus.set("pending");
+
+        webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID));
+        webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID));
+
+        // 'pending' ainda pode mudar, então consulta de novo; mas o mesmo status não abre outra transação.
+        assertEquals(2, gatewayCalls.get());
+        verify(orderRepository, times(1)).findByIdForUpdate(ORDER_ID);
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void processPaymentNotification_shouldApplyAgain_whenTheStatusChanges() {
+        gatewayStatus.set("pending");
+        webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID));
+
+        gatewayStatus.set("approved");
+        webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID));
+
+        verify(orderRepository, times(2)).findByIdForUpdate(ORDER_ID);
+        verify(stockReservationService).confirm(any());
+        verify(cartService).clearCartByUserEmail("user@test.com");
+    }
+
+    @Test
+    void processPaymentNotification_shouldKeepTheHold_whilePaymentIsPending() {
+        for (String status : List.of("pending", "in_process", "authorized")) {
+            gatewayStatus.set(status);
+            webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID));
+        }
+
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository, times(3)).save(saved.capture());
+        assertTrue(saved.getAllValues().stream().allMatch(order -> "PENDING".equals(order.getOrderStatus())));
+        verify(stockReservationService, never()).release(any());
+        verify(paymentRepository, times(3)).save(any());
+    }
+
+    @Test
+    void processPaymentNotification_shouldReleaseTheHold_whenPaymentIsRejected() {
+        gatewayStatus.set("rejected");
+
+        webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID));
+
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepository).save(saved.capture());
+        assertEquals("PAYMENT_FAILED", saved.getValue().getOrderStatus());
+        verify(stockReservationService).release(List.of(ORDER_ID));
+    }
+
+    @Test
+    void processPaymentNotification_shouldShareOneFetch_betweenConcurrentNotifications() throws Exception {
+        gatewayEntered = new CountDownLatch(1);
+        gatewayRelease = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID)));
+            assertTrue(gatewayEntered.await(5, TimeUnit.SECONDS));
+            Future<?> second = executor.submit(() -> webhookService.processPaymentNotification(String.valueOf(PAYMENT_ID)));
+
+            // Espera a segunda notificação entrar na consulta em andamento antes de liberar o gateway.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (meterRegistry.counter("webhook.payment.coalesced").count() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            gatewayRelease.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, gatewayCalls.get());
+        assertEquals(1, meterRegistry.counter("webhook.payment.coalesced").count());
+        assertEquals(1, meterRegistry.counter("webhook.payment.fetches").count());
+    }
+
+    @Test
+    void processPaymentNotification_shouldIgnoreInvalidIds() {
+        webhookService.processPaymentNotification("not-a-number");
+
+        assertEquals(0, gatewayCalls.get());
+        verifyNoInteractions(orderRepository);
+    }
+}
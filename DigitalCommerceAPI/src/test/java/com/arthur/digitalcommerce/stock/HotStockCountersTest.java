@@ -0,0 +1,200 @@
+package com.arthur.digitalcommerce.stock;
+
+import com.arthur.digitalcommerce.events.ProductUpdatedEvent;
+import com.arthur.digitalcommerce.model.Product;
+import com.arthur.digitalcommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotStockCountersTest {
+
+    private static final Long PRODUCT_ID = 1L;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // A linha de 'products' simulada: lease e restock mexem nela como o SQL faria.
+    private final AtomicInteger databaseStock = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(productRepository.leaseStock(eq(PRODUCT_ID), anyInt())).thenAnswer(invocation -> {
+            int max = invocation.getArgument(1);
+            int before = databaseStock.getAndUpdate(stock -> stock - Math.min(stock, max));
+            return Math.min(before, max);
+        });
+        lenient().when(productRepository.restock(any(), any())).thenAnswer(invocation -> {
+            Long[] ids = invocation.getArgument(0);
+            Integer[] quantities = invocation.getArgument(1);
+            for (int i = 0; i < ids.length; i++) {
+                if (PRODUCT_ID.equals(ids[i])) {
+                    databaseStock.addAndGet(quantities[i]);
+                }
+            }
+            return ids.length;
+        });
+    }
+
+    private HotStockCounters counters(double thresholdPerSecond) {
+        return new HotStockCounters(productRepository, transactionManager, meterRegistry,
+                true, thresholdPerSecond, 100, 8, 200, 60_000);
+    }
+
+    private static void heatUp(HotStockCounters counters, int attempts) {
+        for (int i = 0; i < attempts; i++) {
+            counters.admit(PRODUCT_ID);
+        }
+        counters.tick();
+    }
+
+    @Test
+    void tick_shouldLeaseStockForHotProducts_andGiveItBackWhenTheyCoolDown() {
+        databaseStock.set(1_000);
+        HotStockCounters counters = counters(10);
+
+        heatUp(counters, 5); // 50/s com tick de 100 ms
+        assertTrue(counters.isHot(PRODUCT_ID));
+        assertEquals(950, databaseStock.get());
+        assertTrue(counters.tryTake(PRODUCT_ID, 2));
+
+        counters.tick(); // nenhuma tentativa: esfria
+        assertFalse(counters.isHot(PRODUCT_ID));
+        assertEquals(998, databaseStock.get());
+    }
+
+    private static ProductUpdatedEvent productUpdated(boolean stockChanged) {
+        Product product = new Product();
+        product.setProductId(PRODUCT_ID);
+        return new ProductUpdatedEvent(product, null, !stockChanged, stockChanged);
+    }
+
+    @Test
+    void onProductUpdated_shouldKeepTheLeasedUnits_whenTheEditDidNotTouchTheStock() {
+        databaseStock.set(1_000);
+        HotStockCounters counters = counters(10);
+        heatUp(counters, 5);
+
+        counters.onProductUpdated(productUpdated(false));
+
+        assertTrue(counters.tryTake(PRODUCT_ID, 1));
+        counters.tick(); // esfria: a sobra volta ao banco
+        assertEquals(999, databaseStock.get());
+    }
+
+    @Test
+    void onProductUpdated_shouldDiscardTheLeasedUnits_whenTheEditSetTheStock() {
+        databaseStock.set(1_000);
+        HotStockCounters counters = counters(10);
+        heatUp(counters, 5);
+
+        counters.onProductUpdated(productUpdated(true));
+
+        assertFalse(counters.tryTake(PRODUCT_ID, 1));
+        counters.tick();
+        assertEquals(950, databaseStock.get());
+    }
+
+    @Test
+    void tryTake_shouldServeAMultiUnitOrder_spreadAcrossStripes() {
+        databaseStock.set(1_000);
+        HotStockCounters counters = counters(10);
+        heatUp(counters, 5); // 50 unidades em 8 faixas: nenhuma tem 20 sozinha
+
+        assertTrue(counters.tryTake(PRODUCT_ID, 20));
+        assertFalse(counters.tryTake(PRODUCT_ID, 31));
+        assertTrue(counters.tryTake(PRODUCT_ID, 30));
+    }
+
+    @Test
+    void admit_shouldRejectWithoutTheDatabase_onceAHotProductIsSoldOut() {
+        databaseStock.set(0);
+        HotStockCounters counters = counters(10);
+
+        heatUp(counters, 5);
+
+        assertFalse(counters.admit(PRODUCT_ID));
+        assertFalse(counters.tryTake(PRODUCT_ID, 1));
+        assertEquals(1, meterRegistry.counter("stock.hot.rejected").count());
+    }
+
+    @Test
+    void stress_shouldNeverSellMoreThanTheStock_withThousandsOfVirtualThreads() throws Exception {
+        int stock = 2_000;
+        int buyers = 20_000;
+        databaseStock.set(stock);
+        // Limiar zero: o produto nunca esfria, e os ticks ficam pedindo e devolvendo lotes durante o teste.
+        HotStockCounters counters = counters(0);
+        heatUp(counters, 10);
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger fromDatabase = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread ticker = Thread.ofPlatform().start(() -> {
+            while (running.get()) {
+                counters.tick();
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < buyers; i++) {
+                futures.add(executor.submit(() -> {
+                    if (!counters.admit(PRODUCT_ID)) {
+                        return;
+                    }
+                    if (counters.tryTake(PRODUCT_ID, 1)) {
+                        sold.incrementAndGet();
+                    } else if (databaseStock.getAndUpdate(s -> s > 0 ? s - 1 : s) > 0) {
+                        // O mesmo UPDATE condicional que o checkout usa quando o contador está vazio.
+                        fromDatabase.incrementAndGet();
+                        sold.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+            ticker.join();
+        }
+        counters.flushAll();
+
+        assertTrue(sold.get() <= stock);
+        assertEquals(stock, sold.get() + databaseStock.get());
+        assertTrue(sold.get() - fromDatabase.get() > 0, "some buyers should have been served from memory");
+    }
+}
@@ -0,0 +1,61 @@
+package com.arthur.digitalcommerce.stock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockCounterTest {
+
+    @Test
+    void tryTake_shouldGatherFromSeveralStripes_whenNoSingleStripeHasEnough() {
+        StripedStockCounter counter = new StripedStockCounter(8);
+        counter.add(16); // 2 por faixa
+
+        assertTrue(counter.tryTake(11));
+        assertEquals(5, counter.available());
+    }
+
+    @Test
+    void tryTake_shouldGiveBackPartialTakes_onAShortfall() {
+        StripedStockCounter counter = new StripedStockCounter(8);
+        counter.add(6);
+
+        assertFalse(counter.tryTake(7));
+        assertEquals(6, counter.available());
+        assertTrue(counter.tryTake(6));
+        assertEquals(0, counter.available());
+    }
+
+    @Test
+    void tryTake_shouldNeverOversell_withConcurrentMultiUnitTakes() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(8);
+        counter.add(1_000);
+        AtomicInteger sold = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                int quantity = 1 + i % 7;
+                futures.add(executor.submit(() -> {
+                    if (counter.tryTake(quantity)) {
+                        sold.addAndGet(quantity);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        assertEquals(1_000, sold.get() + counter.available());
+        assertTrue(counter.available() < 7, "leftover " + counter.available() + " should not fit the largest order");
+    }
+}
@@ -0,0 +1,114 @@
+package com.arthur.digitalcommerce.util;
+
+import com.arthur.digitalcommerce.model.User;
+import com.arthur.digitalcommerce.repository.UserRepository;
+import com.arthur.digitalcommerce.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthUtilTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AuthUtil authUtil;
+
+    @BeforeEach
+    void setUp() {
+        authUtil = new AuthUtil(userRepository, new CurrentUserContext(), meterRegistry);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private double lookups(String source) {
+        return meterRegistry.counter(AuthUtil.LOOKUP_METRIC, "source", source).count();
+    }
+
+    private void authenticate(Object principal) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @Test
+    void loggedInEmailAndId_shouldComeFromPrincipal_withoutQueryingDatabase() {
+        authenticate(new UserDetailsImpl(7L, "user1", "user1@example.com", null, List.of()));
+
+        assertEquals("user1@example.com", authUtil.loggedInEmail());
+        assertEquals(7L, authUtil.loggedInUserId());
+
+        verifyNoInteractions(userRepository);
+        assertEquals(2, lookups("principal"));
+    }
+
+    @Test
+    void loggedInUser_shouldLoadByPrimaryKey_whenPrincipalHasId() {
+        authenticate(new UserDetailsImpl(7L, "user1", "user1@example.com", null, List.of()));
+        User user = new User();
+        user.setUserId(7L);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+        assertSame(user, authUtil.loggedInUser());
+        verify(userRepository, never()).findByUserName(any());
+    }
+
+    @Test
+    void loggedInEmail_shouldFallBackToDatabase_forOtherPrincipals() {
+        authenticate("user1");
+        User user = new User();
+        user.setEmail("user1@example.com");
+        when(userRepository.findByUserName("user1")).thenReturn(Optional.of(user));
+
+        assertEquals("user1@example.com", authUtil.loggedInEmail());
+    }
+
+    @Test
+    void loggedInUser_shouldQueryDatabaseOncePerRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        authenticate(new UserDetailsImpl(7L, "user1", "user1@example.com", null, List.of()));
+        User user = new User();
+        user.setUserId(7L);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+        assertSame(user, authUtil.loggedInUser());
+        assertSame(user, authUtil.loggedInUser());
+        assertSame(user, authUtil.loggedInUser());
+
+        verify(userRepository, times(1)).findById(7L);
+        assertEquals(1, lookups("database"));
+        assertEquals(2, lookups("memoized"));
+    }
+
+    @Test
+    void loggedInUser_shouldNotMemoize_outsideHttpRequest() {
+        authenticate(new UserDetailsImpl(7L, "user1", "user1@example.com", null, List.of()));
+        when(userRepository.findById(7L)).thenReturn(Optional.of(new User()));
+
+        authUtil.loggedInUser();
+        authUtil.loggedInUser();
+
+        verify(userRepository, times(2)).findById(7L);
+    }
+}
@@ -0,0 +1,4 @@
+-- Os itens de carrinho passam a usar a sequence com alocação em blocos de 50 (pooled) no Hibernate,
+-- o que permite agrupar os INSERTs em lotes JDBC (com IDENTITY o Hibernate insere um a um).
+-- O DEFAULT nextval da coluna continua válido para inserts feitos direto no banco.
+ALTER SEQUENCE cart_items_cart_item_id_seq INCREMENT BY 50;
@@ -0,0 +1,2 @@
+-- Busca dos carrinhos que contêm um produto (reprecificação em lote), já ordenada por carrinho.
+CREATE INDEX idx_cart_items_product_id_cart_id ON cart_items (product_id, cart_id);
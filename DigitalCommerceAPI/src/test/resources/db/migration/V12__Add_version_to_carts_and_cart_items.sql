@@ -0,0 +1,3 @@
+-- Controle de concorrência otimista (@Version) para carrinhos e itens
+ALTER TABLE carts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE cart_items ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
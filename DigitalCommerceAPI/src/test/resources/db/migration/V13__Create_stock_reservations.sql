@@ -0,0 +1,19 @@
+-- Reservas de estoque do checkout: o estoque sai do produto quando o pedido entra em PENDING_PAYMENT
+-- e volta se o pagamento falhar ou a reserva expirar.
+CREATE SEQUENCE stock_reservations_seq INCREMENT BY 50;
+
+CREATE TABLE stock_reservations (
+    reservation_id BIGINT PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    status VARCHAR(20) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_reservation_order FOREIGN KEY (order_id) REFERENCES orders(order_id) ON DELETE CASCADE,
+    CONSTRAINT fk_reservation_product FOREIGN KEY (product_id) REFERENCES products(product_id) ON DELETE CASCADE,
+    CONSTRAINT uk_reservation_order_product UNIQUE (order_id, product_id)
+);
+
+-- O sweeper só olha as reservas ainda em aberto.
+CREATE INDEX idx_stock_reservations_held_expires ON stock_reservations (expires_at) WHERE status = 'HELD';
@@ -0,0 +1,3 @@
+-- Preferência do Mercado Pago do pedido, gravada na segunda fase do checkout (fora da transação do pedido).
+ALTER TABLE orders ADD COLUMN preference_id VARCHAR(255);
+ALTER TABLE orders ADD COLUMN payment_init_point VARCHAR(512);
@@ -0,0 +1,28 @@
+-- Um pagamento do Mercado Pago vira uma única linha em 'payments', mesmo com notificações repetidas ou concorrentes.
+-- Antes da constraint, remove as duplicatas existentes de cada pg_payment_id. Fica a linha que um pedido referencia
+-- (orders.payment_id), que é a que o webhook atualizou por último; se nenhuma é referenciada, fica a mais nova.
+CREATE TEMPORARY TABLE duplicate_payments ON COMMIT DROP AS
+SELECT payment_id
+FROM (
+    SELECT p.payment_id,
+           ROW_NUMBER() OVER (PARTITION BY p.pg_payment_id
+                              ORDER BY (o.order_id IS NOT NULL) DESC, p.payment_id DESC) AS position
+    FROM payments p
+    LEFT JOIN orders o ON o.payment_id = p.payment_id
+    WHERE p.pg_payment_id IS NOT NULL
+) ranked
+WHERE position > 1;
+
+-- Dois pedidos apontando para linhas do mesmo pg_payment_id: o pagamento fica com o pedido da linha mantida.
+-- orders.payment_id é único, então o outro pedido não pode ser reapontado; o vínculo dele é desfeito aqui,
+-- de forma explícita, antes do DELETE.
+UPDATE orders
+SET payment_id = NULL
+WHERE payment_id IN (SELECT payment_id FROM duplicate_payments);
+
+DELETE FROM payments
+WHERE payment_id IN (SELECT payment_id FROM duplicate_payments);
+
+DROP TABLE duplicate_payments;
+
+ALTER TABLE payments ADD CONSTRAINT uk_payments_pg_payment_id UNIQUE (pg_payment_id);
@@ -0,0 +1,25 @@
+-- Busca de produtos no próprio Postgres (config.search.engine=postgres).
+
+-- 1. Extensões: pg_trgm para similaridade (erros de digitação) e unaccent para ignorar acentos.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- 2. unaccent() é STABLE e não pode ser usada em colunas geradas nem em índices;
+--    este wrapper fixa o dicionário e pode ser declarado IMMUTABLE.
+CREATE OR REPLACE FUNCTION f_unaccent(text)
+    RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+AS $$
+SELECT public.unaccent('public.unaccent'::regdictionary, $1)
+$$;
+
+-- 3. Vetor de busca gerado a partir do nome (peso A) e da descrição (peso B).
+ALTER TABLE products
+    ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('portuguese', f_unaccent(coalesce(product_name, ''))), 'A') ||
+        setweight(to_tsvector('portuguese', f_unaccent(coalesce(description, ''))), 'B')
+    ) STORED;
+
+-- 4. Índices: GIN no vetor para a busca textual e GIN de trigramas no nome para o fallback por similaridade.
+CREATE INDEX idx_products_search_vector ON products USING GIN (search_vector);
+CREATE INDEX idx_products_product_name_trgm ON products USING GIN (f_unaccent(lower(product_name)) gin_trgm_ops);